@@ -0,0 +1,67 @@
+package io.metersphere.api.cache;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * 执行前解析缓存
+ * 批量生成 HashTree 时，同一环境、接口定义、用例会被反复查询；在 open/close 范围内按 (类型, id) 缓存查询结果，
+ * 范围外直接调用 loader，不改变原有行为
+ */
+public class ExecResolveCache {
+    public static final String ENVIRONMENT = "ENVIRONMENT";
+    public static final String API_DEFINITION = "API_DEFINITION";
+    public static final String API_DEFINITION_BLOBS = "API_DEFINITION_BLOBS";
+    public static final String API_CASE = "API_CASE";
+    public static final String PLAN_API_CASE = "PLAN_API_CASE";
+
+    private static final Object NULL = new Object();
+    private static final ThreadLocal<Context> CONTEXT = new ThreadLocal<>();
+
+    private ExecResolveCache() {
+    }
+
+    /**
+     * 开启当前线程的缓存范围，支持嵌套，只有最外层 close 时清空
+     */
+    public static void open() {
+        Context context = CONTEXT.get();
+        if (context == null) {
+            context = new Context();
+            CONTEXT.set(context);
+        }
+        context.depth++;
+    }
+
+    public static void close() {
+        Context context = CONTEXT.get();
+        if (context != null && --context.depth <= 0) {
+            CONTEXT.remove();
+        }
+    }
+
+    public static boolean isOpen() {
+        return CONTEXT.get() != null;
+    }
+
+    @SuppressWarnings("unchecked")
+    public static <T> T get(String type, String id, Function<String, T> loader) {
+        Context context = CONTEXT.get();
+        if (context == null || id == null) {
+            return loader.apply(id);
+        }
+        String key = type + "|" + id;
+        Object value = context.values.get(key);
+        if (value == null) {
+            value = loader.apply(id);
+            context.values.put(key, value == null ? NULL : value);
+        }
+        return value == NULL ? null : (T) value;
+    }
+
+    private static class Context {
+        private final Map<String, Object> values = new HashMap<>();
+        private int depth;
+    }
+}
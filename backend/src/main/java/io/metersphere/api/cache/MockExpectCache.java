@@ -0,0 +1,88 @@
+package io.metersphere.api.cache;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import io.metersphere.api.dto.mock.MockExpectMatcher;
+import io.metersphere.api.dto.mock.TcpMockExpectMatcher;
+import io.metersphere.commons.utils.LogUtil;
+import io.metersphere.commons.utils.TransactionUtils;
+import org.apache.commons.lang3.StringUtils;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Mock 期望缓存
+ * 按接口 ID 缓存解析后的期望匹配器，按 TCP 端口缓存该端口下的 TCP 期望；
+ * 期望新增、修改、删除提交后清除对应缓存，其他节点的变更通过过期时间兜底
+ */
+public class MockExpectCache {
+    private static final Cache<String, MockExpectMatcher> MATCHERS = CacheBuilder.newBuilder()
+            .maximumSize(5000)
+            .expireAfterWrite(1, TimeUnit.MINUTES)
+            .build();
+    private static final Cache<Integer, TcpMockExpectMatcher> TCP_MATCHERS = CacheBuilder.newBuilder()
+            .maximumSize(100)
+            .expireAfterWrite(1, TimeUnit.MINUTES)
+            .build();
+
+    private MockExpectCache() {
+    }
+
+    public static MockExpectMatcher get(String apiId, Supplier<MockExpectMatcher> loader) {
+        try {
+            return MATCHERS.get(apiId, loader::get);
+        } catch (Exception e) {
+            LogUtil.error(e.getMessage(), e);
+            return loader.get();
+        }
+    }
+
+    public static TcpMockExpectMatcher getTcp(int port, Supplier<TcpMockExpectMatcher> loader) {
+        try {
+            return TCP_MATCHERS.get(port, loader::get);
+        } catch (Exception e) {
+            LogUtil.error(e.getMessage(), e);
+            return loader.get();
+        }
+    }
+
+    /**
+     * 清除方法在事务中调用时都等提交后再执行，避免提交前的请求把旧期望重新放入缓存
+     */
+    public static void invalidate(String apiId) {
+        TransactionUtils.afterCommit(() -> {
+            if (StringUtils.isNotEmpty(apiId)) {
+                MATCHERS.invalidate(apiId);
+            }
+            // TCP 期望按端口缓存，端口数量很少，直接全部清除
+            TCP_MATCHERS.invalidateAll();
+        });
+    }
+
+    public static void invalidateTcp(int port) {
+        TransactionUtils.afterCommit(() -> TCP_MATCHERS.invalidate(port));
+    }
+
+    /**
+     * 按 Mock 配置 ID 清除，只知道配置 ID 的写入场景使用
+     */
+    public static void invalidateByMockConfigId(String mockConfigId) {
+        if (StringUtils.isEmpty(mockConfigId)) {
+            return;
+        }
+        TransactionUtils.afterCommit(() -> {
+            MATCHERS.asMap().values().removeIf(matcher -> matcher.getMockConfig() != null
+                    && matcher.getMockConfig().getMockConfig() != null
+                    && StringUtils.equals(matcher.getMockConfig().getMockConfig().getId(), mockConfigId));
+            TCP_MATCHERS.invalidateAll();
+        });
+    }
+
+    public static void invalidateAll() {
+        TransactionUtils.afterCommit(() -> {
+            MATCHERS.invalidateAll();
+            TCP_MATCHERS.invalidateAll();
+        });
+    }
+}
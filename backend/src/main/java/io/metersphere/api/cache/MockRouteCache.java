@@ -0,0 +1,129 @@
+package io.metersphere.api.cache;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import io.metersphere.base.domain.ApiDefinition;
+import io.metersphere.base.domain.ApiDefinitionExample;
+import io.metersphere.base.mapper.ApiDefinitionMapper;
+import io.metersphere.commons.utils.CommonBeanFactory;
+import io.metersphere.commons.utils.LogUtil;
+import io.metersphere.commons.utils.TransactionUtils;
+import org.apache.commons.lang3.StringUtils;
+
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Mock 路由缓存
+ * 按项目将 HTTP 接口路径构建为前缀树（先匹配普通路径段，再匹配 {变量} 路径段），
+ * 接口新增、修改、删除提交后清除对应项目；其他节点或批量写入的变更通过过期时间兜底
+ */
+public class MockRouteCache {
+    private static final Cache<String, Map<String, Node>> ROUTES = CacheBuilder.newBuilder()
+            .maximumSize(500)
+            .expireAfterWrite(1, TimeUnit.MINUTES)
+            .build();
+
+    private MockRouteCache() {
+    }
+
+    /**
+     * 匹配请求路径对应的接口，普通路径段匹配的接口排在前面
+     */
+    public static List<ApiDefinition> match(String projectId, String method, String urlSuffix) {
+        if (StringUtils.isEmpty(urlSuffix)) {
+            return new ArrayList<>();
+        }
+        Map<String, Node> routes;
+        try {
+            routes = ROUTES.get(projectId, () -> build(projectId));
+        } catch (Exception e) {
+            LogUtil.error(e.getMessage(), e);
+            return new ArrayList<>();
+        }
+        Node root = routes.get(method);
+        List<ApiDefinition> result = new ArrayList<>();
+        if (root == null) {
+            return result;
+        }
+        boolean urlSuffixEndEmpty = false;
+        if (urlSuffix.endsWith("/")) {
+            urlSuffixEndEmpty = true;
+            urlSuffix = urlSuffix + "testMock";
+        }
+        String[] urlParams = urlSuffix.split("/");
+        if (urlSuffixEndEmpty) {
+            urlParams[urlParams.length - 1] = "";
+        }
+        root.collect(urlParams, 0, result);
+        return result;
+    }
+
+    /**
+     * 在事务中调用时等提交后再清除，避免提交前的请求把旧路由重新放入缓存
+     */
+    public static void invalidate(String projectId) {
+        if (StringUtils.isNotEmpty(projectId)) {
+            TransactionUtils.afterCommit(() -> ROUTES.invalidate(projectId));
+        }
+    }
+
+    public static void invalidateAll() {
+        TransactionUtils.afterCommit(ROUTES::invalidateAll);
+    }
+
+    private static Map<String, Node> build(String projectId) {
+        ApiDefinitionExample example = new ApiDefinitionExample();
+        example.createCriteria().andProjectIdEqualTo(projectId).andStatusNotEqualTo("Trash").andProtocolEqualTo("HTTP");
+        List<ApiDefinition> apiList = CommonBeanFactory.getBean(ApiDefinitionMapper.class).selectByExample(example);
+        Map<String, Node> routes = new HashMap<>();
+        for (ApiDefinition api : apiList) {
+            String path = api.getPath();
+            if (StringUtils.isEmpty(path) || StringUtils.isEmpty(api.getMethod())) {
+                continue;
+            }
+            if (path.startsWith("/")) {
+                path = path.substring(1);
+            }
+            if (StringUtils.isEmpty(path)) {
+                continue;
+            }
+            Node node = routes.computeIfAbsent(api.getMethod(), k -> new Node());
+            for (String pathItem : path.split("/")) {
+                node = node.child(pathItem);
+            }
+            node.apis.add(api);
+        }
+        return routes;
+    }
+
+    private static class Node {
+        private final Map<String, Node> literals = new HashMap<>();
+        private Node variable;
+        private final List<ApiDefinition> apis = new LinkedList<>();
+
+        private Node child(String pathItem) {
+            if (pathItem.startsWith("{") && pathItem.endsWith("}")) {
+                if (variable == null) {
+                    variable = new Node();
+                }
+                return variable;
+            }
+            return literals.computeIfAbsent(pathItem, k -> new Node());
+        }
+
+        private void collect(String[] urlParams, int index, List<ApiDefinition> result) {
+            if (index == urlParams.length) {
+                result.addAll(apis);
+                return;
+            }
+            Node literal = literals.get(urlParams[index]);
+            if (literal != null) {
+                literal.collect(urlParams, index + 1, result);
+            }
+            if (variable != null) {
+                variable.collect(urlParams, index + 1, result);
+            }
+        }
+    }
+}
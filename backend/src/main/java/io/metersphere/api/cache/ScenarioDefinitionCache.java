@@ -0,0 +1,179 @@
+package io.metersphere.api.cache;
+
+import com.alibaba.fastjson.JSON;
+import com.alibaba.fastjson.JSONObject;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import io.metersphere.api.dto.definition.request.ElementUtil;
+import io.metersphere.api.dto.definition.request.variable.ScenarioVariable;
+import io.metersphere.api.dto.scenario.KeyValue;
+import io.metersphere.base.domain.ApiScenario;
+import io.metersphere.base.domain.ApiScenarioExample;
+import io.metersphere.base.domain.ApiScenarioWithBLOBs;
+import io.metersphere.base.mapper.ApiScenarioMapper;
+import io.metersphere.commons.utils.CommonBeanFactory;
+import io.metersphere.plugin.core.MsTestElement;
+import lombok.Getter;
+import org.apache.commons.codec.digest.DigestUtils;
+import org.apache.commons.collections.CollectionUtils;
+import org.apache.commons.lang3.StringUtils;
+
+import java.io.IOException;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * 场景定义解析缓存
+ * 解析出的 MsTestElement 在生成 HashTree 时会被修改，不能共享实例；这里缓存经过 dataFormatting 处理后的 JSON，
+ * 每次使用时只做一次 Jackson 反序列化，省去 fastjson 解析、历史数据格式化和引用场景的数据库读取
+ */
+public class ScenarioDefinitionCache {
+    // 多态JSON普通转换会丢失内容，需要通过 ObjectMapper 获取；配置完成后线程安全，全局共用
+    public static final ObjectMapper MAPPER = new ObjectMapper()
+            .configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+
+    // 缓存内容总字符数上限
+    private static final long MAX_WEIGHT = 64 * 1024 * 1024;
+    // 引用场景在该时间内不重复校验版本（毫秒）
+    private static final long VERSION_CHECK_INTERVAL = 3000;
+
+    private static final Cache<String, FormattedDefinition> DEFINITIONS = CacheBuilder.newBuilder()
+            .maximumWeight(MAX_WEIGHT)
+            .weigher((String key, FormattedDefinition value) -> value.weight())
+            .build();
+
+    private static final Cache<String, FormattedDefinition> REFERENCES = CacheBuilder.newBuilder()
+            .maximumWeight(MAX_WEIGHT)
+            .weigher((String key, FormattedDefinition value) -> value.weight())
+            .build();
+
+    private ScenarioDefinitionCache() {
+    }
+
+    /**
+     * 按定义内容缓存，id 和 reportType 会影响 dataFormatting 的结果，一并作为 key
+     */
+    public static FormattedDefinition get(String scenarioDefinition, String id, String reportType) {
+        if (StringUtils.isEmpty(scenarioDefinition)) {
+            return null;
+        }
+        String key = StringUtils.join(id, "|", reportType, "|", DigestUtils.md5Hex(scenarioDefinition));
+        FormattedDefinition definition = DEFINITIONS.getIfPresent(key);
+        if (definition == null) {
+            JSONObject element = JSON.parseObject(scenarioDefinition);
+            if (element == null) {
+                return null;
+            }
+            if (id == null && reportType == null) {
+                ElementUtil.dataFormatting(element);
+            } else {
+                ElementUtil.dataFormatting(element, id, reportType);
+            }
+            definition = new FormattedDefinition(element, null);
+            DEFINITIONS.put(key, definition);
+        }
+        return definition;
+    }
+
+    /**
+     * 获取被引用场景的定义，按 (id, updateTime) 校验版本
+     */
+    public static FormattedDefinition getReference(String id) {
+        if (StringUtils.isEmpty(id)) {
+            return null;
+        }
+        FormattedDefinition definition = REFERENCES.getIfPresent(id);
+        long now = System.currentTimeMillis();
+        if (definition != null && now - definition.checkTime < VERSION_CHECK_INTERVAL) {
+            return definition;
+        }
+        ApiScenarioMapper apiScenarioMapper = CommonBeanFactory.getBean(ApiScenarioMapper.class);
+        if (definition != null) {
+            ApiScenarioExample example = new ApiScenarioExample();
+            example.createCriteria().andIdEqualTo(id);
+            List<ApiScenario> scenarios = apiScenarioMapper.selectByExample(example);
+            if (CollectionUtils.isNotEmpty(scenarios) && Objects.equals(scenarios.get(0).getUpdateTime(), definition.updateTime)) {
+                definition.checkTime = now;
+                return definition;
+            }
+        }
+        ApiScenarioWithBLOBs scenario = apiScenarioMapper.selectByPrimaryKey(id);
+        if (scenario == null || StringUtils.isEmpty(scenario.getScenarioDefinition())) {
+            REFERENCES.invalidate(id);
+            return null;
+        }
+        JSONObject element = JSON.parseObject(scenario.getScenarioDefinition());
+        // 历史数据处理
+        ElementUtil.dataFormatting(element.getJSONArray("hashTree"));
+        definition = new FormattedDefinition(element, scenario);
+        REFERENCES.put(id, definition);
+        return definition;
+    }
+
+    /**
+     * 场景编辑或删除后清除引用缓存
+     */
+    public static void invalidate(String id) {
+        if (StringUtils.isNotEmpty(id)) {
+            REFERENCES.invalidate(id);
+        }
+    }
+
+    public static void invalidate(List<String> ids) {
+        if (CollectionUtils.isNotEmpty(ids)) {
+            REFERENCES.invalidateAll(ids);
+        }
+    }
+
+    @Getter
+    public static class FormattedDefinition {
+        private final String hashTree;
+        private final String variables;
+        private final String headers;
+        private final String name;
+        private final String projectId;
+        private final Long updateTime;
+        private volatile long checkTime = System.currentTimeMillis();
+
+        private FormattedDefinition(JSONObject element, ApiScenarioWithBLOBs scenario) {
+            this.hashTree = element.getString("hashTree");
+            this.variables = element.getString("variables");
+            this.headers = element.getString("headers");
+            this.name = scenario == null ? null : scenario.getName();
+            this.projectId = scenario == null ? null : scenario.getProjectId();
+            this.updateTime = scenario == null ? null : scenario.getUpdateTime();
+        }
+
+        private int weight() {
+            return StringUtils.length(hashTree) + StringUtils.length(variables) + StringUtils.length(headers) + 1;
+        }
+
+        public LinkedList<MsTestElement> readHashTree() throws IOException {
+            if (StringUtils.isEmpty(hashTree)) {
+                return null;
+            }
+            return MAPPER.readValue(hashTree, new TypeReference<LinkedList<MsTestElement>>() {
+            });
+        }
+
+        public LinkedList<ScenarioVariable> readVariables() throws IOException {
+            if (StringUtils.isEmpty(variables)) {
+                return null;
+            }
+            return MAPPER.readValue(variables, new TypeReference<LinkedList<ScenarioVariable>>() {
+            });
+        }
+
+        public LinkedList<KeyValue> readHeaders() throws IOException {
+            if (StringUtils.isEmpty(headers)) {
+                return null;
+            }
+            return MAPPER.readValue(headers, new TypeReference<LinkedList<KeyValue>>() {
+            });
+        }
+    }
+}
@@ -26,4 +26,7 @@ public class ApiDefinitionImport {
     private List<MockConfigImportDTO> mocks;
 
     private List<NodeTree> nodeTree;
+
+    //导入统计
+    private ApiImportStatistics statistics;
 }
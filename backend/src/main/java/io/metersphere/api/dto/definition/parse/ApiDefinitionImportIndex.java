@@ -0,0 +1,121 @@
+package io.metersphere.api.dto.definition.parse;
+
+import io.metersphere.api.dto.scenario.request.RequestType;
+import io.metersphere.base.domain.ApiDefinition;
+import org.apache.commons.lang3.StringUtils;
+
+import java.util.*;
+import java.util.stream.Collectors;
+
+/**
+ * 导入时判断接口是否已存在的内存索引
+ * 导入前一次性加载项目下未删除的接口，按 (method, path)、(protocol, name)、(method, path, name)、name 和 id 建索引，
+ * 导入过程中新增或更新的接口同步写入索引，效果与逐条查询数据库一致
+ * 数据库默认排序规则不区分大小写且忽略末尾空格，索引的 key 做同样的处理
+ */
+public class ApiDefinitionImportIndex {
+    private static final String TRASH = "Trash";
+
+    private final Map<String, ApiDefinition> byId = new HashMap<>();
+    private final Map<String, List<ApiDefinition>> byMethodPath = new HashMap<>();
+    private final Map<String, List<ApiDefinition>> byProtocolName = new HashMap<>();
+    private final Map<String, List<ApiDefinition>> byMethodPathName = new HashMap<>();
+    private final Map<String, List<ApiDefinition>> byName = new HashMap<>();
+
+    public ApiDefinitionImportIndex(List<? extends ApiDefinition> definitions) {
+        definitions.forEach(this::put);
+    }
+
+    public int size() {
+        return byId.size();
+    }
+
+    /**
+     * 对应 getSameRequest / getSameRequestWithName
+     */
+    public List<ApiDefinition> getSameRequest(ApiDefinition request, boolean withName) {
+        List<ApiDefinition> candidates;
+        if (StringUtils.equals(request.getProtocol(), RequestType.HTTP)) {
+            candidates = withName ? byMethodPathName.get(key(request.getMethod(), request.getPath(), request.getName()))
+                    : byMethodPath.get(key(request.getMethod(), request.getPath()));
+        } else {
+            candidates = withName ? byName.get(key(request.getName()))
+                    : byProtocolName.get(key(request.getProtocol(), request.getName()));
+        }
+        if (candidates == null) {
+            return new ArrayList<>();
+        }
+        return candidates.stream().filter(item -> !StringUtils.equals(item.getId(), request.getId())).collect(Collectors.toList());
+    }
+
+    /**
+     * 对应 getSameRequestById
+     */
+    public List<ApiDefinition> getSameRequestById(String id) {
+        List<ApiDefinition> result = new ArrayList<>();
+        ApiDefinition definition = id == null ? null : byId.get(id);
+        if (definition != null) {
+            result.add(definition);
+        }
+        return result;
+    }
+
+    /**
+     * 新增或更新后写入索引
+     */
+    public void put(ApiDefinition definition) {
+        if (definition.getId() == null) {
+            return;
+        }
+        remove(definition.getId());
+        if (definition.getStatus() == null || StringUtils.equals(definition.getStatus(), TRASH)) {
+            return;
+        }
+        byId.put(definition.getId(), definition);
+        add(byMethodPath, definition, definition.getMethod(), definition.getPath());
+        add(byProtocolName, definition, definition.getProtocol(), definition.getName());
+        add(byMethodPathName, definition, definition.getMethod(), definition.getPath(), definition.getName());
+        add(byName, definition, definition.getName());
+    }
+
+    private void remove(String id) {
+        ApiDefinition old = byId.remove(id);
+        if (old == null) {
+            return;
+        }
+        remove(byMethodPath, old, old.getMethod(), old.getPath());
+        remove(byProtocolName, old, old.getProtocol(), old.getName());
+        remove(byMethodPathName, old, old.getMethod(), old.getPath(), old.getName());
+        remove(byName, old, old.getName());
+    }
+
+    private static void add(Map<String, List<ApiDefinition>> index, ApiDefinition definition, String... values) {
+        String key = key(values);
+        if (key != null) {
+            index.computeIfAbsent(key, k -> new ArrayList<>(1)).add(definition);
+        }
+    }
+
+    private static void remove(Map<String, List<ApiDefinition>> index, ApiDefinition definition, String... values) {
+        String key = key(values);
+        List<ApiDefinition> list = key == null ? null : index.get(key);
+        if (list != null) {
+            list.remove(definition);
+            if (list.isEmpty()) {
+                index.remove(key);
+            }
+        }
+    }
+
+    static String key(String... values) {
+        StringBuilder key = new StringBuilder();
+        for (String value : values) {
+            // 数据库中为 null 的字段不会被等值条件匹配
+            if (value == null) {
+                return null;
+            }
+            key.append(StringUtils.stripEnd(value, " ").toLowerCase(Locale.ROOT)).append('\u0000');
+        }
+        return key.toString();
+    }
+}
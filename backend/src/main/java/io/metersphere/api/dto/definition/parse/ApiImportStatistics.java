@@ -0,0 +1,44 @@
+package io.metersphere.api.dto.definition.parse;
+
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.Setter;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * 接口导入统计：新增、更新、跳过的数量，各阶段耗时（毫秒）和每秒处理的接口数
+ */
+@Getter
+@Setter
+public class ApiImportStatistics {
+    private int total;
+    private int created;
+    private int updated;
+    private int skipped;
+    private Map<String, Long> phaseTimes = new LinkedHashMap<>();
+    private double throughput;
+
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    private long start = System.currentTimeMillis();
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    private long phaseStart = start;
+
+    /**
+     * 记录上一阶段结束到现在的耗时
+     */
+    public void phase(String name) {
+        long now = System.currentTimeMillis();
+        phaseTimes.put(name, now - phaseStart);
+        phaseStart = now;
+    }
+
+    public void finish() {
+        long cost = System.currentTimeMillis() - start;
+        phaseTimes.put("total", cost);
+        throughput = cost > 0 ? total * 1000.0 / cost : total;
+    }
+}
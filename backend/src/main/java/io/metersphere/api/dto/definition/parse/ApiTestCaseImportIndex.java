@@ -0,0 +1,102 @@
+package io.metersphere.api.dto.definition.parse;
+
+import io.metersphere.base.domain.ApiTestCase;
+import org.apache.commons.lang3.StringUtils;
+
+import java.util.*;
+import java.util.stream.Collectors;
+
+/**
+ * 导入时判断用例是否已存在的内存索引
+ * 按接口 ID 加载该接口下的全部用例，未删除的用例按 (接口 ID, name) 和 id 建索引，用例编号按包含回收站在内的最大值递增，
+ * 导入过程中新增或更新的用例同步写入索引，效果与逐条查询数据库一致
+ */
+public class ApiTestCaseImportIndex {
+    private static final String TRASH = "Trash";
+
+    private final Set<String> loadedDefinitionIds = new HashSet<>();
+    private final Map<String, ApiTestCase> byId = new HashMap<>();
+    private final Map<String, List<ApiTestCase>> byName = new HashMap<>();
+    private final Map<String, Integer> maxNums = new HashMap<>();
+
+    /**
+     * 返回还没有加载过的接口 ID
+     */
+    public List<String> getUnloaded(Collection<String> definitionIds) {
+        return definitionIds.stream().filter(Objects::nonNull).distinct()
+                .filter(id -> !loadedDefinitionIds.contains(id)).collect(Collectors.toList());
+    }
+
+    /**
+     * 写入已加载接口下的全部用例，新建的接口没有用例时也需要调用，避免再次查询
+     */
+    public void load(Collection<String> definitionIds, List<? extends ApiTestCase> cases) {
+        loadedDefinitionIds.addAll(definitionIds);
+        cases.forEach(this::put);
+    }
+
+    /**
+     * 对应 ApiTestCaseService.getSameCase，找不到时再按 getSameCaseById 查找
+     */
+    public ApiTestCase getSameCase(String definitionId, String name, String id) {
+        List<ApiTestCase> candidates = byName.get(ApiDefinitionImportIndex.key(definitionId, name));
+        if (candidates != null) {
+            for (ApiTestCase item : candidates) {
+                if (StringUtils.isBlank(id) || !StringUtils.equals(item.getId(), id)) {
+                    return item;
+                }
+            }
+        }
+        if (StringUtils.isNotBlank(id)) {
+            ApiTestCase item = byId.get(id);
+            if (item != null && StringUtils.equals(item.getApiDefinitionId(), definitionId)) {
+                return item;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * 对应 ApiTestCaseService.getNextNum，接口下没有用例时返回 null
+     */
+    public Integer getNextNum(String definitionId) {
+        Integer max = maxNums.get(definitionId);
+        return max == null ? null : max + 1;
+    }
+
+    /**
+     * 新增或更新后写入索引
+     */
+    public void put(ApiTestCase apiTestCase) {
+        if (apiTestCase.getId() == null) {
+            return;
+        }
+        remove(apiTestCase.getId());
+        if (apiTestCase.getNum() != null) {
+            maxNums.merge(apiTestCase.getApiDefinitionId(), apiTestCase.getNum(), Math::max);
+        }
+        if (StringUtils.equals(apiTestCase.getStatus(), TRASH)) {
+            return;
+        }
+        byId.put(apiTestCase.getId(), apiTestCase);
+        String key = ApiDefinitionImportIndex.key(apiTestCase.getApiDefinitionId(), apiTestCase.getName());
+        if (key != null) {
+            byName.computeIfAbsent(key, k -> new ArrayList<>(1)).add(apiTestCase);
+        }
+    }
+
+    private void remove(String id) {
+        ApiTestCase old = byId.remove(id);
+        if (old == null) {
+            return;
+        }
+        String key = ApiDefinitionImportIndex.key(old.getApiDefinitionId(), old.getName());
+        List<ApiTestCase> list = key == null ? null : byName.get(key);
+        if (list != null) {
+            list.remove(old);
+            if (list.isEmpty()) {
+                byName.remove(key);
+            }
+        }
+    }
+}
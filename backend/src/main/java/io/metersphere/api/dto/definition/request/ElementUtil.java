@@ -6,6 +6,7 @@ import com.alibaba.fastjson.JSONObject;
 import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.DeserializationFeature;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import io.metersphere.api.cache.ExecResolveCache;
 import io.metersphere.api.dto.EnvironmentType;
 import io.metersphere.api.dto.definition.request.controller.MsLoopController;
 import io.metersphere.api.dto.definition.request.sampler.MsHTTPSamplerProxy;
@@ -67,9 +68,16 @@ public class ElementUtil {
         return null;
     }
 
+    /**
+     * 获取环境，批量生成执行脚本时在 ExecResolveCache 范围内复用查询结果
+     */
+    public static ApiTestEnvironmentWithBLOBs getEnvironment(String environmentId) {
+        return ExecResolveCache.get(ExecResolveCache.ENVIRONMENT, environmentId,
+                id -> CommonBeanFactory.getBean(ApiTestEnvironmentService.class).get(id));
+    }
+
     public static Map<String, EnvironmentConfig> getEnvironmentConfig(String environmentId, String projectId, boolean isMockEnvironment) {
-        ApiTestEnvironmentService environmentService = CommonBeanFactory.getBean(ApiTestEnvironmentService.class);
-        ApiTestEnvironmentWithBLOBs environment = environmentService.get(environmentId);
+        ApiTestEnvironmentWithBLOBs environment = getEnvironment(environmentId);
         if (environment != null && environment.getConfig() != null) {
             if (StringUtils.equals(environment.getName(), MockConfigStaticData.MOCK_EVN_NAME)) {
                 isMockEnvironment = true;
@@ -422,8 +430,7 @@ public class ElementUtil {
                         if (environmentMap != null && !environmentMap.isEmpty()) {
                             Map<String, String> finalEnvironmentMap = environmentMap;
                             environmentMap.keySet().forEach(projectId -> {
-                                ApiTestEnvironmentService environmentService = CommonBeanFactory.getBean(ApiTestEnvironmentService.class);
-                                ApiTestEnvironmentWithBLOBs environment = environmentService.get(finalEnvironmentMap.get(projectId));
+                                ApiTestEnvironmentWithBLOBs environment = getEnvironment(finalEnvironmentMap.get(projectId));
                                 if (environment != null && environment.getConfig() != null) {
                                     EnvironmentConfig env = JSONObject.parseObject(environment.getConfig(), EnvironmentConfig.class);
                                     env.setApiEnvironmentid(environment.getId());
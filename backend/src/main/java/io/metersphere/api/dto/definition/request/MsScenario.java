@@ -4,16 +4,13 @@ import com.alibaba.fastjson.JSON;
 import com.alibaba.fastjson.JSONObject;
 import com.alibaba.fastjson.annotation.JSONField;
 import com.alibaba.fastjson.annotation.JSONType;
-import com.fasterxml.jackson.core.type.TypeReference;
-import com.fasterxml.jackson.databind.DeserializationFeature;
-import com.fasterxml.jackson.databind.ObjectMapper;
+import io.metersphere.api.cache.ScenarioDefinitionCache;
 import io.metersphere.api.dto.EnvironmentType;
 import io.metersphere.api.dto.definition.request.variable.ScenarioVariable;
 import io.metersphere.api.dto.mockconfig.MockConfigStaticData;
 import io.metersphere.api.dto.scenario.KeyValue;
 import io.metersphere.api.dto.scenario.environment.EnvironmentConfig;
 import io.metersphere.api.service.ApiAutomationService;
-import io.metersphere.api.service.ApiTestEnvironmentService;
 import io.metersphere.base.domain.ApiScenarioWithBLOBs;
 import io.metersphere.base.domain.ApiTestEnvironmentWithBLOBs;
 import io.metersphere.commons.constants.MsTestElementConstants;
@@ -95,34 +92,25 @@ public class MsScenario extends MsTestElement {
             return;
         } else if (this.getReferenced() != null && MsTestElementConstants.REF.name().equals(this.getReferenced())) {
             try {
-                ApiAutomationService apiAutomationService = CommonBeanFactory.getBean(ApiAutomationService.class);
-                ObjectMapper mapper = new ObjectMapper();
-                mapper.configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
-                ApiScenarioWithBLOBs scenario = apiAutomationService.getApiScenario(this.getId());
-                if (scenario != null && StringUtils.isNotEmpty(scenario.getScenarioDefinition())) {
-                    JSONObject element = JSON.parseObject(scenario.getScenarioDefinition());
-                    // 历史数据处理
-                    ElementUtil.dataFormatting(element.getJSONArray("hashTree"));
-                    this.setName(scenario.getName());
-                    this.setProjectId(scenario.getProjectId());
-                    LinkedList<MsTestElement> sourceHashTree = mapper.readValue(element.getString("hashTree"), new TypeReference<LinkedList<MsTestElement>>() {
-                    });
+                ScenarioDefinitionCache.FormattedDefinition definition = ScenarioDefinitionCache.getReference(this.getId());
+                if (definition != null) {
+                    this.setName(definition.getName());
+                    this.setProjectId(definition.getProjectId());
+                    LinkedList<MsTestElement> sourceHashTree = definition.readHashTree();
                     // 场景变量
-                    if (StringUtils.isNotEmpty(element.getString("variables"))) {
-                        LinkedList<ScenarioVariable> variables = mapper.readValue(element.getString("variables"),
-                                new TypeReference<LinkedList<ScenarioVariable>>() {
-                                });
+                    LinkedList<ScenarioVariable> variables = definition.readVariables();
+                    if (variables != null) {
                         this.setVariables(variables);
                     }
                     // 场景请求头
-                    if (StringUtils.isNotEmpty(element.getString("headers"))) {
-                        LinkedList<KeyValue> headers = mapper.readValue(element.getString("headers"),
-                                new TypeReference<LinkedList<KeyValue>>() {
-                                });
+                    LinkedList<KeyValue> headers = definition.readHeaders();
+                    if (headers != null) {
                         this.setHeaders(headers);
                     }
-                    this.setHashTree(sourceHashTree);
-                    hashTree = sourceHashTree;
+                    if (sourceHashTree != null) {
+                        this.setHashTree(sourceHashTree);
+                        hashTree = sourceHashTree;
+                    }
                 }
 
             } catch (Exception ex) {
@@ -183,8 +171,7 @@ public class MsScenario extends MsTestElement {
 
             if (this.environmentMap != null && !this.environmentMap.isEmpty()) {
                 environmentMap.keySet().forEach(projectId -> {
-                    ApiTestEnvironmentService environmentService = CommonBeanFactory.getBean(ApiTestEnvironmentService.class);
-                    ApiTestEnvironmentWithBLOBs environment = environmentService.get(this.environmentMap.get(projectId));
+                    ApiTestEnvironmentWithBLOBs environment = ElementUtil.getEnvironment(this.environmentMap.get(projectId));
                     if (environment != null && environment.getConfig() != null) {
                         EnvironmentConfig env = JSONObject.parseObject(environment.getConfig(), EnvironmentConfig.class);
                         env.setApiEnvironmentid(environment.getId());
@@ -270,8 +257,7 @@ public class MsScenario extends MsTestElement {
 
     private void setEnv(Map<String, String> environmentMap, Map<String, EnvironmentConfig> envConfig) {
         for (String projectId : environmentMap.keySet()) {
-            ApiTestEnvironmentService environmentService = CommonBeanFactory.getBean(ApiTestEnvironmentService.class);
-            ApiTestEnvironmentWithBLOBs environment = environmentService.get(environmentMap.get(projectId));
+            ApiTestEnvironmentWithBLOBs environment = ElementUtil.getEnvironment(environmentMap.get(projectId));
             if (environment != null && StringUtils.isNotEmpty(environment.getConfig())) {
                 EnvironmentConfig env = JSONObject.parseObject(environment.getConfig(), EnvironmentConfig.class);
                 env.setApiEnvironmentid(environment.getId());
@@ -10,9 +10,7 @@ import io.metersphere.api.dto.definition.request.sampler.MsJDBCSampler;
 import io.metersphere.api.dto.definition.request.sampler.MsTCPSampler;
 import io.metersphere.api.dto.mockconfig.MockConfigStaticData;
 import io.metersphere.api.dto.scenario.environment.EnvironmentConfig;
-import io.metersphere.api.service.ApiTestEnvironmentService;
 import io.metersphere.base.domain.ApiTestEnvironmentWithBLOBs;
-import io.metersphere.commons.utils.CommonBeanFactory;
 import io.metersphere.constants.RunModeConstants;
 import io.metersphere.plugin.core.MsParameter;
 import io.metersphere.plugin.core.MsTestElement;
@@ -193,8 +191,7 @@ public class MsThreadGroup extends MsTestElement {
                     }
                     if (scenario.getEnvironmentMap() != null && !scenario.getEnvironmentMap().isEmpty()) {
                         scenario.getEnvironmentMap().keySet().forEach(itemProjectId -> {
-                            ApiTestEnvironmentService environmentService = CommonBeanFactory.getBean(ApiTestEnvironmentService.class);
-                            ApiTestEnvironmentWithBLOBs environment = environmentService.get(scenario.getEnvironmentMap().get(itemProjectId));
+                            ApiTestEnvironmentWithBLOBs environment = ElementUtil.getEnvironment(scenario.getEnvironmentMap().get(itemProjectId));
                             if (environment != null && environment.getConfig() != null) {
                                 EnvironmentConfig env = JSONObject.parseObject(environment.getConfig(), EnvironmentConfig.class);
                                 env.setApiEnvironmentid(environment.getId());
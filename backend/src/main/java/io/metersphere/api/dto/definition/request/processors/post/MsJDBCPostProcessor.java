@@ -14,7 +14,6 @@ import io.metersphere.api.dto.scenario.KeyValue;
 import io.metersphere.api.dto.scenario.environment.EnvironmentConfig;
 import io.metersphere.api.service.ApiDefinitionService;
 import io.metersphere.api.service.ApiTestCaseService;
-import io.metersphere.api.service.ApiTestEnvironmentService;
 import io.metersphere.base.domain.ApiDefinitionWithBLOBs;
 import io.metersphere.base.domain.ApiTestCaseWithBLOBs;
 import io.metersphere.base.domain.ApiTestEnvironmentWithBLOBs;
@@ -209,8 +208,7 @@ public class MsJDBCPostProcessor extends MsTestElement {
     }
 
     private void initDataSource() {
-        ApiTestEnvironmentService environmentService = CommonBeanFactory.getBean(ApiTestEnvironmentService.class);
-        ApiTestEnvironmentWithBLOBs environment = environmentService.get(environmentId);
+        ApiTestEnvironmentWithBLOBs environment = ElementUtil.getEnvironment(environmentId);
         if (environment != null && environment.getConfig() != null) {
             EnvironmentConfig envConfig = JSONObject.parseObject(environment.getConfig(), EnvironmentConfig.class);
             if (CollectionUtils.isNotEmpty(envConfig.getDatabaseConfigs())) {
@@ -5,8 +5,9 @@ import com.alibaba.fastjson.JSONObject;
 import com.alibaba.fastjson.annotation.JSONField;
 import com.alibaba.fastjson.annotation.JSONType;
 import com.fasterxml.jackson.core.type.TypeReference;
-import com.fasterxml.jackson.databind.DeserializationFeature;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import io.metersphere.api.cache.ExecResolveCache;
+import io.metersphere.api.cache.ScenarioDefinitionCache;
 import io.metersphere.api.dto.definition.parse.JMeterScriptUtil;
 import io.metersphere.api.dto.definition.request.ElementUtil;
 import io.metersphere.api.dto.definition.request.ParameterConfig;
@@ -134,12 +135,11 @@ public class MsHTTPSamplerProxy extends MsTestElement {
     private void setRefElement() {
         try {
             ApiDefinitionService apiDefinitionService = CommonBeanFactory.getBean(ApiDefinitionService.class);
-            ObjectMapper mapper = new ObjectMapper();
-            mapper.configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+            ObjectMapper mapper = ScenarioDefinitionCache.MAPPER;
             MsHTTPSamplerProxy proxy = null;
             if (StringUtils.equals(this.getRefType(), "CASE")) {
                 ApiTestCaseService apiTestCaseService = CommonBeanFactory.getBean(ApiTestCaseService.class);
-                ApiTestCaseWithBLOBs bloBs = apiTestCaseService.get(this.getId());
+                ApiTestCaseWithBLOBs bloBs = ExecResolveCache.get(ExecResolveCache.API_CASE, this.getId(), apiTestCaseService::get);
                 if (bloBs != null) {
                     this.setProjectId(bloBs.getProjectId());
                     JSONObject element = JSON.parseObject(bloBs.getRequest());
@@ -149,7 +149,7 @@ public class MsHTTPSamplerProxy extends MsTestElement {
                     this.setName(bloBs.getName());
                 }
             } else {
-                ApiDefinitionWithBLOBs apiDefinition = apiDefinitionService.getBLOBs(this.getId());
+                ApiDefinitionWithBLOBs apiDefinition = ExecResolveCache.get(ExecResolveCache.API_DEFINITION_BLOBS, this.getId(), apiDefinitionService::getBLOBs);
                 if (apiDefinition != null) {
                     this.setName(apiDefinition.getName());
                     this.setProjectId(apiDefinition.getProjectId());
@@ -806,26 +806,26 @@ public class MsHTTPSamplerProxy extends MsTestElement {
                     ApiDefinitionService apiDefinitionService = CommonBeanFactory.getBean(ApiDefinitionService.class);
                     ApiTestCaseService apiTestCaseService = CommonBeanFactory.getBean(ApiTestCaseService.class);
                     if (StringUtils.isNotEmpty(this.getRefType()) && this.getRefType().equals("CASE")) {
-                        ApiTestCaseWithBLOBs caseWithBLOBs = apiTestCaseService.get(this.getId());
+                        ApiTestCaseWithBLOBs caseWithBLOBs = ExecResolveCache.get(ExecResolveCache.API_CASE, this.getId(), apiTestCaseService::get);
                         if (caseWithBLOBs != null) {
-                            apiDefinition = apiDefinitionService.get(caseWithBLOBs.getApiDefinitionId());
+                            apiDefinition = ExecResolveCache.get(ExecResolveCache.API_DEFINITION, caseWithBLOBs.getApiDefinitionId(), apiDefinitionService::get);
                         }
                     } else {
-                        apiDefinition = apiDefinitionService.get(this.getId());
+                        apiDefinition = ExecResolveCache.get(ExecResolveCache.API_DEFINITION, this.getId(), apiDefinitionService::get);
                         if (apiDefinition == null) {
-                            ApiTestCaseWithBLOBs apiTestCaseWithBLOBs = apiTestCaseService.get(this.getId());
+                            ApiTestCaseWithBLOBs apiTestCaseWithBLOBs = ExecResolveCache.get(ExecResolveCache.API_CASE, this.getId(), apiTestCaseService::get);
                             if (apiTestCaseWithBLOBs == null) {
-                                apiTestCaseWithBLOBs = apiTestCaseService.get(this.getName());
+                                apiTestCaseWithBLOBs = ExecResolveCache.get(ExecResolveCache.API_CASE, this.getName(), apiTestCaseService::get);
                             }
                             if (apiTestCaseWithBLOBs != null) {
-                                apiDefinition = apiDefinitionService.get(apiTestCaseWithBLOBs.getApiDefinitionId());
+                                apiDefinition = ExecResolveCache.get(ExecResolveCache.API_DEFINITION, apiTestCaseWithBLOBs.getApiDefinitionId(), apiDefinitionService::get);
                             } else {
                                 TestPlanApiCaseService testPlanApiCaseService = CommonBeanFactory.getBean(TestPlanApiCaseService.class);
-                                TestPlanApiCase testPlanApiCase = testPlanApiCaseService.getById(this.getId());
+                                TestPlanApiCase testPlanApiCase = ExecResolveCache.get(ExecResolveCache.PLAN_API_CASE, this.getId(), testPlanApiCaseService::getById);
                                 if (testPlanApiCase != null) {
-                                    ApiTestCaseWithBLOBs caseWithBLOBs = apiTestCaseService.get(testPlanApiCase.getApiCaseId());
+                                    ApiTestCaseWithBLOBs caseWithBLOBs = ExecResolveCache.get(ExecResolveCache.API_CASE, testPlanApiCase.getApiCaseId(), apiTestCaseService::get);
                                     if (caseWithBLOBs != null) {
-                                        apiDefinition = apiDefinitionService.get(caseWithBLOBs.getApiDefinitionId());
+                                        apiDefinition = ExecResolveCache.get(ExecResolveCache.API_DEFINITION, caseWithBLOBs.getApiDefinitionId(), apiDefinitionService::get);
                                     }
                                 }
                             }
@@ -16,7 +16,6 @@ import io.metersphere.api.dto.scenario.environment.EnvironmentConfig;
 import io.metersphere.api.dto.scenario.environment.GlobalScriptFilterRequest;
 import io.metersphere.api.service.ApiDefinitionService;
 import io.metersphere.api.service.ApiTestCaseService;
-import io.metersphere.api.service.ApiTestEnvironmentService;
 import io.metersphere.base.domain.ApiDefinitionWithBLOBs;
 import io.metersphere.base.domain.ApiTestCaseWithBLOBs;
 import io.metersphere.base.domain.ApiTestEnvironmentWithBLOBs;
@@ -262,8 +261,7 @@ public class MsJDBCSampler extends MsTestElement {
     }
 
     private EnvironmentConfig initDataSource() {
-        ApiTestEnvironmentService environmentService = CommonBeanFactory.getBean(ApiTestEnvironmentService.class);
-        ApiTestEnvironmentWithBLOBs environment = environmentService.get(environmentId);
+        ApiTestEnvironmentWithBLOBs environment = ElementUtil.getEnvironment(environmentId);
         EnvironmentConfig envConfig = null;
         if (environment != null && environment.getConfig() != null) {
             envConfig = JSONObject.parseObject(environment.getConfig(), EnvironmentConfig.class);
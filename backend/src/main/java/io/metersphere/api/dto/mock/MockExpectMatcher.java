@@ -0,0 +1,383 @@
+package io.metersphere.api.dto.mock;
+
+import com.alibaba.fastjson.JSON;
+import com.alibaba.fastjson.JSONArray;
+import com.alibaba.fastjson.JSONObject;
+import com.alibaba.fastjson.JSONValidator;
+import io.metersphere.api.dto.mockconfig.response.MockConfigResponse;
+import io.metersphere.api.dto.mockconfig.response.MockExpectConfigResponse;
+import io.metersphere.commons.utils.JsonStructUtils;
+import io.metersphere.commons.utils.LogUtil;
+import org.apache.commons.collections.MapUtils;
+import org.apache.commons.lang3.StringUtils;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Mock 期望匹配器
+ * 期望的请求条件在构建时解析一次，匹配时只做比较；匹配规则与原 MockConfigService.findExpectConfig 一致，
+ * 按期望顺序返回第一个命中的期望。
+ * 请求头和查询参数按值精确比较，取出现在最多期望中的一个作为索引键，该键值与请求不同的期望直接跳过；
+ * 请求体按结构包含关系比较（数组不要求顺序），无法按值索引，仍逐个比较
+ */
+public class MockExpectMatcher {
+    private static final String HEADER_PREFIX = "header:";
+    private static final String QUERY_PREFIX = "query:";
+
+    private final MockConfigResponse mockConfig;
+    private final List<CompiledExpect> expects = new ArrayList<>();
+    // 索引键为空时不使用索引
+    private String indexKey;
+    private final Map<String, List<Integer>> indexed = new HashMap<>();
+    private final List<Integer> unindexed = new ArrayList<>();
+
+    public MockExpectMatcher(MockConfigResponse mockConfig) {
+        this.mockConfig = mockConfig;
+        if (mockConfig != null && mockConfig.getMockExpectConfigList() != null) {
+            for (MockExpectConfigResponse model : mockConfig.getMockExpectConfigList()) {
+                // 未启用的期望不参与匹配
+                if (model.isStatus()) {
+                    expects.add(new CompiledExpect(model));
+                }
+            }
+        }
+        buildIndex();
+    }
+
+    private void buildIndex() {
+        Map<String, Integer> counts = new HashMap<>();
+        expects.forEach(expect -> expect.conditions.keySet().forEach(key -> counts.merge(key, 1, Integer::sum)));
+        int max = 1;
+        for (Map.Entry<String, Integer> entry : counts.entrySet()) {
+            if (entry.getValue() > max) {
+                max = entry.getValue();
+                indexKey = entry.getKey();
+            }
+        }
+        if (indexKey == null) {
+            return;
+        }
+        for (int i = 0; i < expects.size(); i++) {
+            String value = expects.get(i).conditions.get(indexKey);
+            if (value == null) {
+                unindexed.add(i);
+            } else {
+                indexed.computeIfAbsent(value, k -> new ArrayList<>()).add(i);
+            }
+        }
+    }
+
+    private String requestValue(Map<String, String> requestHeaderMap, RequestMockParams requestMockParams) {
+        if (indexKey.startsWith(HEADER_PREFIX)) {
+            return requestHeaderMap == null ? null : requestHeaderMap.get(indexKey.substring(HEADER_PREFIX.length()));
+        }
+        String name = indexKey.substring(QUERY_PREFIX.length());
+        JSONObject queryParams = requestMockParams == null ? null : requestMockParams.getQueryParamsObj();
+        // 与 JsonStructUtils.checkJsonObjCompliance 对字符串值的比较方式一致
+        return queryParams == null || !queryParams.containsKey(name) ? null : String.valueOf(queryParams.get(name));
+    }
+
+    public MockConfigResponse getMockConfig() {
+        return mockConfig;
+    }
+
+    public int size() {
+        return expects.size();
+    }
+
+    public MockExpectConfigResponse match(Map<String, String> requestHeaderMap, RequestMockParams requestMockParams) {
+        if (requestMockParams == null || requestMockParams.isEmpty()) {
+            //如果参数为空，则匹配请求为空的期望
+            for (CompiledExpect expect : expects) {
+                if (expect.matchEmptyRequest(requestHeaderMap)) {
+                    return expect.model;
+                }
+            }
+        }
+        if (indexKey == null) {
+            for (CompiledExpect expect : expects) {
+                if (match(expect, requestHeaderMap, requestMockParams)) {
+                    return expect.model;
+                }
+            }
+            return null;
+        }
+        // 按期望顺序合并索引命中的期望和没有索引键的期望
+        List<Integer> candidates = indexed.getOrDefault(requestValue(requestHeaderMap, requestMockParams), Collections.emptyList());
+        int i = 0;
+        int j = 0;
+        while (i < candidates.size() || j < unindexed.size()) {
+            int index;
+            if (j >= unindexed.size() || (i < candidates.size() && candidates.get(i) < unindexed.get(j))) {
+                index = candidates.get(i++);
+            } else {
+                index = unindexed.get(j++);
+            }
+            CompiledExpect expect = expects.get(index);
+            if (match(expect, requestHeaderMap, requestMockParams)) {
+                return expect.model;
+            }
+        }
+        return null;
+    }
+
+    private static boolean match(CompiledExpect expect, Map<String, String> requestHeaderMap, RequestMockParams requestMockParams) {
+        try {
+            return expect.match(requestHeaderMap, requestMockParams);
+        } catch (Exception e) {
+            LogUtil.error(e);
+            return false;
+        }
+    }
+
+    private static class CompiledExpect {
+        private final MockExpectConfigResponse model;
+        private final boolean byParams;
+        // 解析失败的期望与原逻辑一样视为不匹配
+        private boolean invalid;
+
+        // params 格式
+        private final Map<String, String> headers = new LinkedHashMap<>();
+        private JSON body;
+        private JSONObject arguments;
+        private JSONObject rest;
+        // 空请求匹配时使用的请求头（与 MockApiUtils.matchRequestHeader 规则一致）
+        private final Map<String, String> emptyRequestHeaders = new HashMap<>();
+        private boolean hasHeaders;
+        private boolean paramsEmpty;
+        // 按值精确比较的条件，键为 header:名称 或 query:名称
+        private final Map<String, String> conditions = new HashMap<>();
+
+        // 旧格式
+        private JSONObject expectJson;
+        private boolean emptyRequest;
+
+        private CompiledExpect(MockExpectConfigResponse model) {
+            this.model = model;
+            JSONObject requestObj = model.getRequest();
+            this.byParams = requestObj != null && requestObj.containsKey("params");
+            if (requestObj == null) {
+                invalid = true;
+                return;
+            }
+            if (byParams) {
+                compileParams(requestObj.getJSONObject("params"));
+            } else {
+                compileVariables(requestObj);
+            }
+            if (byParams && !invalid) {
+                headers.forEach((name, value) -> {
+                    if (value != null) {
+                        conditions.put(HEADER_PREFIX + name, value);
+                    }
+                });
+                if (arguments != null) {
+                    arguments.forEach((name, value) -> {
+                        if (value instanceof String) {
+                            conditions.put(QUERY_PREFIX + name, (String) value);
+                        }
+                    });
+                }
+            }
+        }
+
+        private void compileParams(JSONObject expectParamsObj) {
+            if (expectParamsObj == null) {
+                invalid = true;
+                return;
+            }
+            try {
+                if (expectParamsObj.containsKey("headers")) {
+                    hasHeaders = true;
+                    JSONArray headerArr = expectParamsObj.getJSONArray("headers");
+                    for (int i = 0; i < headerArr.size(); i++) {
+                        JSONObject jsonObject = headerArr.getJSONObject(i);
+                        if (jsonObject.containsKey("name") && jsonObject.containsKey("value")) {
+                            String headerName = jsonObject.getString("name");
+                            String headerValue = jsonObject.getString("value");
+                            emptyRequestHeaders.put(headerName, headerValue);
+                            if (StringUtils.isNotEmpty(headerName)) {
+                                headers.put(headerName, headerValue);
+                            }
+                        }
+                    }
+                }
+                paramsEmpty = isParamsEmpty(expectParamsObj);
+            } catch (Exception e) {
+                hasHeaders = false;
+            }
+            try {
+                if (expectParamsObj.containsKey("body")) {
+                    body = MockApiUtils.getExpectBodyParams(expectParamsObj.getJSONObject("body"));
+                }
+                if (expectParamsObj.containsKey("arguments")) {
+                    arguments = MockApiUtils.getParamsByJSONArray(expectParamsObj.getJSONArray("arguments"));
+                }
+                if (expectParamsObj.containsKey("rest")) {
+                    rest = MockApiUtils.getParamsByJSONArray(expectParamsObj.getJSONArray("rest"));
+                }
+            } catch (Exception e) {
+                LogUtil.error(e);
+                invalid = true;
+            }
+        }
+
+        private void compileVariables(JSONObject requestObj) {
+            try {
+                boolean isJsonParam = requestObj.getBoolean("jsonParam");
+                JSONObject mockExpectJson = new JSONObject();
+                if (isJsonParam) {
+                    String jsonParams = requestObj.getString("jsonData");
+                    emptyRequest = StringUtils.isEmpty(jsonParams);
+                    JSONValidator jsonValidator = JSONValidator.from(jsonParams);
+                    if (StringUtils.equalsIgnoreCase("Array", jsonValidator.getType().name())) {
+                        JSONArray mockExpectArr = JSONArray.parseArray(jsonParams);
+                        for (int expectIndex = 0; expectIndex < mockExpectArr.size(); expectIndex++) {
+                            mockExpectJson = mockExpectArr.getJSONObject(expectIndex);
+                        }
+                    } else if (StringUtils.equalsIgnoreCase("Object", jsonValidator.getType().name())) {
+                        mockExpectJson = JSONObject.parseObject(jsonParams);
+                    }
+                } else {
+                    JSONArray jsonArray = requestObj.getJSONArray("variables");
+                    for (int i = 0; i < jsonArray.size(); i++) {
+                        JSONObject object = jsonArray.getJSONObject(i);
+                        String name = "";
+                        String value = "";
+                        if (object.containsKey("name")) {
+                            name = String.valueOf(object.get("name")).trim();
+                        }
+                        if (object.containsKey("value")) {
+                            value = String.valueOf(object.get("value")).trim();
+                        }
+                        if (StringUtils.isNotEmpty(name)) {
+                            mockExpectJson.put(name, value);
+                        }
+                    }
+                    emptyRequest = mockExpectJson.isEmpty();
+                }
+                expectJson = mockExpectJson;
+            } catch (Exception e) {
+                LogUtil.error(e);
+                invalid = true;
+            }
+        }
+
+        private boolean matchEmptyRequest(Map<String, String> requestHeaderMap) {
+            if (!byParams) {
+                return emptyRequest;
+            }
+            if (!hasHeaders || !paramsEmpty) {
+                return false;
+            }
+            if (MapUtils.isEmpty(requestHeaderMap)) {
+                return emptyRequestHeaders.isEmpty();
+            }
+            for (Map.Entry<String, String> entry : emptyRequestHeaders.entrySet()) {
+                if (!requestHeaderMap.containsKey(entry.getKey()) || !StringUtils.equals(entry.getValue(), requestHeaderMap.get(entry.getKey()))) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private boolean match(Map<String, String> requestHeaderMap, RequestMockParams requestMockParams) {
+            if (invalid) {
+                return false;
+            }
+            return byParams ? matchParams(requestHeaderMap, requestMockParams) : matchVariables(requestMockParams);
+        }
+
+        private boolean matchParams(Map<String, String> requestHeaderMap, RequestMockParams requestMockParams) {
+            // 先比较代价最小的请求头
+            for (Map.Entry<String, String> entry : headers.entrySet()) {
+                if (requestHeaderMap == null || !requestHeaderMap.containsKey(entry.getKey()) || !StringUtils.equals(requestHeaderMap.get(entry.getKey()), entry.getValue())) {
+                    return false;
+                }
+            }
+            if (arguments != null && !JsonStructUtils.checkJsonObjCompliance(requestMockParams.getQueryParamsObj(), arguments)) {
+                return false;
+            }
+            if (rest != null && !JsonStructUtils.checkJsonObjCompliance(requestMockParams.getRestParamsObj(), rest)) {
+                return false;
+            }
+            if (body instanceof JSONObject) {
+                return JsonStructUtils.checkJsonArrayCompliance(requestMockParams.getBodyParams(), (JSONObject) body);
+            } else if (body instanceof JSONArray) {
+                return JsonStructUtils.checkJsonArrayCompliance(requestMockParams.getBodyParams(), (JSONArray) body);
+            }
+            return true;
+        }
+
+        private boolean matchVariables(RequestMockParams requestMockParams) {
+            if (requestMockParams.getQueryParamsObj() != null && JsonStructUtils.checkJsonObjCompliance(requestMockParams.getQueryParamsObj(), expectJson)) {
+                return true;
+            }
+            if (requestMockParams.getRestParamsObj() != null && JsonStructUtils.checkJsonObjCompliance(requestMockParams.getRestParamsObj(), expectJson)) {
+                return true;
+            }
+            if (requestMockParams.getBodyParams() != null) {
+                for (int i = 0; i < requestMockParams.getBodyParams().size(); i++) {
+                    JSONObject reqJsonObj = requestMockParams.getBodyParams().getJSONObject(i);
+                    if (JsonStructUtils.checkJsonObjCompliance(reqJsonObj, expectJson)) {
+                        return true;
+                    }
+                }
+            }
+            return false;
+        }
+
+        private static boolean isParamsEmpty(JSONObject paramsObj) {
+            //判断rest为空
+            if (hasNameValue(paramsObj, "rest")) {
+                return false;
+            }
+            //判断arguments为空
+            if (hasNameValue(paramsObj, "arguments")) {
+                return false;
+            }
+            //判断请求体为空
+            if (paramsObj.containsKey("body")) {
+                JSONObject bodyObj = paramsObj.getJSONObject("body");
+                if (bodyObj.containsKey("type")) {
+                    String type = bodyObj.getString("type");
+                    if (StringUtils.equalsIgnoreCase(type, "json")) {
+                        if (bodyObj.containsKey("format") && StringUtils.equalsIgnoreCase(bodyObj.getString("format"), "json-schema") && bodyObj.containsKey("jsonSchema") && bodyObj.get("jsonSchema") != null) {
+                            return false;
+                        } else if (bodyObj.containsKey("raw") && StringUtils.isNotEmpty(bodyObj.getString("raw"))) {
+                            return false;
+                        }
+                    } else if (StringUtils.equalsAnyIgnoreCase(type, "KeyValue", "Form Data", "WWW_FORM")) {
+                        if (hasNameValue(bodyObj, "kvs")) {
+                            return false;
+                        }
+                    } else if (StringUtils.equalsAnyIgnoreCase(type, "XML", "Raw")) {
+                        if (StringUtils.isNotEmpty(bodyObj.getString("raw"))) {
+                            return false;
+                        }
+                    }
+                }
+            }
+            return true;
+        }
+
+        private static boolean hasNameValue(JSONObject obj, String key) {
+            if (!obj.containsKey(key)) {
+                return false;
+            }
+            JSONArray array = obj.getJSONArray(key);
+            for (int i = 0; i < array.size(); i++) {
+                JSONObject item = array.getJSONObject(i);
+                if (item.containsKey("name") && item.containsKey("value")) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+}
@@ -0,0 +1,194 @@
+package io.metersphere.api.dto.mock;
+
+import com.alibaba.fastjson.JSONArray;
+import com.alibaba.fastjson.JSONObject;
+import com.alibaba.fastjson.JSONValidator;
+import io.metersphere.api.dto.automation.TcpTreeTableDataStruct;
+import io.metersphere.api.dto.automation.parse.TcpTreeTableDataParser;
+import io.metersphere.base.domain.MockExpectConfigWithBLOBs;
+import io.metersphere.commons.utils.JsonStructUtils;
+import io.metersphere.commons.utils.XMLUtils;
+import org.apache.commons.lang3.StringUtils;
+import org.xml.sax.InputSource;
+
+import javax.xml.parsers.DocumentBuilder;
+import javax.xml.parsers.DocumentBuilderFactory;
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Pattern;
+
+/**
+ * TCP Mock 期望匹配器
+ * 端口下所有开启的期望在构建时解析一次（请求结构、XML 模版、正则），报文只解析一次；
+ * 匹配规则与原 MockConfigService.matchTcpMockExpect 一致：优先返回结构匹配的期望，其次返回 raw 匹配的期望
+ */
+public class TcpMockExpectMatcher {
+    private static final String JSON = "json";
+    private static final String XML = "xml";
+    private static final String RAW = "raw";
+
+    private final List<CompiledExpect> expects = new ArrayList<>();
+
+    public TcpMockExpectMatcher(List<MockExpectConfigWithBLOBs> expectConfigList) {
+        for (MockExpectConfigWithBLOBs expectConfig : expectConfigList) {
+            CompiledExpect expect = CompiledExpect.compile(expectConfig);
+            if (expect != null) {
+                expects.add(expect);
+            }
+        }
+    }
+
+    public int size() {
+        return expects.size();
+    }
+
+    public MockExpectConfigWithBLOBs match(String message) {
+        if (expects.isEmpty()) {
+            return null;
+        }
+        Message msg = new Message(message);
+        MockExpectConfigWithBLOBs rawResult = null;
+        for (CompiledExpect expect : expects) {
+            try {
+                if (StringUtils.equals(expect.reportType, RAW)) {
+                    if (rawResult == null && expect.matchRaw(message)) {
+                        rawResult = expect.expectConfig;
+                    }
+                } else if (expect.matchStruct(msg)) {
+                    //优先返回结构匹配的数据
+                    return expect.expectConfig;
+                }
+            } catch (Exception ignored) {
+            }
+        }
+        return rawResult;
+    }
+
+    private static class CompiledExpect {
+        private MockExpectConfigWithBLOBs expectConfig;
+        private String reportType;
+        private String jsonDataStruct;
+        private JSONObject xmlMatchObj;
+        private String rawDataStruct;
+        // 正则只在第一次需要时编译，非法的正则与原逻辑一样视为不匹配
+        private Pattern rawPattern;
+        private boolean rawPatternInvalid;
+
+        private static CompiledExpect compile(MockExpectConfigWithBLOBs expectConfig) {
+            if (StringUtils.isEmpty(expectConfig.getResponse())) {
+                return null;
+            }
+            try {
+                JSONObject responseObj = JSONObject.parseObject(expectConfig.getResponse());
+                if (!responseObj.containsKey("body")) {
+                    return null;
+                }
+                JSONObject requestJson = JSONObject.parseObject(expectConfig.getRequest());
+                if (!requestJson.containsKey("reportType")) {
+                    return null;
+                }
+                CompiledExpect expect = new CompiledExpect();
+                expect.expectConfig = expectConfig;
+                String reportType = requestJson.getString("reportType");
+                if (StringUtils.equalsIgnoreCase(reportType, JSON) && requestJson.containsKey("jsonDataStruct")) {
+                    expect.reportType = JSON;
+                    expect.jsonDataStruct = requestJson.getString("jsonDataStruct");
+                } else if (StringUtils.equalsIgnoreCase(reportType, XML) && requestJson.containsKey("xmlDataStruct")) {
+                    expect.reportType = XML;
+                    String xmlStr = "";
+                    try {
+                        List<TcpTreeTableDataStruct> tcpDataList = JSONArray.parseArray(requestJson.getString("xmlDataStruct"), TcpTreeTableDataStruct.class);
+                        xmlStr = TcpTreeTableDataParser.treeTableData2Xml(tcpDataList);
+                    } catch (Exception e) {
+                    }
+                    expect.xmlMatchObj = XMLUtils.XmlToJson(xmlStr);
+                } else if (StringUtils.equalsIgnoreCase(reportType, RAW) && requestJson.containsKey("rawDataStruct")) {
+                    expect.reportType = RAW;
+                    expect.rawDataStruct = requestJson.getString("rawDataStruct");
+                } else {
+                    return null;
+                }
+                return expect;
+            } catch (Exception e) {
+                return null;
+            }
+        }
+
+        private boolean matchStruct(Message message) {
+            if (StringUtils.equals(reportType, JSON)) {
+                return message.isJson() && JsonStructUtils.checkJsonCompliance(message.content, jsonDataStruct);
+            }
+            if (StringUtils.equals(reportType, XML)) {
+                return message.isXml() && JsonStructUtils.checkJsonObjCompliance(message.xmlObj(), xmlMatchObj);
+            }
+            return false;
+        }
+
+        private boolean matchRaw(String message) {
+            if (StringUtils.contains(message, rawDataStruct)) {
+                return true;
+            }
+            if (rawPatternInvalid) {
+                return false;
+            }
+            if (rawPattern == null) {
+                try {
+                    rawPattern = Pattern.compile(rawDataStruct);
+                } catch (Exception e) {
+                    rawPatternInvalid = true;
+                    return false;
+                }
+            }
+            return rawPattern.matcher(message).find();
+        }
+    }
+
+    /**
+     * 报文的类型判断和 XML 解析结果只计算一次
+     */
+    private static class Message {
+        private final String content;
+        private Boolean json;
+        private Boolean xml;
+        private JSONObject xmlObj;
+
+        private Message(String content) {
+            this.content = content;
+        }
+
+        private boolean isJson() {
+            if (json == null) {
+                json = false;
+                try {
+                    JSONValidator validator = JSONValidator.from(content);
+                    json = !StringUtils.equalsIgnoreCase("value", validator.getType().name());
+                } catch (Exception e) {
+                }
+            }
+            return json;
+        }
+
+        private boolean isXml() {
+            if (xml == null) {
+                xml = false;
+                try {
+                    DocumentBuilderFactory documentBuilderFactory = DocumentBuilderFactory.newInstance();
+                    DocumentBuilder builder = documentBuilderFactory.newDocumentBuilder();
+                    builder.parse(new InputSource(new ByteArrayInputStream(content.getBytes(StandardCharsets.UTF_8))));
+                    xml = true;
+                } catch (Exception e) {
+                }
+            }
+            return xml;
+        }
+
+        private JSONObject xmlObj() {
+            if (xmlObj == null) {
+                xmlObj = XMLUtils.XmlToJson(content);
+            }
+            return xmlObj;
+        }
+    }
+}
@@ -1,5 +1,6 @@
 package io.metersphere.api.exec.api;
 
+import io.metersphere.api.cache.ExecResolveCache;
 import io.metersphere.api.cache.TestPlanReportExecuteCatch;
 import io.metersphere.api.dto.definition.BatchRunDefinitionRequest;
 import io.metersphere.api.exec.queue.DBTestQueue;
@@ -116,6 +117,8 @@ public class TestPlanApiExecuteService {
                 try {
                     Thread.sleep(5000);
                     Thread.currentThread().setName("测试计划入列线程");
+                    // 同一批用例共用环境、接口定义的查询结果
+                    ExecResolveCache.open();
                     for (TestPlanApiCase testPlanApiCase : executeQueue.keySet()) {
                         ApiDefinitionExecResult result = executeQueue.get(testPlanApiCase);
                         String reportId = result.getId();
@@ -138,6 +141,8 @@ public class TestPlanApiExecuteService {
                     }
                 } catch (Exception e) {
                     LoggerUtil.error("并发执行测试计划用例失败：" + e.getMessage());
+                } finally {
+                    ExecResolveCache.close();
                 }
             }
         });
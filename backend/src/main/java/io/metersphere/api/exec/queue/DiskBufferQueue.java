@@ -0,0 +1,354 @@
+package io.metersphere.api.exec.queue;
+
+import com.alibaba.fastjson.JSON;
+import io.metersphere.dto.JmeterRunRequestDTO;
+import io.metersphere.utils.LoggerUtil;
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.lang3.StringUtils;
+import org.apache.jmeter.save.SaveService;
+import org.apache.jorphan.collections.HashTree;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Predicate;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * 执行任务缓冲队列
+ * 前 MEMORY_LIMIT 个任务保存在内存中，超出部分压缩后追加写入磁盘分段文件，只在内存中保留索引
+ */
+public class DiskBufferQueue {
+    private final static String QUEUE_PATH = "/opt/metersphere/data/queue/";
+    // 内存中最多保留的完整任务数量
+    private final static int MEMORY_LIMIT = 500;
+    // 单个分段文件大小上限
+    private final static long SEGMENT_SIZE = 64 * 1024 * 1024;
+
+    private final File directory;
+    private final LinkedList<Entry> entries = new LinkedList<>();
+    private final Map<Long, Segment> segments = new HashMap<>();
+    private Segment writeSegment;
+    private long segmentSeq;
+    private int memoryCount;
+    // 读取失败的磁盘任务，由调度线程在锁外把报告置为失败
+    private final List<JmeterRunRequestDTO> corrupted = new ArrayList<>();
+
+    private final AtomicLong bufferedCount = new AtomicLong();
+    private final AtomicLong spilledCount = new AtomicLong();
+    private final AtomicLong drainedCount = new AtomicLong();
+
+    public DiskBufferQueue() {
+        this(QUEUE_PATH);
+    }
+
+    public DiskBufferQueue(String path) {
+        this.directory = new File(path);
+        try {
+            // 缓冲区只对当前进程有效，重启后清理上次遗留的分段文件
+            if (directory.exists()) {
+                FileUtils.cleanDirectory(directory);
+            } else {
+                directory.mkdirs();
+            }
+        } catch (Exception e) {
+            LoggerUtil.error("初始化缓冲区目录失败：" + e.getMessage());
+        }
+    }
+
+    public synchronized void offer(JmeterRunRequestDTO request) {
+        Entry entry = new Entry(request);
+        if (memoryCount < MEMORY_LIMIT) {
+            entry.request = request;
+            memoryCount++;
+        } else {
+            try {
+                spill(entry, request);
+                spilledCount.incrementAndGet();
+            } catch (Exception e) {
+                LoggerUtil.error("缓冲区任务写入磁盘失败，保留在内存中：" + e.getMessage());
+                entry.request = request;
+                memoryCount++;
+            }
+        }
+        entries.add(entry);
+        bufferedCount.incrementAndGet();
+    }
+
+    public synchronized JmeterRunRequestDTO poll() {
+        return poll(entry -> true);
+    }
+
+    /**
+     * 队首任务满足条件时取出，否则返回 null，不跳过队首任务
+     */
+    public synchronized JmeterRunRequestDTO poll(Predicate<Entry> condition) {
+        while (!entries.isEmpty() && condition.test(entries.peek())) {
+            Entry entry = entries.poll();
+            JmeterRunRequestDTO request = release(entry, true);
+            if (request != null) {
+                drainedCount.incrementAndGet();
+                return request;
+            }
+        }
+        return null;
+    }
+
+    public synchronized int removeIf(Predicate<Entry> predicate) {
+        int count = 0;
+        Iterator<Entry> iterator = entries.iterator();
+        while (iterator.hasNext()) {
+            Entry entry = iterator.next();
+            if (predicate.test(entry)) {
+                iterator.remove();
+                release(entry, false);
+                count++;
+            }
+        }
+        return count;
+    }
+
+    public synchronized boolean anyMatch(Predicate<Entry> predicate) {
+        return entries.stream().anyMatch(predicate);
+    }
+
+    public synchronized List<Entry> getEntries() {
+        return new ArrayList<>(entries);
+    }
+
+    public synchronized void clear() {
+        entries.clear();
+        memoryCount = 0;
+        segments.values().forEach(Segment::delete);
+        segments.clear();
+        writeSegment = null;
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    public synchronized boolean isEmpty() {
+        return entries.isEmpty();
+    }
+
+    /**
+     * 取出读取失败的任务，只包含报告相关的字段，没有 HashTree
+     */
+    public synchronized List<JmeterRunRequestDTO> takeCorrupted() {
+        List<JmeterRunRequestDTO> result = new ArrayList<>(corrupted);
+        corrupted.clear();
+        return result;
+    }
+
+    public synchronized int getMemoryCount() {
+        return memoryCount;
+    }
+
+    public long getBufferedCount() {
+        return bufferedCount.get();
+    }
+
+    public long getSpilledCount() {
+        return spilledCount.get();
+    }
+
+    public long getDrainedCount() {
+        return drainedCount.get();
+    }
+
+    private void spill(Entry entry, JmeterRunRequestDTO request) throws IOException {
+        byte[] data = serialize(request);
+        if (writeSegment == null || writeSegment.length >= SEGMENT_SIZE) {
+            writeSegment = new Segment(segmentSeq++, directory);
+            segments.put(writeSegment.id, writeSegment);
+        }
+        entry.segment = writeSegment.id;
+        entry.offset = writeSegment.append(data);
+        entry.length = data.length;
+        writeSegment.liveCount++;
+    }
+
+    private JmeterRunRequestDTO release(Entry entry, boolean load) {
+        if (entry.request != null) {
+            memoryCount--;
+            JmeterRunRequestDTO request = entry.request;
+            entry.request = null;
+            return request;
+        }
+        Segment segment = segments.get(entry.segment);
+        if (segment == null) {
+            return null;
+        }
+        JmeterRunRequestDTO request = null;
+        if (load) {
+            try {
+                request = deserialize(segment.read(entry.offset, entry.length));
+            } catch (Exception e) {
+                // 记录已从队列中移除，这里只记下报告信息，不再重试
+                LoggerUtil.error("读取缓冲区任务失败，报告ID：" + entry.reportId + " " + e.getMessage());
+                corrupted.add(entry.toRequest());
+            }
+        }
+        segment.liveCount--;
+        if (segment.liveCount <= 0 && segment != writeSegment) {
+            segment.delete();
+            segments.remove(segment.id);
+        } else if (segment.liveCount <= 0) {
+            // 当前写入段已全部消费，直接复用
+            segment.reset();
+        }
+        return request;
+    }
+
+    /**
+     * 记录格式：gzip( [meta长度][meta json][jmx] )，HashTree 通过 SaveService 转换为 jmx 保存
+     */
+    private static byte[] serialize(JmeterRunRequestDTO request) throws IOException {
+        HashTree hashTree = request.getHashTree();
+        byte[] meta;
+        // 序列化时临时去掉 HashTree，写入失败时请求仍保留在内存中执行，必须还原
+        request.setHashTree(null);
+        try {
+            meta = JSON.toJSONString(request).getBytes(StandardCharsets.UTF_8);
+        } finally {
+            request.setHashTree(hashTree);
+        }
+        ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(new GZIPOutputStream(bos))) {
+            out.writeInt(meta.length);
+            out.write(meta);
+            if (hashTree != null) {
+                SaveService.saveTree(hashTree, out);
+            }
+        }
+        return bos.toByteArray();
+    }
+
+    private static JmeterRunRequestDTO deserialize(byte[] data) throws IOException {
+        try (DataInputStream in = new DataInputStream(new GZIPInputStream(new ByteArrayInputStream(data)))) {
+            byte[] meta = new byte[in.readInt()];
+            in.readFully(meta);
+            JmeterRunRequestDTO request = JSON.parseObject(new String(meta, StandardCharsets.UTF_8), JmeterRunRequestDTO.class);
+            byte[] jmx = IOUtils.toByteArray(in);
+            if (jmx.length > 0) {
+                request.setHashTree(SaveService.loadTree(new ByteArrayInputStream(jmx)));
+            }
+            return request;
+        }
+    }
+
+    public static class Entry {
+        private final String reportId;
+        private final String testId;
+        private final String testPlanReportId;
+        private final boolean local;
+        private final String runMode;
+        private final String reportType;
+        private final String queueId;
+        private JmeterRunRequestDTO request;
+        private long segment;
+        private long offset;
+        private int length;
+
+        private Entry(JmeterRunRequestDTO request) {
+            this.reportId = request.getReportId();
+            this.testId = request.getTestId();
+            this.testPlanReportId = request.getTestPlanReportId();
+            this.local = ExecTask.isLocal(request);
+            this.runMode = request.getRunMode();
+            this.reportType = request.getReportType();
+            this.queueId = request.getQueueId();
+        }
+
+        private JmeterRunRequestDTO toRequest() {
+            JmeterRunRequestDTO request = new JmeterRunRequestDTO();
+            request.setReportId(reportId);
+            request.setTestId(testId);
+            request.setTestPlanReportId(testPlanReportId);
+            request.setRunMode(runMode);
+            request.setReportType(reportType);
+            request.setQueueId(queueId);
+            return request;
+        }
+
+        public String getReportId() {
+            return reportId;
+        }
+
+        public String getTestId() {
+            return testId;
+        }
+
+        public String getTestPlanReportId() {
+            return testPlanReportId;
+        }
+
+        public boolean isLocal() {
+            return local;
+        }
+
+        public boolean isSpilled() {
+            return request == null;
+        }
+
+        public boolean matchReport(String reportId) {
+            return StringUtils.equals(this.reportId, reportId);
+        }
+
+        public boolean matchPlanReport(String planReportId) {
+            return StringUtils.equals(this.testPlanReportId, planReportId);
+        }
+    }
+
+    private static class Segment {
+        private final long id;
+        private final File file;
+        private final RandomAccessFile raf;
+        private long length;
+        private int liveCount;
+
+        private Segment(long id, File directory) throws IOException {
+            this.id = id;
+            this.file = new File(directory, "buffer-" + id + ".log");
+            this.raf = new RandomAccessFile(file, "rw");
+            this.raf.setLength(0);
+        }
+
+        private long append(byte[] data) throws IOException {
+            long offset = length;
+            raf.seek(offset);
+            raf.write(data);
+            length += data.length;
+            return offset;
+        }
+
+        private byte[] read(long offset, int size) throws IOException {
+            byte[] data = new byte[size];
+            raf.seek(offset);
+            raf.readFully(data);
+            return data;
+        }
+
+        private void reset() {
+            try {
+                raf.setLength(0);
+                length = 0;
+            } catch (IOException e) {
+                LoggerUtil.error("重置缓冲区文件失败：" + e.getMessage());
+            }
+        }
+
+        private void delete() {
+            try {
+                raf.close();
+            } catch (IOException e) {
+                LoggerUtil.error("关闭缓冲区文件失败：" + e.getMessage());
+            }
+            FileUtils.deleteQuietly(file);
+        }
+    }
+}
@@ -0,0 +1,58 @@
+package io.metersphere.api.exec.queue;
+
+import java.util.concurrent.Semaphore;
+
+/**
+ * 本地执行并发控制，许可数量可随系统参数调整
+ */
+public class ExecConcurrencyLimiter {
+    private final ResizableSemaphore semaphore;
+    private int limit;
+
+    public ExecConcurrencyLimiter(int limit) {
+        this.limit = limit;
+        this.semaphore = new ResizableSemaphore(limit);
+    }
+
+    /**
+     * 不等待，没有许可时返回 false
+     */
+    public boolean tryAcquire() {
+        return semaphore.tryAcquire();
+    }
+
+    public void release() {
+        semaphore.release();
+    }
+
+    public synchronized void setLimit(int newLimit) {
+        if (newLimit <= 0 || newLimit == limit) {
+            return;
+        }
+        if (newLimit > limit) {
+            semaphore.release(newLimit - limit);
+        } else {
+            semaphore.reducePermits(limit - newLimit);
+        }
+        limit = newLimit;
+    }
+
+    public synchronized int getLimit() {
+        return limit;
+    }
+
+    public int getAvailable() {
+        return semaphore.availablePermits();
+    }
+
+    private static class ResizableSemaphore extends Semaphore {
+        private ResizableSemaphore(int permits) {
+            super(permits, true);
+        }
+
+        @Override
+        protected void reducePermits(int reduction) {
+            super.reducePermits(reduction);
+        }
+    }
+}
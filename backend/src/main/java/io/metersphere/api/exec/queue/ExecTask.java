@@ -8,26 +8,56 @@ import io.metersphere.utils.LoggerUtil;
 
 public class ExecTask implements Runnable {
     private JmeterRunRequestDTO request;
+    // 本地执行的任务进入线程池前已占用的并发许可，执行结束后释放
+    private boolean permitted;
 
     public ExecTask(JmeterRunRequestDTO request) {
         this.request = request;
     }
 
+    public ExecTask(JmeterRunRequestDTO request, boolean permitted) {
+        this.request = request;
+        this.permitted = permitted;
+    }
+
     public JmeterRunRequestDTO getRequest() {
         return this.request;
     }
 
+    public boolean isPermitted() {
+        return permitted;
+    }
+
+    static boolean isLocal(JmeterRunRequestDTO request) {
+        return request.getPool() == null || !request.getPool().isPool();
+    }
+
     @Override
     public void run() {
         LoggerUtil.info("开始执行报告ID：【 " + request.getReportId() + " 】,资源ID【 " + request.getTestId() + " 】");
         JMeterService jMeterService = CommonBeanFactory.getBean(JMeterService.class);
-        jMeterService.addQueue(request);
-        if (request.getPool() == null || !request.getPool().isPool()) {
-            Object res = PoolExecBlockingQueueUtil.take(request.getReportId());
-            if (res == null && !JmeterThreadUtils.isRunning(request.getReportId(), request.getTestId())) {
+        if (!isLocal(request)) {
+            jMeterService.addQueue(request);
+            LoggerUtil.info("任务：【 " + request.getReportId() + " 】执行完成");
+            return;
+        }
+        // 本地执行：许可在进入线程池前已占用，执行结束（或超时）后由回调释放，不阻塞当前线程等待结果
+        ExecThreadPoolExecutor executor = CommonBeanFactory.getBean(ExecThreadPoolExecutor.class);
+        PoolExecBlockingQueueUtil.register(request.getReportId()).whenComplete((res, e) -> {
+            if (permitted) {
+                executor.releaseLocal();
+            }
+            if (e != null && !JmeterThreadUtils.isRunning(request.getReportId(), request.getTestId())) {
                 LoggerUtil.info("执行报告：【 " + request.getReportId() + " 】,资源ID【 " + request.getTestId() + " 】执行超时");
             }
+            LoggerUtil.info("任务：【 " + request.getReportId() + " 】执行完成");
+        });
+        try {
+            jMeterService.addQueue(request);
+        } catch (Exception e) {
+            // 回调中释放许可
+            PoolExecBlockingQueueUtil.offer(request.getReportId());
+            throw e;
         }
-        LoggerUtil.info("任务：【 " + request.getReportId() + " 】执行完成");
     }
 }
@@ -2,13 +2,20 @@ package io.metersphere.api.exec.queue;
 
 import io.metersphere.api.exec.utils.NamedThreadFactory;
 import io.metersphere.api.jmeter.MessageCache;
+import io.metersphere.api.service.RemakeReportService;
+import io.metersphere.commons.utils.CommonBeanFactory;
 import io.metersphere.dto.JmeterRunRequestDTO;
 import io.metersphere.utils.LoggerUtil;
-import org.apache.commons.collections.CollectionUtils;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
 import org.apache.commons.lang.StringUtils;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
-import java.util.Queue;
+import javax.annotation.PostConstruct;
+import javax.annotation.Resource;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.concurrent.*;
 
 @Service
@@ -22,7 +29,20 @@ public class ExecThreadPoolExecutor {
     // 线程池所使用的缓冲队列大小
     private final static int WORK_QUEUE_SIZE = 10000;
 
+    // 缓冲区调度间隔（秒）
+    private final static int BUFFER_SCHEDULE_PERIOD = 1;
+
+    @Resource
+    private MeterRegistry meterRegistry;
+    // 本地同时执行的任务数，与执行线程数无关；小于等于 0 时按 CPU 核数的两倍
+    @Value("${exec.local.concurrency:0}")
+    private int localConcurrency;
+
     private MsRejectedExecutionHandler msRejectedExecutionHandler = new MsRejectedExecutionHandler();
+    /**
+     * 本地执行并发控制，执行线程提交任务后即返回，由执行结束回调释放许可
+     */
+    private final ExecConcurrencyLimiter limiter = new ExecConcurrencyLimiter(CORE_POOL_SIZE);
     /**
      * 创建线程池
      */
@@ -41,29 +61,83 @@ public class ExecThreadPoolExecutor {
 
     public void addTask(JmeterRunRequestDTO requestDTO) {
         outApiThreadPoolExecutorLogger();
-        ExecTask task = new ExecTask(requestDTO);
-        threadPool.execute(task);
+        synchronized (this) {
+            if (!ExecTask.isLocal(requestDTO)) {
+                threadPool.execute(new ExecTask(requestDTO));
+                return;
+            }
+            // 本地执行先占用许可再进入线程池；没有许可或缓冲区中还有等待的任务时进入缓冲区，保持提交顺序
+            DiskBufferQueue bufferQueue = msRejectedExecutionHandler.getBufferQueue();
+            if (bufferQueue.isEmpty() && threadPool.getQueue().remainingCapacity() > 0 && limiter.tryAcquire()) {
+                threadPool.execute(new ExecTask(requestDTO, true));
+            } else {
+                bufferQueue.offer(requestDTO);
+            }
+        }
     }
 
     /**
      * 调度线程池，检查缓冲区
      */
-    final ScheduledFuture scheduledFuture = scheduler.scheduleAtFixedRate(new Runnable() {
-        @Override
-        public void run() {
-            //判断缓冲队列是否存在记录
-            if (CollectionUtils.isNotEmpty(msRejectedExecutionHandler.getBufferQueue())) {
-                //当线程池的队列容量少于WORK_QUEUE_SIZE，则开始把缓冲队列的任务 加入到 线程池
-                if (threadPool.getQueue().size() < WORK_QUEUE_SIZE) {
-                    JmeterRunRequestDTO requestDTO = msRejectedExecutionHandler.getBufferQueue().poll();
-                    ExecTask task = new ExecTask(requestDTO);
-                    threadPool.submit(task);
-                    LoggerUtil.info("把缓冲区任务重新添加到线程池，报告ID：" + requestDTO.getReportId());
-                }
+    final ScheduledFuture scheduledFuture = scheduler.scheduleAtFixedRate(this::drain, 0, BUFFER_SCHEDULE_PERIOD, TimeUnit.SECONDS);
+
+    private void drain() {
+        try {
+            drainBufferQueue();
+        } catch (Exception e) {
+            LoggerUtil.error("缓冲区任务调度异常：" + e.getMessage());
+        }
+        // 磁盘中读取失败的任务无法执行，报告置为失败，避免一直处于执行中
+        msRejectedExecutionHandler.getBufferQueue().takeCorrupted().forEach(request -> {
+            try {
+                CommonBeanFactory.getBean(RemakeReportService.class).remake(request);
+            } catch (Exception e) {
+                LoggerUtil.error("缓冲区任务报告置为失败异常：" + request.getReportId() + " " + e.getMessage());
             }
+        });
+    }
+
+    /**
+     * 按线程池等待队列的剩余容量，把缓冲区任务按顺序放回线程池；
+     * 本地执行的任务只在有空闲许可时放回，队首任务等待许可时后面的任务也继续等待
+     */
+    private synchronized void drainBufferQueue() {
+        DiskBufferQueue bufferQueue = msRejectedExecutionHandler.getBufferQueue();
+        int capacity = threadPool.getQueue().remainingCapacity();
+        int count = 0;
+        while (count < capacity) {
+            JmeterRunRequestDTO requestDTO = bufferQueue.poll(entry -> !entry.isLocal() || limiter.getAvailable() > 0);
+            if (requestDTO == null) {
+                break;
+            }
+            // 许可只在持有本对象锁时占用，上面检查过有空闲许可
+            threadPool.execute(ExecTask.isLocal(requestDTO) ? new ExecTask(requestDTO, limiter.tryAcquire()) : new ExecTask(requestDTO));
+            count++;
         }
-    }, 0, 2, TimeUnit.SECONDS);
+        if (count > 0) {
+            LoggerUtil.info("把缓冲区任务重新添加到线程池，数量：" + count + "，缓冲区剩余：" + bufferQueue.size());
+        }
+    }
 
+    @PostConstruct
+    private void registerMetrics() {
+        limiter.setLimit(localConcurrency > 0 ? localConcurrency : Runtime.getRuntime().availableProcessors() * 2);
+        DiskBufferQueue bufferQueue = msRejectedExecutionHandler.getBufferQueue();
+        Gauge.builder("ms.exec.buffer.size", bufferQueue, DiskBufferQueue::size)
+                .description("缓冲区当前任务数").register(meterRegistry);
+        Gauge.builder("ms.exec.buffer.memory", bufferQueue, DiskBufferQueue::getMemoryCount)
+                .description("缓冲区内存中任务数").register(meterRegistry);
+        Gauge.builder("ms.exec.buffer.buffered", bufferQueue, DiskBufferQueue::getBufferedCount)
+                .description("累计进入缓冲区任务数").register(meterRegistry);
+        Gauge.builder("ms.exec.buffer.spilled", bufferQueue, DiskBufferQueue::getSpilledCount)
+                .description("累计写入磁盘任务数").register(meterRegistry);
+        Gauge.builder("ms.exec.buffer.drained", bufferQueue, DiskBufferQueue::getDrainedCount)
+                .description("累计放回线程池任务数").register(meterRegistry);
+        Gauge.builder("ms.exec.pool.queue", threadPool, pool -> pool.getQueue().size())
+                .description("线程池等待队列任务数").register(meterRegistry);
+        Gauge.builder("ms.exec.local.running", limiter, item -> item.getLimit() - item.getAvailable())
+                .description("本地执行中任务数").register(meterRegistry);
+    }
 
     /**
      * 终止线程池和调度线程池
@@ -87,11 +161,13 @@ public class ExecThreadPoolExecutor {
         StringBuffer buffer = new StringBuffer("API 并发队列详情：\n");
         buffer.append(" 核心线程数：" + threadPool.getCorePoolSize()).append("\n");
         buffer.append(" 活动线程数：" + threadPool.getActiveCount()).append("\n");
+        buffer.append(" 本地执行中任务数：" + (limiter.getLimit() - limiter.getAvailable())).append("\n");
         buffer.append(" 最大线程数：" + threadPool.getMaximumPoolSize()).append("\n");
         buffer.append(" 线程池活跃度：" + divide(threadPool.getActiveCount(), threadPool.getMaximumPoolSize())).append("\n");
         buffer.append(" 任务完成数：" + threadPool.getCompletedTaskCount()).append("\n");
         buffer.append(" 队列大小：" + (queue.size() + queue.remainingCapacity())).append("\n");
         buffer.append(" 当前排队线程数：" + (msRejectedExecutionHandler.getBufferQueue().size() + queue.size())).append("\n");
+        buffer.append(" 缓冲区磁盘任务数：" + (msRejectedExecutionHandler.getBufferQueue().size() - msRejectedExecutionHandler.getBufferQueue().getMemoryCount())).append("\n");
         buffer.append(" 队列剩余大小：" + queue.remainingCapacity()).append("\n");
         buffer.append(" 队列使用度：" + divide(queue.size(), queue.size() + queue.remainingCapacity()));
 
@@ -114,22 +190,26 @@ public class ExecThreadPoolExecutor {
         }
     }
 
+    /**
+     * 释放本地执行许可，在调度线程中把等待许可的缓冲区任务放回线程池
+     */
+    public void releaseLocal() {
+        limiter.release();
+        if (!scheduler.isShutdown()) {
+            scheduler.execute(this::drain);
+        }
+    }
+
     public void removeQueue(String reportId) {
         // 检查缓冲区
-        Queue<JmeterRunRequestDTO> bufferQueue = msRejectedExecutionHandler.getBufferQueue();
-        if (CollectionUtils.isNotEmpty(bufferQueue)) {
-            bufferQueue.forEach(item -> {
-                if (item != null && StringUtils.equals(item.getReportId(), reportId)) {
-                    bufferQueue.remove(item);
-                }
-            });
-        }
+        msRejectedExecutionHandler.getBufferQueue().removeIf(item -> item.matchReport(reportId));
         // 检查等待队列
         BlockingQueue workerQueue = threadPool.getQueue();
         workerQueue.forEach(item -> {
             ExecTask task = (ExecTask) item;
-            if (task.getRequest() != null && StringUtils.equals(task.getRequest().getReportId(), reportId)) {
-                workerQueue.remove(item);
+            if (task.getRequest() != null && StringUtils.equals(task.getRequest().getReportId(), reportId)
+                    && workerQueue.remove(item) && task.isPermitted()) {
+                releaseLocal();
             }
         });
     }
@@ -137,15 +217,20 @@ public class ExecThreadPoolExecutor {
     public void removeAllQueue() {
         // 检查缓冲区
         msRejectedExecutionHandler.getBufferQueue().clear();
-        // 检查等待队列
-        threadPool.getQueue().clear();
+        // 检查等待队列，已占用许可的任务归还许可
+        List<Runnable> tasks = new ArrayList<>();
+        threadPool.getQueue().drainTo(tasks);
+        tasks.forEach(item -> {
+            if (((ExecTask) item).isPermitted()) {
+                limiter.release();
+            }
+        });
     }
 
     public boolean check(String reportId) {
         // 检查缓冲区
-        Queue<JmeterRunRequestDTO> bufferQueue = msRejectedExecutionHandler.getBufferQueue();
-        if (CollectionUtils.isNotEmpty(bufferQueue)) {
-            return bufferQueue.stream().filter(task -> StringUtils.equals(task.getReportId(), reportId)).count() > 0;
+        if (msRejectedExecutionHandler.getBufferQueue().anyMatch(item -> item.matchReport(reportId))) {
+            return true;
         }
         // 检查等待队列
         BlockingQueue workerQueue = threadPool.getQueue();
@@ -154,9 +239,8 @@ public class ExecThreadPoolExecutor {
 
     public boolean checkPlanReport(String planReportId) {
         // 检查缓冲区
-        Queue<JmeterRunRequestDTO> bufferQueue = msRejectedExecutionHandler.getBufferQueue();
-        if (CollectionUtils.isNotEmpty(bufferQueue)) {
-            return bufferQueue.stream().filter(task -> StringUtils.equals(task.getTestPlanReportId(), planReportId)).count() > 0;
+        if (msRejectedExecutionHandler.getBufferQueue().anyMatch(item -> item.matchPlanReport(planReportId))) {
+            return true;
         }
         // 检查等待队列
         BlockingQueue workerQueue = threadPool.getQueue();
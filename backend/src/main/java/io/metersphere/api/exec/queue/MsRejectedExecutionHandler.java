@@ -1,21 +1,18 @@
 package io.metersphere.api.exec.queue;
 
-import io.metersphere.dto.JmeterRunRequestDTO;
 import io.metersphere.utils.LoggerUtil;
 
-import java.util.Queue;
-import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.RejectedExecutionHandler;
 import java.util.concurrent.ThreadPoolExecutor;
 
 public class MsRejectedExecutionHandler implements RejectedExecutionHandler {
     /**
      * 执行任务缓冲队列,当线程池满了，则将任务存入到此缓冲队列
-     * 这里是否搞个redis/写到磁盘？
+     * 超出内存上限的任务会压缩后写入磁盘
      */
-    private Queue<JmeterRunRequestDTO> bufferQueue = new LinkedBlockingQueue<>();
+    private DiskBufferQueue bufferQueue = new DiskBufferQueue();
 
-    public Queue<JmeterRunRequestDTO> getBufferQueue() {
+    public DiskBufferQueue getBufferQueue() {
         return bufferQueue;
     }
 
@@ -1,50 +1,54 @@
 package io.metersphere.api.exec.queue;
 
-import io.metersphere.commons.utils.LogUtil;
+import io.metersphere.api.exec.utils.NamedThreadFactory;
 import org.apache.commons.lang3.StringUtils;
 
 import java.util.Map;
-import java.util.concurrent.ArrayBlockingQueue;
-import java.util.concurrent.BlockingQueue;
-import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.TimeUnit;
+import java.util.concurrent.*;
 
 public class PoolExecBlockingQueueUtil {
-    // 系统级队列控制整体并发数量
-    public static Map<String, BlockingQueue<Object>> queue = new ConcurrentHashMap<>();
+    // 执行中报告的完成通知，执行结束或超时时完成
+    public static Map<String, CompletableFuture<Object>> queue = new ConcurrentHashMap<>();
 
     private static final String END_SIGN = "RUN-END";
-    private static final int QUEUE_SIZE = 1;
+    private static final int TIMEOUT_MINUTES = 10;
+
+    // 所有报告共用一个超时调度线程
+    private static final ScheduledThreadPoolExecutor TIMER = new ScheduledThreadPoolExecutor(1, new NamedThreadFactory("MS-EXEC-TIMEOUT"));
+
+    static {
+        TIMER.setRemoveOnCancelPolicy(true);
+    }
 
     public static void offer(String key) {
-        if (StringUtils.isNotEmpty(key) && queue.containsKey(key)) {
-            try {
-                queue.get(key).offer(END_SIGN);
-            } catch (Exception e) {
-                LogUtil.error(e);
-            } finally {
-                queue.remove(key);
+        if (StringUtils.isNotEmpty(key)) {
+            CompletableFuture<Object> future = queue.remove(key);
+            if (future != null) {
+                future.complete(END_SIGN);
             }
         }
     }
 
-    public static Object take(String key) {
-        try {
-            if (StringUtils.isNotEmpty(key) && !queue.containsKey(key)) {
-                BlockingQueue<Object> blockingQueue = new ArrayBlockingQueue<>(QUEUE_SIZE);
-                queue.put(key, blockingQueue);
-                return blockingQueue.poll(10, TimeUnit.MINUTES);
-            }
-        } catch (Exception e) {
-            LogUtil.error("初始化队列失败：" + e.getMessage());
+    /**
+     * 注册报告的完成通知，超过 TIMEOUT_MINUTES 未收到结束信号则以 TimeoutException 完成
+     */
+    public static CompletableFuture<Object> register(String key) {
+        if (StringUtils.isEmpty(key)) {
+            return CompletableFuture.completedFuture(null);
         }
-        return null;
+        return queue.computeIfAbsent(key, k -> {
+            CompletableFuture<Object> future = new CompletableFuture<>();
+            ScheduledFuture<?> timeout = TIMER.schedule(() -> {
+                if (queue.remove(k, future)) {
+                    future.completeExceptionally(new TimeoutException(k));
+                }
+            }, TIMEOUT_MINUTES, TimeUnit.MINUTES);
+            future.whenComplete((res, e) -> timeout.cancel(false));
+            return future;
+        });
     }
 
     public static void remove(String key) {
-        if (StringUtils.isNotEmpty(key) && queue.containsKey(key)) {
-            queue.get(key).offer(END_SIGN);
-            queue.remove(key);
-        }
+        offer(key);
     }
 }
@@ -1,6 +1,7 @@
 package io.metersphere.api.exec.scenario;
 
 import com.alibaba.fastjson.JSON;
+import io.metersphere.api.cache.ExecResolveCache;
 import io.metersphere.api.cache.TestPlanReportExecuteCatch;
 import io.metersphere.api.dto.EnvironmentType;
 import io.metersphere.api.dto.RunModeDataDTO;
@@ -125,12 +126,18 @@ public class ApiScenarioExecuteService {
         StringBuilder scenarioNames = new StringBuilder();
 
         LoggerUtil.info("Scenario run-执行脚本装载-初始化执行队列");
-        if (StringUtils.equalsAny(request.getRunMode(), ApiRunMode.SCENARIO_PLAN.name(), ApiRunMode.SCHEDULE_SCENARIO_PLAN.name(), ApiRunMode.JENKINS_SCENARIO_PLAN.name())) {
-            //测试计划执行
-            assemblyPlanScenario(apiScenarios, request, executeQueue, scenarioIds, scenarioNames);
-        } else {
-            // 按照场景执行
-            assemblyScenario(apiScenarios, request, executeQueue, scenarioIds, scenarioNames, serialReportId);
+        // 批量生成脚本时共用环境、接口定义的查询结果
+        ExecResolveCache.open();
+        try {
+            if (StringUtils.equalsAny(request.getRunMode(), ApiRunMode.SCENARIO_PLAN.name(), ApiRunMode.SCHEDULE_SCENARIO_PLAN.name(), ApiRunMode.JENKINS_SCENARIO_PLAN.name())) {
+                //测试计划执行
+                assemblyPlanScenario(apiScenarios, request, executeQueue, scenarioIds, scenarioNames);
+            } else {
+                // 按照场景执行
+                assemblyScenario(apiScenarios, request, executeQueue, scenarioIds, scenarioNames, serialReportId);
+            }
+        } finally {
+            ExecResolveCache.close();
         }
         LoggerUtil.info("Scenario run-执行脚本装载-初始化执行队列完成：" + executeQueue.size());
 
@@ -0,0 +1,25 @@
+package io.metersphere.api.exec.schedule;
+
+import io.metersphere.api.service.ApiScenarioReportResultService;
+import io.metersphere.utils.LoggerUtil;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.Resource;
+
+@Component
+public class ReportContentCompressScheduled {
+    @Resource
+    private ApiScenarioReportResultService apiScenarioReportResultService;
+
+    /**
+     * 定时压缩历史场景报告结果，默认关闭，通过 report.content.recompress-cron 开启
+     */
+    @Scheduled(cron = "${report.content.recompress-cron:-}")
+    public void recompress() {
+        long start = System.currentTimeMillis();
+        LoggerUtil.info("开始压缩历史场景报告结果");
+        long count = apiScenarioReportResultService.recompress();
+        LoggerUtil.info("历史场景报告结果压缩完成，数量：" + count + "，耗时：" + (System.currentTimeMillis() - start) + "ms");
+    }
+}
@@ -1,11 +1,7 @@
 package io.metersphere.api.exec.utils;
 
-import com.alibaba.fastjson.JSON;
 import com.alibaba.fastjson.JSONObject;
-import com.fasterxml.jackson.core.JsonProcessingException;
-import com.fasterxml.jackson.core.type.TypeReference;
-import com.fasterxml.jackson.databind.DeserializationFeature;
-import com.fasterxml.jackson.databind.ObjectMapper;
+import io.metersphere.api.cache.ScenarioDefinitionCache;
 import io.metersphere.api.dto.definition.request.*;
 import io.metersphere.api.dto.definition.request.variable.ScenarioVariable;
 import io.metersphere.api.jmeter.ResourcePoolCalculation;
@@ -24,6 +20,7 @@ import io.metersphere.vo.BooleanPool;
 import org.apache.commons.lang3.StringUtils;
 import org.apache.jorphan.collections.HashTree;
 
+import java.io.IOException;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
@@ -40,41 +37,30 @@ public class GenerateHashTreeUtil {
     }
 
     public static void parse(String scenarioDefinition, MsScenario scenario, String id, String reportType) {
-        ObjectMapper mapper = new ObjectMapper();
-        mapper.configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
         try {
-            JSONObject element = JSON.parseObject(scenarioDefinition);
-            ElementUtil.dataFormatting(element, id, reportType);
-            // 多态JSON普通转换会丢失内容，需要通过 ObjectMapper 获取
-            if (element != null && StringUtils.isNotEmpty(element.getString("hashTree"))) {
-                LinkedList<MsTestElement> elements = mapper.readValue(element.getString("hashTree"),
-                        new TypeReference<LinkedList<MsTestElement>>() {
-                        });
-                scenario.setHashTree(elements);
-            }
-            if (element != null && StringUtils.isNotEmpty(element.getString("variables"))) {
-                LinkedList<ScenarioVariable> variables = mapper.readValue(element.getString("variables"),
-                        new TypeReference<LinkedList<ScenarioVariable>>() {
-                        });
-                scenario.setVariables(variables);
+            ScenarioDefinitionCache.FormattedDefinition definition = ScenarioDefinitionCache.get(scenarioDefinition, id, reportType);
+            if (definition != null) {
+                LinkedList<MsTestElement> elements = definition.readHashTree();
+                if (elements != null) {
+                    scenario.setHashTree(elements);
+                }
+                LinkedList<ScenarioVariable> variables = definition.readVariables();
+                if (variables != null) {
+                    scenario.setVariables(variables);
+                }
             }
         } catch (Exception e) {
             LogUtil.error(e);
-            LogUtil.error(e);
         }
     }
 
     public static LinkedList<MsTestElement> getScenarioHashTree(String definition) {
-        ObjectMapper objectMapper = new ObjectMapper();
-        objectMapper.configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
-        JSONObject element = JSON.parseObject(definition);
         try {
-            if (element != null) {
-                ElementUtil.dataFormatting(element);
-                return objectMapper.readValue(element.getString("hashTree"), new TypeReference<LinkedList<MsTestElement>>() {
-                });
+            ScenarioDefinitionCache.FormattedDefinition formatted = ScenarioDefinitionCache.get(definition, null, null);
+            if (formatted != null && formatted.getHashTree() != null) {
+                return formatted.readHashTree();
             }
-        } catch (JsonProcessingException e) {
+        } catch (IOException e) {
             LogUtil.error(e.getMessage(), e);
         }
         return new LinkedList<>();
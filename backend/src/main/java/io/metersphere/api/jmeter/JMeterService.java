@@ -3,7 +3,6 @@ package io.metersphere.api.jmeter;
 import com.alibaba.fastjson.JSON;
 import io.metersphere.api.dto.RunRequest;
 import io.metersphere.api.exec.queue.ExecThreadPoolExecutor;
-import io.metersphere.api.exec.utils.GenerateHashTreeUtil;
 import io.metersphere.api.service.ApiScenarioReportService;
 import io.metersphere.api.service.RemakeReportService;
 import io.metersphere.commons.constants.ApiRunMode;
@@ -18,6 +17,7 @@ import io.metersphere.performance.engine.Engine;
 import io.metersphere.performance.engine.EngineFactory;
 import io.metersphere.service.SystemParameterService;
 import io.metersphere.utils.LoggerUtil;
+import io.micrometer.core.instrument.MeterRegistry;
 import org.apache.commons.lang3.StringUtils;
 import org.apache.jmeter.save.SaveService;
 import org.apache.jmeter.testelement.TestElement;
@@ -32,7 +32,7 @@ import org.springframework.web.client.RestTemplate;
 import javax.annotation.PostConstruct;
 import javax.annotation.Resource;
 import java.io.File;
-import java.util.List;
+import java.util.concurrent.TimeUnit;
 
 @Service
 @Transactional(rollbackFor = Exception.class)
@@ -42,6 +42,10 @@ public class JMeterService {
     private JmeterProperties jmeterProperties;
     @Resource
     private RestTemplate restTemplate;
+    @Resource
+    private ResourcePoolCalculation resourcePoolCalculation;
+    @Resource
+    private MeterRegistry meterRegistry;
 
     @PostConstruct
     private void init() {
@@ -132,11 +136,10 @@ public class JMeterService {
         }
     }
 
-    private synchronized void send(JmeterRunRequestDTO request) {
+    private void send(JmeterRunRequestDTO request) {
+        long start = System.currentTimeMillis();
         try {
-            List<JvmInfoDTO> resources = GenerateHashTreeUtil.setPoolResource(request.getPoolId());
-            int index = (int) (Math.random() * resources.size());
-            JvmInfoDTO jvmInfoDTO = resources.get(index);
+            JvmInfoDTO jvmInfoDTO = resourcePoolCalculation.select(request.getPoolId(), request.getReportId());
             TestResourceDTO testResource = jvmInfoDTO.getTestResource();
             String configuration = testResource.getConfiguration();
             NodeDTO node = JSON.parseObject(configuration, NodeDTO.class);
@@ -149,6 +152,7 @@ public class JMeterService {
 
             ResponseEntity<String> result = restTemplate.postForEntity(uri, request, String.class);
             if (result == null || !StringUtils.equals("SUCCESS", result.getBody())) {
+                resourcePoolCalculation.release(request.getReportId());
                 RemakeReportService remakeReportService = CommonBeanFactory.getBean(RemakeReportService.class);
                 RunRequest runRequest = new RunRequest();
                 runRequest.setTestId(request.getTestId());
@@ -158,12 +162,15 @@ public class JMeterService {
                 LoggerUtil.error("发送请求[ " + request.getTestId() + " ] 到" + uri + " 节点执行失败");
             }
         } catch (Exception e) {
+            resourcePoolCalculation.release(request.getReportId());
             RemakeReportService remakeReportService = CommonBeanFactory.getBean(RemakeReportService.class);
             RunRequest runRequest = new RunRequest();
             runRequest.setTestId(request.getTestId());
             runRequest.setRunMode(request.getRunMode());
             remakeReportService.remake(request);
             LoggerUtil.error("发送请求[ " + request.getTestId() + " ] 执行失败：" + e.getMessage());
+        } finally {
+            meterRegistry.timer("ms.exec.dispatch.latency").record(System.currentTimeMillis() - start, TimeUnit.MILLISECONDS);
         }
     }
 
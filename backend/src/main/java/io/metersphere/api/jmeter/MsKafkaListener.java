@@ -1,8 +1,8 @@
 package io.metersphere.api.jmeter;
 
-import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.DeserializationFeature;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
 import io.metersphere.api.exec.queue.PoolExecBlockingQueueUtil;
 import io.metersphere.api.service.ApiEnvironmentRunningParamService;
 import io.metersphere.api.service.ApiExecutionQueueService;
@@ -12,38 +12,47 @@ import io.metersphere.commons.utils.CommonBeanFactory;
 import io.metersphere.config.KafkaConfig;
 import io.metersphere.dto.ResultDTO;
 import io.metersphere.utils.LoggerUtil;
+import io.metersphere.websocket.ApiReportWebSocket;
+import io.metersphere.websocket.TaskCenterWebSocket;
+import io.metersphere.websocket.WebSocketPushHub;
 import org.apache.commons.lang3.StringUtils;
 import org.apache.kafka.clients.consumer.ConsumerRecord;
 import org.springframework.kafka.annotation.KafkaListener;
 import org.springframework.stereotype.Service;
 
 import javax.annotation.Resource;
+import java.util.*;
 
 @Service
 public class MsKafkaListener {
     public static final String CONSUME_ID = "ms-api-exec-consume";
+    // 单条结果存储和结束处理的最大尝试次数
+    private static final int MAX_ATTEMPTS = 3;
 
-    @KafkaListener(id = CONSUME_ID, topics = KafkaConfig.TOPICS, groupId = "${spring.kafka.consumer.group-id}")
-    public void consume(ConsumerRecord<?, String> record) {
-        LoggerUtil.info("接收到执行结果开始存储");
-        ResultDTO testResult = this.formatResult(record.value());
-        if (testResult != null && testResult.getArbitraryData() != null && testResult.getArbitraryData().containsKey("TEST_END") && (Boolean) testResult.getArbitraryData().get("TEST_END")) {
-            LoggerUtil.info("报告 【 " + testResult.getReportId() + " 】资源 " + testResult.getTestId() + " 整体执行完成");
-            testResultService.testEnded(testResult);
-            LoggerUtil.info("执行队列处理：" + testResult.getQueueId());
-            CommonBeanFactory.getBean(ApiExecutionQueueService.class).queueNext(testResult);
-            // 全局并发队列
-            PoolExecBlockingQueueUtil.offer(testResult.getReportId());
-        } else {
-            // 更新报告最后接收到请求的时间
-            if (StringUtils.equalsAny(testResult.getRunMode(), ApiRunMode.SCENARIO.name(),
-                    ApiRunMode.SCENARIO_PLAN.name(), ApiRunMode.SCHEDULE_SCENARIO_PLAN.name(),
-                    ApiRunMode.SCHEDULE_SCENARIO.name(), ApiRunMode.JENKINS_SCENARIO_PLAN.name())) {
-                CommonBeanFactory.getBean(TestResultService.class).editReportTime(testResult);
-            }
+    // 多态JSON普通转换会丢失内容，需要通过 ObjectMapper 获取；ObjectReader 线程安全，全局共用
+    private static final ObjectReader RESULT_READER = new ObjectMapper()
+            .configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false)
+            .readerFor(ResultDTO.class);
 
-            testResultService.saveResults(testResult);
+    @KafkaListener(id = CONSUME_ID, topics = KafkaConfig.TOPICS, groupId = "${spring.kafka.consumer.group-id}", containerFactory = KafkaConfig.BATCH_FACTORY)
+    public void consume(List<ConsumerRecord<?, String>> records) {
+        LoggerUtil.info("接收到执行结果【 " + records.size() + " 】条开始存储");
+        // 同一报告、同一执行模式的结果合并后一次入库，结束标识出现时先落库再处理结束
+        Map<String, List<ResultDTO>> groups = new LinkedHashMap<>();
+        for (ConsumerRecord<?, String> record : records) {
+            ResultDTO testResult = this.formatResult(record.value());
+            if (testResult == null) {
+                continue;
+            }
+            String key = StringUtils.join(testResult.getReportId(), "_", testResult.getRunMode());
+            if (isTestEnd(testResult)) {
+                this.save(groups.remove(key));
+                this.testEnded(testResult);
+            } else {
+                groups.computeIfAbsent(key, k -> new LinkedList<>()).add(testResult);
+            }
         }
+        groups.values().forEach(this::save);
         LoggerUtil.info("执行内容存储结束");
     }
 
@@ -53,14 +62,88 @@ public class MsKafkaListener {
     @Resource
     private ApiEnvironmentRunningParamService apiEnvironmentRunningParamService;
 
+    @Resource
+    private ResourcePoolCalculation resourcePoolCalculation;
+
+    private boolean isTestEnd(ResultDTO testResult) {
+        return testResult.getArbitraryData() != null && testResult.getArbitraryData().containsKey("TEST_END") && (Boolean) testResult.getArbitraryData().get("TEST_END");
+    }
+
+    private void testEnded(ResultDTO testResult) {
+        try {
+            LoggerUtil.info("报告 【 " + testResult.getReportId() + " 】资源 " + testResult.getTestId() + " 整体执行完成");
+            retry("报告 【 " + testResult.getReportId() + " 】结束处理", () -> testResultService.testEnded(testResult));
+            LoggerUtil.info("执行队列处理：" + testResult.getQueueId());
+            retry("报告 【 " + testResult.getReportId() + " 】执行队列处理",
+                    () -> CommonBeanFactory.getBean(ApiExecutionQueueService.class).queueNext(testResult));
+        } catch (Exception e) {
+            LoggerUtil.error("报告 【 " + testResult.getReportId() + " 】结束处理失败：" + e.getMessage());
+        } finally {
+            // 全局并发队列
+            PoolExecBlockingQueueUtil.offer(testResult.getReportId());
+            // 释放资源池节点负载
+            resourcePoolCalculation.release(testResult.getReportId());
+            // 通知订阅该报告和任务中心的页面刷新
+            WebSocketPushHub.publish(ApiReportWebSocket.CHANNEL, testResult.getReportId());
+            WebSocketPushHub.publishAll(TaskCenterWebSocket.CHANNEL);
+        }
+    }
+
+    /**
+     * 整组在一个事务内存储；失败时整组回滚，再逐条存储并重试，只有反复失败的那一条会被丢弃
+     */
+    private void save(List<ResultDTO> results) {
+        if (results == null || results.isEmpty()) {
+            return;
+        }
+        ResultDTO first = results.get(0);
+        // 更新报告最后接收到请求的时间
+        if (StringUtils.equalsAny(first.getRunMode(), ApiRunMode.SCENARIO.name(),
+                ApiRunMode.SCENARIO_PLAN.name(), ApiRunMode.SCHEDULE_SCENARIO_PLAN.name(),
+                ApiRunMode.SCHEDULE_SCENARIO.name(), ApiRunMode.JENKINS_SCENARIO_PLAN.name())) {
+            try {
+                testResultService.editReportTime(first);
+            } catch (Exception e) {
+                LoggerUtil.error("报告 【 " + first.getReportId() + " 】更新时间失败：" + e.getMessage());
+            }
+        }
+        try {
+            testResultService.batchSaveResults(results);
+            return;
+        } catch (Exception e) {
+            LoggerUtil.error("报告 【 " + first.getReportId() + " 】批量存储失败，改为逐条存储：" + e.getMessage());
+        }
+        for (ResultDTO result : results) {
+            try {
+                retry("报告 【 " + result.getReportId() + " 】执行结果存储",
+                        () -> testResultService.batchSaveResults(Collections.singletonList(result)));
+            } catch (Exception e) {
+                LoggerUtil.error("报告 【 " + result.getReportId() + " 】执行结果存储失败，已丢弃：" + e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * 失败后重试，全部失败时抛出最后一次的异常
+     */
+    private void retry(String name, Runnable runnable) {
+        for (int i = 1; ; i++) {
+            try {
+                runnable.run();
+                return;
+            } catch (RuntimeException e) {
+                if (i >= MAX_ATTEMPTS) {
+                    throw e;
+                }
+                LoggerUtil.error(name + "失败，第 " + i + " 次重试：" + e.getMessage());
+            }
+        }
+    }
+
     private ResultDTO formatResult(String result) {
-        ObjectMapper mapper = new ObjectMapper();
-        mapper.configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
         try {
-            // 多态JSON普通转换会丢失内容，需要通过 ObjectMapper 获取
             if (StringUtils.isNotEmpty(result)) {
-                ResultDTO element = mapper.readValue(result, new TypeReference<ResultDTO>() {
-                });
+                ResultDTO element = RESULT_READER.readValue(result);
                 if (StringUtils.isNotEmpty(element.getRunningDebugSampler())) {
                     String evnStr = element.getRunningDebugSampler();
                     apiEnvironmentRunningParamService.parseEvn(evnStr);
@@ -1,6 +1,8 @@
 package io.metersphere.api.jmeter;
 
 import com.alibaba.fastjson.JSON;
+import com.alibaba.fastjson.JSONObject;
+import io.metersphere.api.exec.utils.NamedThreadFactory;
 import io.metersphere.base.domain.TestResource;
 import io.metersphere.base.domain.TestResourceExample;
 import io.metersphere.base.domain.TestResourcePool;
@@ -12,16 +14,24 @@ import io.metersphere.commons.utils.BeanUtils;
 import io.metersphere.dto.JvmInfoDTO;
 import io.metersphere.dto.NodeDTO;
 import io.metersphere.dto.TestResourceDTO;
+import io.metersphere.utils.LoggerUtil;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
 import org.apache.commons.collections.CollectionUtils;
+import org.apache.commons.lang3.StringUtils;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.client.RestTemplate;
 
 import javax.annotation.Resource;
-import java.util.ArrayList;
-import java.util.List;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.stream.Collectors;
 
+/**
+ * 资源池节点状态缓存，定时刷新节点 JVM 信息，按节点负载选择执行节点
+ */
 @Service
 @Transactional(rollbackFor = Exception.class)
 public class ResourcePoolCalculation {
@@ -31,49 +41,192 @@ public class ResourcePoolCalculation {
     TestResourceMapper testResourceMapper;
     @Resource
     private RestTemplate restTemplate;
+    @Resource
+    private MeterRegistry meterRegistry;
 
     private static final String BASE_URL = "http://%s:%d";
+    // 节点状态刷新间隔（秒）
+    private static final int REFRESH_INTERVAL = 10;
+    // 资源池超过该时间未被使用则停止刷新（毫秒）
+    private static final long IDLE_TIMEOUT = 5 * 60 * 1000;
+    // 已分发报告超过该时间未收到结束信号，不再计入节点负载（毫秒）
+    private static final long RUNNING_TIMEOUT = 30 * 60 * 1000;
 
-    private JvmInfoDTO getNodeJvmInfo(String uri) {
-        try {
-            return restTemplate.getForObject(uri, JvmInfoDTO.class);
-        } catch (Exception e) {
-            return null;
-        }
+    private final Map<String, PoolState> poolCache = new ConcurrentHashMap<>();
+    private final Map<String, NodeState> nodeCache = new ConcurrentHashMap<>();
+    private final Map<String, RunningReport> runningReports = new ConcurrentHashMap<>();
+
+    private final ExecutorService healthExecutor = new ThreadPoolExecutor(4, 4, 60, TimeUnit.SECONDS,
+            new LinkedBlockingQueue<>(), new NamedThreadFactory("MS-POOL-HEALTH"));
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(new NamedThreadFactory("MS-POOL-REFRESH"));
+
+    {
+        scheduler.scheduleWithFixedDelay(() -> {
+            try {
+                refreshAll();
+            } catch (Exception e) {
+                LoggerUtil.error("刷新资源池节点状态失败：" + e.getMessage());
+            }
+        }, REFRESH_INTERVAL, REFRESH_INTERVAL, TimeUnit.SECONDS);
     }
 
     public List<JvmInfoDTO> getPools(String resourcePoolId) {
+        List<NodeState> nodes = getNodes(resourcePoolId);
+        return nodes.stream().map(node -> node.jvmInfo).collect(Collectors.toList());
+    }
+
+    /**
+     * 按 (运行中任务数 / 最大并发数) 选择负载最低的节点，负载相同时选择空闲内存比例高的节点
+     */
+    public JvmInfoDTO select(String resourcePoolId, String reportId) {
+        List<NodeState> nodes = getNodes(resourcePoolId);
+        NodeState selected = nodes.stream().min(Comparator.comparingDouble(NodeState::load)
+                .thenComparing(Comparator.comparingDouble(NodeState::freeMemoryRatio).reversed())).get();
+        selected.running.incrementAndGet();
+        if (StringUtils.isNotEmpty(reportId)) {
+            RunningReport previous = runningReports.put(reportId, new RunningReport(selected));
+            if (previous != null) {
+                previous.node.running.decrementAndGet();
+            }
+        }
+        return selected.jvmInfo;
+    }
+
+    /**
+     * 报告执行结束或分发失败时释放节点负载
+     */
+    public void release(String reportId) {
+        if (StringUtils.isEmpty(reportId)) {
+            return;
+        }
+        RunningReport report = runningReports.remove(reportId);
+        if (report != null) {
+            report.node.running.decrementAndGet();
+        }
+    }
+
+    private List<NodeState> getNodes(String resourcePoolId) {
+        PoolState pool = poolCache.computeIfAbsent(resourcePoolId, PoolState::new);
+        pool.lastAccess = System.currentTimeMillis();
+        if (pool.nodes == null) {
+            synchronized (pool) {
+                if (pool.nodes == null) {
+                    refresh(pool);
+                }
+            }
+        }
+        List<NodeState> nodes = pool.nodes;
+        if (CollectionUtils.isEmpty(nodes)) {
+            MSException.throwException("未获取到资源池，请检查配置【系统设置-系统-测试资源池】");
+        }
+        return nodes;
+    }
+
+    private void refreshAll() {
+        long now = System.currentTimeMillis();
+        poolCache.values().removeIf(pool -> now - pool.lastAccess > IDLE_TIMEOUT);
+        poolCache.values().forEach(this::refresh);
+        runningReports.entrySet().removeIf(entry -> {
+            if (now - entry.getValue().dispatchTime > RUNNING_TIMEOUT) {
+                entry.getValue().node.running.decrementAndGet();
+                return true;
+            }
+            return false;
+        });
+    }
+
+    private void refresh(PoolState pool) {
         // 获取可以执行的资源池
         TestResourcePoolExample example = new TestResourcePoolExample();
-        example.createCriteria().andStatusEqualTo("VALID").andTypeEqualTo("NODE").andIdEqualTo(resourcePoolId);
+        example.createCriteria().andStatusEqualTo("VALID").andTypeEqualTo("NODE").andIdEqualTo(pool.id);
         List<TestResourcePool> pools = testResourcePoolMapper.selectByExample(example);
+        if (CollectionUtils.isEmpty(pools)) {
+            pool.nodes = new ArrayList<>();
+            return;
+        }
+        List<String> poolIds = pools.stream().map(TestResourcePool::getId).collect(Collectors.toList());
+        TestResourceExample resourceExample = new TestResourceExample();
+        resourceExample.createCriteria().andTestResourcePoolIdIn(poolIds);
+        List<TestResource> testResources = testResourceMapper.selectByExampleWithBLOBs(resourceExample);
 
-        // 按照NODE节点的可用内存空间大小排序
-        List<JvmInfoDTO> availableNodes = new ArrayList<>();
-        if (CollectionUtils.isNotEmpty(pools)) {
-            List<String> poolIds = pools.stream().map(pool -> pool.getId()).collect(Collectors.toList());
-            TestResourceExample resourceExample = new TestResourceExample();
-            resourceExample.createCriteria().andTestResourcePoolIdIn(poolIds);
-            List<TestResource> testResources = testResourceMapper.selectByExampleWithBLOBs(resourceExample);
-            for (TestResource testResource : testResources) {
-                String configuration = testResource.getConfiguration();
-                NodeDTO node = JSON.parseObject(configuration, NodeDTO.class);
-                String nodeIp = node.getIp();
-                Integer port = node.getPort();
-                String uri = String.format(BASE_URL + "/jmeter/getJvmInfo", nodeIp, port);
-                JvmInfoDTO nodeJvm = this.getNodeJvmInfo(uri);
-                if (nodeJvm == null) {
-                    continue;
-                }
-                TestResourceDTO dto = new TestResourceDTO();
-                BeanUtils.copyBean(dto,testResource);
-                nodeJvm.setTestResource(dto);
-                availableNodes.add(nodeJvm);
+        // 并发获取节点 JVM 信息
+        List<CompletableFuture<NodeState>> futures = testResources.stream()
+                .map(testResource -> CompletableFuture.supplyAsync(() -> this.loadNode(testResource), healthExecutor))
+                .collect(Collectors.toList());
+        List<NodeState> availableNodes = new ArrayList<>();
+        for (CompletableFuture<NodeState> future : futures) {
+            NodeState node = future.join();
+            if (node != null) {
+                availableNodes.add(node);
             }
         }
-        if (CollectionUtils.isEmpty(availableNodes)) {
-            MSException.throwException("未获取到资源池，请检查配置【系统设置-系统-测试资源池】");
+        pool.nodes = availableNodes;
+    }
+
+    private NodeState loadNode(TestResource testResource) {
+        NodeDTO node = JSON.parseObject(testResource.getConfiguration(), NodeDTO.class);
+        String uri = String.format(BASE_URL + "/jmeter/getJvmInfo", node.getIp(), node.getPort());
+        String body;
+        try {
+            body = restTemplate.getForObject(uri, String.class);
+        } catch (Exception e) {
+            body = null;
+        }
+        if (StringUtils.isEmpty(body)) {
+            return null;
+        }
+        JvmInfoDTO nodeJvm = JSON.parseObject(body, JvmInfoDTO.class);
+        TestResourceDTO dto = new TestResourceDTO();
+        BeanUtils.copyBean(dto, testResource);
+        nodeJvm.setTestResource(dto);
+
+        NodeState state = nodeCache.computeIfAbsent(testResource.getId(), id -> {
+            NodeState item = new NodeState();
+            Gauge.builder("ms.exec.node.running", item, s -> s.running.get())
+                    .tag("node", node.getIp() + ":" + node.getPort())
+                    .description("节点已分发未结束的任务数").register(meterRegistry);
+            return item;
+        });
+        JSONObject jvm = JSON.parseObject(body);
+        state.jvmInfo = nodeJvm;
+        state.maxConcurrency = node.getMaxConcurrency() == null || node.getMaxConcurrency() <= 0 ? 1 : node.getMaxConcurrency();
+        state.freeMemory = jvm.getLongValue("vmFree");
+        state.maxMemory = jvm.getLongValue("vmMax");
+        return state;
+    }
+
+    private static class PoolState {
+        private final String id;
+        private volatile List<NodeState> nodes;
+        private volatile long lastAccess;
+
+        private PoolState(String id) {
+            this.id = id;
+        }
+    }
+
+    private static class NodeState {
+        private volatile JvmInfoDTO jvmInfo;
+        private volatile int maxConcurrency;
+        private volatile long freeMemory;
+        private volatile long maxMemory;
+        private final AtomicInteger running = new AtomicInteger();
+
+        private double load() {
+            return (double) running.get() / maxConcurrency;
+        }
+
+        private double freeMemoryRatio() {
+            return maxMemory > 0 ? (double) freeMemory / maxMemory : 0;
+        }
+    }
+
+    private static class RunningReport {
+        private final NodeState node;
+        private final long dispatchTime = System.currentTimeMillis();
+
+        private RunningReport(NodeState node) {
+            this.node = node;
         }
-        return availableNodes;
     }
 }
@@ -3,6 +3,7 @@ package io.metersphere.api.service;
 import com.alibaba.fastjson.JSON;
 import com.alibaba.fastjson.JSONArray;
 import com.alibaba.fastjson.JSONObject;
+import io.metersphere.api.cache.ScenarioDefinitionCache;
 import io.metersphere.api.dto.*;
 import io.metersphere.api.dto.automation.*;
 import io.metersphere.api.dto.automation.parse.ScenarioImport;
@@ -354,6 +355,7 @@ public class ApiAutomationService {
         List<ApiMethodUrlDTO> useUrl = this.parseUrl(scenario);
         scenario.setUseUrl(JSONArray.toJSONString(useUrl));
         apiScenarioMapper.updateByPrimaryKeySelective(scenario);
+        ScenarioDefinitionCache.invalidate(scenario.getId());
         apiScenarioReferenceIdService.saveByApiScenario(scenario);
         extScheduleMapper.updateNameByResourceID(request.getId(), request.getName());//  修改场景name，同步到修改首页定时任务
         uploadFiles(request, bodyFiles, scenarioFiles);
@@ -461,6 +463,7 @@ public class ApiAutomationService {
         this.preDelete(id);
         testPlanScenarioCaseService.deleteByScenarioId(id);
         apiScenarioMapper.deleteByPrimaryKey(id);
+        ScenarioDefinitionCache.invalidate(id);
     }
 
     private void deleteFollows(String id) {
@@ -572,6 +575,7 @@ public class ApiAutomationService {
         ApiScenarioExample example = new ApiScenarioExample();
         example.createCriteria().andIdIn(ids);
         apiScenarioMapper.deleteByExample(example);
+        ScenarioDefinitionCache.invalidate(ids);
     }
 
     public void removeToGc(List<String> apiIds) {
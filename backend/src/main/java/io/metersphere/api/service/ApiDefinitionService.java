@@ -4,6 +4,8 @@ import com.alibaba.fastjson.JSON;
 import com.alibaba.fastjson.JSONObject;
 import com.github.pagehelper.Page;
 import com.github.pagehelper.PageHelper;
+import com.google.common.collect.Lists;
+import io.metersphere.api.cache.MockRouteCache;
 import io.metersphere.api.dto.APIReportResult;
 import io.metersphere.api.dto.ApiTestImportRequest;
 import io.metersphere.api.dto.automation.ApiScenarioRequest;
@@ -11,7 +13,10 @@ import io.metersphere.api.dto.automation.ReferenceDTO;
 import io.metersphere.api.dto.datacount.ApiDataCountResult;
 import io.metersphere.api.dto.definition.*;
 import io.metersphere.api.dto.definition.parse.ApiDefinitionImport;
+import io.metersphere.api.dto.definition.parse.ApiDefinitionImportIndex;
 import io.metersphere.api.dto.definition.parse.ApiDefinitionImportParserFactory;
+import io.metersphere.api.dto.definition.parse.ApiImportStatistics;
+import io.metersphere.api.dto.definition.parse.ApiTestCaseImportIndex;
 import io.metersphere.api.dto.definition.parse.Swagger3Parser;
 import io.metersphere.api.dto.definition.request.assertions.document.DocumentElement;
 import io.metersphere.api.dto.definition.request.sampler.MsHTTPSamplerProxy;
@@ -260,6 +265,7 @@ public class ApiDefinitionService {
             request.setMethod("dubbo://");
         }
         ApiDefinitionWithBLOBs returnModel = createTest(request);
+        MockRouteCache.invalidate(request.getProjectId());
         FileUtils.createBodyFiles(request.getRequest().getId(), bodyFiles);
         return returnModel;
     }
@@ -274,6 +280,7 @@ public class ApiDefinitionService {
             request.setMethod("dubbo://");
         }
         ApiDefinitionWithBLOBs returnModel = updateTest(request);
+        MockRouteCache.invalidate(request.getProjectId());
         MockConfigService mockConfigService = CommonBeanFactory.getBean(MockConfigService.class);
         mockConfigService.updateMockReturnMsgByApi(returnModel);
         FileUtils.createBodyFiles(request.getRequest().getId(), bodyFiles);
@@ -292,6 +299,7 @@ public class ApiDefinitionService {
         deleteFileByTestId(apiId);
         extApiDefinitionExecResultMapper.deleteByResourceId(apiId);
         apiDefinitionMapper.deleteByPrimaryKey(apiId);
+        MockRouteCache.invalidateAll();
         esbApiParamService.deleteByResourceId(apiId);
         MockConfigService mockConfigService = CommonBeanFactory.getBean(MockConfigService.class);
         mockConfigService.deleteMockConfigByApiId(apiId);
@@ -311,6 +319,7 @@ public class ApiDefinitionService {
         example.createCriteria().andIdIn(apiIds);
         esbApiParamService.deleteByResourceIdIn(apiIds);
         apiDefinitionMapper.deleteByExample(example);
+        MockRouteCache.invalidateAll();
         apiTestCaseService.deleteBatchByDefinitionId(apiIds);
         MockConfigService mockConfigService = CommonBeanFactory.getBean(MockConfigService.class);
         relationshipEdgeService.delete(apiIds); // 删除关系图
@@ -329,6 +338,7 @@ public class ApiDefinitionService {
         example.setOperator(SessionUtils.getUserId());
         example.setOperationTime(System.currentTimeMillis());
         extApiDefinitionMapper.removeToGcByExample(example);
+        MockRouteCache.invalidateAll();
 
         List<String> apiCaseIds = apiTestCaseService.selectCaseIdsByApiIds(apiIds);
         if (CollectionUtils.isNotEmpty(apiCaseIds)) {
@@ -390,6 +400,7 @@ public class ApiDefinitionService {
             }
             extApiDefinitionMapper.checkOriginalStatusByIds(request.getIds());
             extApiDefinitionMapper.reduction(request.getIds());
+            MockRouteCache.invalidate(request.getProjectId());
 
             List<String> apiCaseIds = apiTestCaseService.selectCaseIdsByApiIds(request.getIds());
             if (CollectionUtils.isNotEmpty(apiCaseIds)) {
@@ -425,51 +436,6 @@ public class ApiDefinitionService {
         }
     }
 
-    private List<ApiDefinition> getSameRequest(SaveApiDefinitionRequest request) {
-        ApiDefinitionExample example = new ApiDefinitionExample();
-        if (request.getProtocol().equals(RequestType.HTTP)) {
-            example.createCriteria().andMethodEqualTo(request.getMethod()).andStatusNotEqualTo("Trash")
-                    .andPathEqualTo(request.getPath())
-                    .andProjectIdEqualTo(request.getProjectId()).andIdNotEqualTo(request.getId());
-            return apiDefinitionMapper.selectByExample(example);
-        } else {
-            example.createCriteria().andProtocolEqualTo(request.getProtocol()).andStatusNotEqualTo("Trash")
-                    .andNameEqualTo(request.getName()).andProjectIdEqualTo(request.getProjectId())
-                    .andIdNotEqualTo(request.getId());
-            return apiDefinitionMapper.selectByExample(example);
-        }
-    }
-
-    private List<ApiDefinition> getSameRequestById(String id, String projectId) {
-        ApiDefinitionExample example = new ApiDefinitionExample();
-        example.createCriteria().andStatusNotEqualTo("Trash")
-                .andProjectIdEqualTo(projectId)
-                .andIdEqualTo(id);
-        return apiDefinitionMapper.selectByExample(example);
-    }
-
-    private List<ApiDefinition> getSameRequestWithName(SaveApiDefinitionRequest request) {
-        ApiDefinitionExample example = new ApiDefinitionExample();
-        if (request.getProtocol().equals(RequestType.HTTP)) {
-            example.createCriteria()
-                    .andMethodEqualTo(request.getMethod())
-                    .andStatusNotEqualTo("Trash")
-                    .andPathEqualTo(request.getPath())
-                    .andNameEqualTo(request.getName())
-                    .andProjectIdEqualTo(request.getProjectId())
-                    .andIdNotEqualTo(request.getId());
-        } else {
-            example.createCriteria()
-                    .andStatusNotEqualTo("Trash")
-                    .andNameEqualTo(request.getName())
-                    .andProjectIdEqualTo(request.getProjectId())
-                    .andIdNotEqualTo(request.getId());
-        }
-
-        return apiDefinitionMapper.selectByExample(example);
-
-    }
-
     private ApiDefinitionWithBLOBs updateTest(SaveApiDefinitionRequest request) {
         checkNameExist(request);
         if (StringUtils.equals(request.getMethod(), "ESB")) {
@@ -591,9 +557,7 @@ public class ApiDefinitionService {
 
     private ApiDefinition importCreate(ApiDefinitionWithBLOBs apiDefinition, ApiDefinitionMapper batchMapper,
                                        ApiTestCaseMapper apiTestCaseMapper, ApiTestImportRequest apiTestImportRequest, List<ApiTestCaseWithBLOBs> cases, List<MockConfigImportDTO> mocks,
-                                       Boolean repeatable) {
-        SaveApiDefinitionRequest saveReq = new SaveApiDefinitionRequest();
-        BeanUtils.copyBean(saveReq, apiDefinition);
+                                       Boolean repeatable, ApiDefinitionImportIndex importIndex, ApiTestCaseImportIndex caseIndex, ApiImportStatistics statistics) {
         apiDefinition.setCreateTime(System.currentTimeMillis());
         apiDefinition.setUpdateTime(System.currentTimeMillis());
         if (StringUtils.isEmpty(apiDefinition.getStatus())) {
@@ -606,33 +570,46 @@ public class ApiDefinitionService {
         }
         apiDefinition.setDescription(apiDefinition.getDescription());
 
+        // 从导入前加载的索引中查找，不再逐条查询数据库
         List<ApiDefinition> sameRequest;
         if (repeatable == null || repeatable == false) {
-            sameRequest = getSameRequest(saveReq);
+            sameRequest = importIndex.getSameRequest(apiDefinition, false);
         } else {
             // 如果勾选了允许重复，则判断更新要加上name字段
-            sameRequest = getSameRequestWithName(saveReq);
+            sameRequest = importIndex.getSameRequest(apiDefinition, true);
+        }
+        if (CollectionUtils.isEmpty(sameRequest)) {
+            sameRequest = importIndex.getSameRequestById(apiDefinition.getId());
         }
         if (CollectionUtils.isEmpty(sameRequest)) {
-            sameRequest = getSameRequestById(apiDefinition.getId(), apiTestImportRequest.getProjectId());
+            statistics.setCreated(statistics.getCreated() + 1);
+        } else if (StringUtils.equals("incrementalMerge", apiTestImportRequest.getModeId())) {
+            statistics.setSkipped(statistics.getSkipped() + 1);
+        } else {
+            statistics.setUpdated(statistics.getUpdated() + 1);
         }
         if (StringUtils.equals("fullCoverage", apiTestImportRequest.getModeId())) {
-            _importCreate(sameRequest, batchMapper, apiDefinition, apiTestCaseMapper, apiTestImportRequest, cases, mocks);
+            _importCreate(sameRequest, batchMapper, apiDefinition, apiTestCaseMapper, apiTestImportRequest, cases, mocks, caseIndex);
+            importIndex.put(apiDefinition);
         } else if (StringUtils.equals("incrementalMerge", apiTestImportRequest.getModeId())) {
             if (CollectionUtils.isEmpty(sameRequest)) {
                 //postman 可能含有前置脚本，接口定义去掉脚本
                 apiDefinition.setOrder(getImportNextOrder(apiTestImportRequest.getProjectId()));
                 String originId = apiDefinition.getId();
                 apiDefinition.setId(UUID.randomUUID().toString());
+                // 新建的接口下没有用例
+                caseIndex.load(Collections.singletonList(apiDefinition.getId()), Collections.emptyList());
                 batchMapper.insert(apiDefinition);
                 String requestStr = setImportHashTree(apiDefinition);
                 reSetImportCasesApiId(cases, originId, apiDefinition.getId());
                 reSetImportMocksApiId(mocks, originId, apiDefinition.getId(), apiDefinition.getNum());
                 apiDefinition.setRequest(requestStr);
-                importApiCase(apiDefinition, apiTestImportRequest);
+                importApiCase(apiDefinition, apiTestImportRequest, apiTestCaseMapper, caseIndex);
+                importIndex.put(apiDefinition);
             }
         } else {
-            _importCreate(sameRequest, batchMapper, apiDefinition, apiTestCaseMapper, apiTestImportRequest, cases, mocks);
+            _importCreate(sameRequest, batchMapper, apiDefinition, apiTestCaseMapper, apiTestImportRequest, cases, mocks, caseIndex);
+            importIndex.put(apiDefinition);
         }
 
         return apiDefinition;
@@ -659,10 +636,13 @@ public class ApiDefinitionService {
     }
 
     private void _importCreate(List<ApiDefinition> sameRequest, ApiDefinitionMapper batchMapper, ApiDefinitionWithBLOBs apiDefinition,
-                               ApiTestCaseMapper apiTestCaseMapper, ApiTestImportRequest apiTestImportRequest, List<ApiTestCaseWithBLOBs> cases, List<MockConfigImportDTO> mocks) {
+                               ApiTestCaseMapper apiTestCaseMapper, ApiTestImportRequest apiTestImportRequest, List<ApiTestCaseWithBLOBs> cases, List<MockConfigImportDTO> mocks,
+                               ApiTestCaseImportIndex caseIndex) {
         String originId = apiDefinition.getId();
         if (CollectionUtils.isEmpty(sameRequest)) {
             apiDefinition.setId(UUID.randomUUID().toString());
+            // 新建的接口下没有用例
+            caseIndex.load(Collections.singletonList(apiDefinition.getId()), Collections.emptyList());
             apiDefinition.setOrder(getImportNextOrder(apiTestImportRequest.getProjectId()));
             reSetImportCasesApiId(cases, originId, apiDefinition.getId());
             reSetImportMocksApiId(mocks, originId, apiDefinition.getId(), apiDefinition.getNum());
@@ -670,7 +650,7 @@ public class ApiDefinitionService {
                 batchMapper.insert(apiDefinition);
                 String request = setImportHashTree(apiDefinition);
                 apiDefinition.setRequest(request);
-                importApiCase(apiDefinition, apiTestImportRequest);
+                importApiCase(apiDefinition, apiTestImportRequest, apiTestCaseMapper, caseIndex);
             } else {
                 if (StringUtils.equalsAnyIgnoreCase(apiDefinition.getProtocol(), RequestType.TCP)) {
                     setImportTCPHashTree(apiDefinition);
@@ -693,10 +673,10 @@ public class ApiDefinitionService {
                 apiDefinition.setModuleId(sameRequest.get(0).getModuleId());
                 apiDefinition.setModulePath(sameRequest.get(0).getModulePath());
                 apiDefinition.setOrder(sameRequest.get(0).getOrder());
-                apiDefinitionMapper.updateByPrimaryKeyWithBLOBs(apiDefinition);
+                batchMapper.updateByPrimaryKeyWithBLOBs(apiDefinition);
                 apiDefinition.setRequest(request);
                 reSetImportCasesApiId(cases, originId, apiDefinition.getId());
-                importApiCase(apiDefinition, apiTestImportRequest);
+                importApiCase(apiDefinition, apiTestImportRequest, apiTestCaseMapper, caseIndex);
             } else {
                 apiDefinition.setId(sameRequest.get(0).getId());
                 if (StringUtils.equalsAnyIgnoreCase(apiDefinition.getProtocol(), RequestType.TCP)) {
@@ -704,7 +684,7 @@ public class ApiDefinitionService {
                 }
                 apiDefinition.setOrder(sameRequest.get(0).getOrder());
                 reSetImportCasesApiId(cases, originId, apiDefinition.getId());
-                apiDefinitionMapper.updateByPrimaryKeyWithBLOBs(apiDefinition);
+                batchMapper.updateByPrimaryKeyWithBLOBs(apiDefinition);
             }
 
         }
@@ -759,21 +739,30 @@ public class ApiDefinitionService {
     }
 
     private void importMsCase(ApiDefinitionImport apiImport, SqlSession sqlSession,
-                              ApiTestImportRequest request) {
+                              ApiTestImportRequest request, ApiTestCaseImportIndex caseIndex) {
         List<ApiTestCaseWithBLOBs> cases = apiImport.getCases();
         if (CollectionUtils.isNotEmpty(cases)) {
-            int batchCount = 0;
+            // 一次查出用例所属的接口
+            List<String> apiIds = cases.stream().map(ApiTestCaseWithBLOBs::getApiDefinitionId)
+                    .filter(Objects::nonNull).distinct().collect(Collectors.toList());
+            Map<String, ApiDefinition> apiDefinitionMap = new HashMap<>();
+            for (List<String> ids : Lists.partition(apiIds, 500)) {
+                ApiDefinitionExample example = new ApiDefinitionExample();
+                example.createCriteria().andIdIn(ids);
+                apiDefinitionMapper.selectByExample(example).forEach(item -> apiDefinitionMap.put(item.getId(), item));
+            }
+            // 一次查出这些接口下已有的用例，重名判断和编号在内存中计算
+            loadImportCases(caseIndex, apiIds);
+            ApiTestCaseMapper batchMapper = sqlSession.getMapper(ApiTestCaseMapper.class);
             for (int i = 0; i < cases.size(); i++) {
                 ApiTestCaseWithBLOBs item = cases.get(i);
-                ApiDefinitionWithBLOBs apiDefinitionWithBLOBs = apiDefinitionMapper.selectByPrimaryKey(item.getApiDefinitionId());
-                if (apiDefinitionWithBLOBs == null) {
+                ApiDefinition apiDefinition = apiDefinitionMap.get(item.getApiDefinitionId());
+                if (apiDefinition == null) {
                     continue;
                 }
-                insertOrUpdateImportCase(item, request, apiDefinitionWithBLOBs);
-            }
-            if (batchCount % 300 == 0) {
-                sqlSession.flushStatements();
+                insertOrUpdateImportCase(item, request, apiDefinition, batchMapper, caseIndex);
             }
+            sqlSession.flushStatements();
         }
     }
 
@@ -781,7 +770,8 @@ public class ApiDefinitionService {
      * 导入是插件或者postman时创建用例
      * postman考虑是否有前置脚本
      */
-    private void importApiCase(ApiDefinitionWithBLOBs apiDefinition, ApiTestImportRequest apiTestImportRequest) {
+    private void importApiCase(ApiDefinitionWithBLOBs apiDefinition, ApiTestImportRequest apiTestImportRequest,
+                               ApiTestCaseMapper batchMapper, ApiTestCaseImportIndex caseIndex) {
         try {
             if (StringUtils.equalsAnyIgnoreCase(apiTestImportRequest.getPlatform(), ApiImportPlatform.Plugin.name(), ApiImportPlatform.Postman.name())) {
                 ApiTestCaseWithBLOBs apiTestCase = new ApiTestCaseWithBLOBs();
@@ -791,33 +781,45 @@ public class ApiDefinitionService {
                 if (apiTestCase.getName().length() > 255) {
                     apiTestCase.setName(apiTestCase.getName().substring(0, 255));
                 }
-                insertOrUpdateImportCase(apiTestCase, apiTestImportRequest, apiDefinition);
+                loadImportCases(caseIndex, Collections.singletonList(apiDefinition.getId()));
+                insertOrUpdateImportCase(apiTestCase, apiTestImportRequest, apiDefinition, batchMapper, caseIndex);
             }
         } catch (Exception e) {
             LogUtil.error("导入创建用例异常", e);
         }
     }
 
-    private void insertOrUpdateImportCase(ApiTestCaseWithBLOBs apiTestCase, ApiTestImportRequest apiTestImportRequest, ApiDefinitionWithBLOBs apiDefinition) {
-        SaveApiTestCaseRequest checkRequest = new SaveApiTestCaseRequest();
-        checkRequest.setName(apiTestCase.getName());
-        checkRequest.setApiDefinitionId(apiTestCase.getApiDefinitionId());
-        checkRequest.setId(apiTestCase.getId());
-        ApiTestCase sameCase = apiTestCaseService.getSameCase(checkRequest);
-        if (sameCase == null) {
-            sameCase = apiTestCaseService.getSameCaseById(checkRequest);
+    /**
+     * 加载接口下已有的用例，已加载过的接口不再查询
+     */
+    private void loadImportCases(ApiTestCaseImportIndex caseIndex, Collection<String> definitionIds) {
+        for (List<String> ids : Lists.partition(caseIndex.getUnloaded(definitionIds), 500)) {
+            ApiTestCaseExample example = new ApiTestCaseExample();
+            example.createCriteria().andApiDefinitionIdIn(ids);
+            caseIndex.load(ids, apiTestCaseMapper.selectByExample(example));
         }
+    }
+
+    private void insertOrUpdateImportCase(ApiTestCaseWithBLOBs apiTestCase, ApiTestImportRequest apiTestImportRequest, ApiDefinition apiDefinition,
+                                          ApiTestCaseMapper batchMapper, ApiTestCaseImportIndex caseIndex) {
+        ApiTestCase sameCase = caseIndex.getSameCase(apiTestCase.getApiDefinitionId(), apiTestCase.getName(), apiTestCase.getId());
         apiTestCase.setUpdateUserId(SessionUtils.getUserId());
         if (sameCase == null) {
             apiTestCase.setId(UUID.randomUUID().toString());
             apiTestCase.setStatus("");
-            apiTestCase.setNum(apiTestCaseService.getNextNum(apiTestCase.getApiDefinitionId(), apiDefinition.getNum()));
+            Integer num = caseIndex.getNextNum(apiTestCase.getApiDefinitionId());
+            if (num == null) {
+                num = apiDefinition.getNum() == null ? apiTestCaseService.getNextNum(apiTestCase.getApiDefinitionId(), null)
+                        : apiDefinition.getNum() * 1000 + 1;
+            }
+            apiTestCase.setNum(num);
             apiTestCase.setCreateTime(System.currentTimeMillis());
             apiTestCase.setUpdateTime(System.currentTimeMillis());
             apiTestCase.setCreateUserId(SessionUtils.getUserId());
             apiTestCase.setProjectId(SessionUtils.getCurrentProjectId());
             apiTestCase.setOrder(getImportNextCaseOrder(apiTestImportRequest.getProjectId()));
-            apiTestCaseMapper.insert(apiTestCase);
+            batchMapper.insert(apiTestCase);
+            caseIndex.put(apiTestCase);
         } else if (StringUtils.equals("fullCoverage", apiTestImportRequest.getModeId())) {
             apiTestCase.setId(sameCase.getId());
             apiTestCase.setUpdateTime(System.currentTimeMillis());
@@ -828,7 +830,8 @@ public class ApiDefinitionService {
             apiTestCase.setOrder(sameCase.getOrder());
             apiTestCase.setProjectId(sameCase.getProjectId());
             apiTestCase.setVersion((sameCase.getVersion() == null ? 0 : sameCase.getVersion()) + 1);
-            apiTestCaseMapper.updateByPrimaryKeySelective(apiTestCase);
+            batchMapper.updateByPrimaryKeySelective(apiTestCase);
+            caseIndex.put(apiTestCase);
         }
     }
 
@@ -875,6 +878,21 @@ public class ApiDefinitionService {
         return buildAPIReportResult(result);
     }
 
+    /**
+     * 批量查询最新的执行结果，按资源 ID 分批 IN 查询，key 为资源 ID
+     */
+    public Map<String, APIReportResult> getDbResults(Collection<String> testIds) {
+        Map<String, APIReportResult> resultMap = new HashMap<>();
+        if (CollectionUtils.isEmpty(testIds)) {
+            return resultMap;
+        }
+        for (List<String> subIds : Lists.partition(new ArrayList<>(new LinkedHashSet<>(testIds)), 500)) {
+            extApiDefinitionExecResultMapper.selectMaxResultByResourceIds(subIds)
+                    .forEach(result -> resultMap.putIfAbsent(result.getResourceId(), buildAPIReportResult(result)));
+        }
+        return resultMap;
+    }
+
     public APIReportResult getByResultId(String reportId) {
         ApiDefinitionExecResult result = apiDefinitionExecResultMapper.selectByPrimaryKey(reportId);
         return buildAPIReportResult(result);
@@ -952,6 +970,7 @@ public class ApiDefinitionService {
             }
         }
         importApi(request, apiImport);
+        MockRouteCache.invalidate(request.getProjectId());
         if (CollectionUtils.isNotEmpty(apiImport.getData())) {
             List<String> names = apiImport.getData().stream().map(ApiDefinitionWithBLOBs::getName).collect(Collectors.toList());
             request.setName(String.join(",", names));
@@ -979,10 +998,13 @@ public class ApiDefinitionService {
     }
 
     private void importApi(ApiTestImportRequest request, ApiDefinitionImport apiImport) {
+        ApiImportStatistics statistics = new ApiImportStatistics();
+        apiImport.setStatistics(statistics);
         SqlSession sqlSession = sqlSessionFactory.openSession(ExecutorType.BATCH);
         currentApiCaseOrder.remove();
         currentApiOrder.remove();
         List<ApiDefinitionWithBLOBs> data = apiImport.getData();
+        statistics.setTotal(data.size());
         ApiDefinitionMapper batchMapper = sqlSession.getMapper(ApiDefinitionMapper.class);
         ApiTestCaseMapper apiTestCaseMapper = sqlSession.getMapper(ApiTestCaseMapper.class);
         Project project = projectMapper.selectByPrimaryKey(request.getProjectId());
@@ -990,6 +1012,12 @@ public class ApiDefinitionService {
         if (!CollectionUtils.isEmpty(data) && data.get(0) != null && data.get(0).getProjectId() != null) {
             num = getNextNum(data.get(0).getProjectId());
         }
+        // 一次加载项目下已有的接口，新增或更新在内存中判断
+        ApiDefinitionExample existsExample = new ApiDefinitionExample();
+        existsExample.createCriteria().andProjectIdEqualTo(request.getProjectId()).andStatusNotEqualTo("Trash");
+        ApiDefinitionImportIndex importIndex = new ApiDefinitionImportIndex(apiDefinitionMapper.selectByExample(existsExample));
+        ApiTestCaseImportIndex caseIndex = new ApiTestCaseImportIndex();
+        statistics.phase("preload");
         for (int i = 0; i < data.size(); i++) {
             ApiDefinitionWithBLOBs item = data.get(i);
             this.setModule(item);
@@ -1002,20 +1030,21 @@ public class ApiDefinitionService {
                 String apiId = item.getId();
                 EsbApiParamsWithBLOBs model = apiImport.getEsbApiParamsMap().get(apiId);
                 request.setModeId("fullCoverage");//标准版ESB数据导入不区分是否覆盖，默认都为覆盖
-                importCreate(item, batchMapper, apiTestCaseMapper, request, apiImport.getCases(), apiImport.getMocks(), project.getRepeatable());
+                importCreate(item, batchMapper, apiTestCaseMapper, request, apiImport.getCases(), apiImport.getMocks(), project.getRepeatable(), importIndex, caseIndex, statistics);
                 if (model != null) {
                     apiImport.getEsbApiParamsMap().remove(apiId);
                     model.setResourceId(item.getId());
                     apiImport.getEsbApiParamsMap().put(item.getId(), model);
                 }
             } else {
-                importCreate(item, batchMapper, apiTestCaseMapper, request, apiImport.getCases(), apiImport.getMocks(), project.getRepeatable());
+                importCreate(item, batchMapper, apiTestCaseMapper, request, apiImport.getCases(), apiImport.getMocks(), project.getRepeatable(), importIndex, caseIndex, statistics);
             }
             if (i % 300 == 0) {
                 sqlSession.flushStatements();
             }
-            sqlSession.flushStatements();
         }
+        sqlSession.flushStatements();
+        statistics.phase("definitions");
         //判断EsbData是否需要存储
         if (apiImport.getEsbApiParamsMap() != null && apiImport.getEsbApiParamsMap().size() > 0) {
             EsbApiParamsMapper esbApiParamsMapper = sqlSession.getMapper(EsbApiParamsMapper.class);
@@ -1031,19 +1060,26 @@ public class ApiDefinitionService {
                 }
 
             }
+            statistics.phase("esb");
         }
 
         if (!CollectionUtils.isEmpty(apiImport.getMocks())) {
             MockConfigService mockConfigService = CommonBeanFactory.getBean(MockConfigService.class);
             mockConfigService.importMock(apiImport, sqlSession, request);
+            sqlSession.flushStatements();
+            statistics.phase("mocks");
         }
 
         if (!CollectionUtils.isEmpty(apiImport.getCases())) {
-            importMsCase(apiImport, sqlSession, request);
+            importMsCase(apiImport, sqlSession, request, caseIndex);
+            statistics.phase("cases");
         }
         if (sqlSession != null && sqlSessionFactory != null) {
             SqlSessionUtils.closeSqlSession(sqlSession, sqlSessionFactory);
         }
+        statistics.finish();
+        LogUtil.info("接口导入完成，项目：" + request.getProjectId() + "，总数：" + statistics.getTotal() + "，新增：" + statistics.getCreated()
+                + "，更新：" + statistics.getUpdated() + "，跳过：" + statistics.getSkipped() + "，耗时：" + statistics.getPhaseTimes());
     }
 
 
@@ -1065,6 +1101,7 @@ public class ApiDefinitionService {
         BeanUtils.copyBean(definitionWithBLOBs, request);
         definitionWithBLOBs.setUpdateTime(System.currentTimeMillis());
         apiDefinitionMapper.updateByExampleSelective(definitionWithBLOBs, definitionExample);
+        MockRouteCache.invalidateAll();
     }
 
     public void editApiByParam(ApiBatchRequest request) {
@@ -1074,6 +1111,7 @@ public class ApiDefinitionService {
         BeanUtils.copyBean(definitionWithBLOBs, request);
         definitionWithBLOBs.setUpdateTime(System.currentTimeMillis());
         apiDefinitionMapper.updateByExampleSelective(definitionWithBLOBs, getBatchExample(request));
+        MockRouteCache.invalidateAll();
     }
 
     public void testPlanRelevance(ApiCaseRelevanceRequest request) {
@@ -1132,6 +1170,7 @@ public class ApiDefinitionService {
 
     public void deleteByParams(ApiBatchRequest request) {
         apiDefinitionMapper.deleteByExample(getBatchExample(request));
+        MockRouteCache.invalidateAll();
         apiTestCaseService.deleteBatchByDefinitionId(request.getIds());
     }
 
@@ -1410,61 +1449,11 @@ public class ApiDefinitionService {
 //        return  apiDefinitionMapper.selectByExample(example);
 //    }
 
-    public List<ApiDefinitionWithBLOBs> preparedUrl(String projectId, String method, String urlSuffix) {
-
-        if (StringUtils.isEmpty(urlSuffix)) {
-            return new ArrayList<>();
-        } else {
-            ApiDefinitionExample example = new ApiDefinitionExample();
-            example.createCriteria().andMethodEqualTo(method).andProjectIdEqualTo(projectId).andStatusNotEqualTo("Trash").andProtocolEqualTo("HTTP");
-            List<ApiDefinition> apiList = apiDefinitionMapper.selectByExample(example);
-
-            List<String> apiIdList = new ArrayList<>();
-            boolean urlSuffixEndEmpty = false;
-            if (urlSuffix.endsWith("/")) {
-                urlSuffixEndEmpty = true;
-                urlSuffix = urlSuffix + "testMock";
-            }
-            String[] urlParams = urlSuffix.split("/");
-            if (urlSuffixEndEmpty) {
-                urlParams[urlParams.length - 1] = "";
-            }
-            for (ApiDefinition api : apiList) {
-                String path = api.getPath();
-                if (StringUtils.isEmpty(path)) {
-                    continue;
-                }
-                if (path.startsWith("/")) {
-                    path = path.substring(1);
-                }
-                if (StringUtils.isNotEmpty(path)) {
-                    String[] pathArr = path.split("/");
-                    if (pathArr.length == urlParams.length) {
-                        boolean isFetch = true;
-                        for (int i = 0; i < urlParams.length; i++) {
-                            String pathItem = pathArr[i];
-                            if (!(pathItem.startsWith("{") && pathItem.endsWith("}"))) {
-                                if (!StringUtils.equals(pathArr[i], urlParams[i])) {
-                                    isFetch = false;
-                                    break;
-                                }
-                            }
-
-                        }
-                        if (isFetch) {
-                            apiIdList.add(api.getId());
-                        }
-                    }
-                }
-            }
-            if (apiIdList.isEmpty()) {
-                return new ArrayList<>();
-            } else {
-                example.clear();
-                example.createCriteria().andIdIn(apiIdList);
-                return apiDefinitionMapper.selectByExampleWithBLOBs(example);
-            }
-        }
+    /**
+     * Mock 请求匹配接口，路由结构缓存在内存中，匹配时不再查询数据库
+     */
+    public List<ApiDefinition> preparedUrl(String projectId, String method, String urlSuffix) {
+        return MockRouteCache.match(projectId, method, urlSuffix);
     }
 
     public String getLogDetails(String id) {
@@ -2,39 +2,84 @@ package io.metersphere.api.service;
 
 import com.alibaba.fastjson.JSON;
 import io.metersphere.base.domain.ApiScenarioReportResult;
+import io.metersphere.base.domain.ApiScenarioReportResultExample;
 import io.metersphere.base.mapper.ApiScenarioReportResultMapper;
+import io.metersphere.base.mapper.ext.ExtApiScenarioReportResultMapper;
+import io.metersphere.commons.utils.ReportContentCodec;
 import io.metersphere.dto.RequestResult;
 import io.metersphere.utils.LoggerUtil;
 import org.apache.commons.collections.CollectionUtils;
 import org.apache.commons.lang3.StringUtils;
+import org.apache.ibatis.session.ExecutorType;
+import org.apache.ibatis.session.SqlSession;
+import org.apache.ibatis.session.SqlSessionFactory;
+import org.mybatis.spring.SqlSessionUtils;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
 
 import javax.annotation.Resource;
 import java.nio.charset.StandardCharsets;
-import java.util.List;
-import java.util.UUID;
+import java.util.*;
 
 @Service
 @Transactional(rollbackFor = Exception.class)
 public class ApiScenarioReportResultService {
+    // 批量写入时每批提交的语句数
+    private final static int BATCH_SIZE = 200;
+
+    // 历史数据重新压缩时每批处理的数量
+    private final static int RECOMPRESS_PAGE_SIZE = 500;
+
     @Resource
     private ApiScenarioReportResultMapper apiScenarioReportResultMapper;
+    @Resource
+    private ExtApiScenarioReportResultMapper extApiScenarioReportResultMapper;
+    @Resource
+    private SqlSessionFactory sqlSessionFactory;
+    @Value("${report.content.codec:DEFLATE}")
+    private ReportContentCodec contentCodec;
 
     public void save(String reportId, List<RequestResult> queue) {
         if (CollectionUtils.isNotEmpty(queue)) {
+            List<ApiScenarioReportResult> results = new LinkedList<>();
             queue.forEach(item -> {
                 // 事物控制器出来的结果特殊处理
                 if (StringUtils.isNotEmpty(item.getName()) && item.getName().startsWith("Transaction=") && CollectionUtils.isEmpty(item.getSubRequestResults())) {
                     LoggerUtil.debug("合并事物请求暂不入库");
                 } else if (StringUtils.isNotEmpty(item.getName()) && item.getName().startsWith("Transaction=") && CollectionUtils.isNotEmpty(item.getSubRequestResults())) {
                     item.getSubRequestResults().forEach(subItem -> {
-                        apiScenarioReportResultMapper.insert(this.newApiScenarioReportResult(reportId, subItem));
+                        results.add(this.newApiScenarioReportResult(reportId, subItem));
                     });
                 } else {
-                    apiScenarioReportResultMapper.insert(this.newApiScenarioReportResult(reportId, item));
+                    results.add(this.newApiScenarioReportResult(reportId, item));
                 }
             });
+            this.batchInsert(results);
+        }
+    }
+
+    /**
+     * 通过 BATCH 会话写入，会话使用当前事务的连接，与调用方一起提交或回滚
+     */
+    private void batchInsert(List<ApiScenarioReportResult> results) {
+        if (CollectionUtils.isEmpty(results)) {
+            return;
+        }
+        SqlSession sqlSession = sqlSessionFactory.openSession(ExecutorType.BATCH);
+        try {
+            ApiScenarioReportResultMapper batchMapper = sqlSession.getMapper(ApiScenarioReportResultMapper.class);
+            int count = 0;
+            for (ApiScenarioReportResult result : results) {
+                batchMapper.insert(result);
+                if (++count % BATCH_SIZE == 0) {
+                    sqlSession.flushStatements();
+                }
+            }
+            sqlSession.flushStatements();
+        } finally {
+            SqlSessionUtils.closeSqlSession(sqlSession, sqlSessionFactory);
         }
     }
 
@@ -61,7 +106,50 @@ public class ApiScenarioReportResultService {
         report.setCreateTime(System.currentTimeMillis());
         report.setStatus(result.getError() == 0 ? "Success" : "Error");
         report.setRequestTime(result.getEndTime() - result.getStartTime());
-        report.setContent(JSON.toJSONString(result).getBytes(StandardCharsets.UTF_8));
+        report.setContent(contentCodec.encode(JSON.toJSONString(result).getBytes(StandardCharsets.UTF_8)));
         return report;
     }
+
+    /**
+     * 把历史未压缩的结果内容按当前编码重新压缩，按 id 顺序分批处理
+     */
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public long recompress() {
+        if (contentCodec == ReportContentCodec.NONE) {
+            return 0;
+        }
+        long count = 0;
+        String lastId = "";
+        while (true) {
+            List<String> ids = extApiScenarioReportResultMapper.selectUncompressedIds(lastId, RECOMPRESS_PAGE_SIZE);
+            if (CollectionUtils.isEmpty(ids)) {
+                break;
+            }
+            SqlSession sqlSession = sqlSessionFactory.openSession(ExecutorType.BATCH);
+            try {
+                ApiScenarioReportResultMapper batchMapper = sqlSession.getMapper(ApiScenarioReportResultMapper.class);
+                // 每页一次查询加载内容
+                ApiScenarioReportResultExample example = new ApiScenarioReportResultExample();
+                example.createCriteria().andIdIn(ids);
+                for (ApiScenarioReportResult result : apiScenarioReportResultMapper.selectByExampleWithBLOBs(example)) {
+                    if (ReportContentCodec.isEncoded(result.getContent())) {
+                        continue;
+                    }
+                    byte[] content = contentCodec.encode(result.getContent());
+                    if (content != result.getContent()) {
+                        ApiScenarioReportResult record = new ApiScenarioReportResult();
+                        record.setId(result.getId());
+                        record.setContent(content);
+                        batchMapper.updateByPrimaryKeySelective(record);
+                        count++;
+                    }
+                }
+                sqlSession.flushStatements();
+            } finally {
+                SqlSessionUtils.closeSqlSession(sqlSession, sqlSessionFactory);
+            }
+            lastId = ids.get(ids.size() - 1);
+        }
+        return count;
+    }
 }
@@ -3,6 +3,7 @@ package io.metersphere.api.service;
 import com.alibaba.fastjson.JSON;
 import com.alibaba.fastjson.JSONArray;
 import com.alibaba.fastjson.JSONObject;
+import com.google.common.collect.Lists;
 import io.metersphere.api.cache.TestPlanReportExecuteCatch;
 import io.metersphere.api.dto.APIReportBatchRequest;
 import io.metersphere.api.dto.DeleteAPIReportRequest;
@@ -53,6 +54,7 @@ import java.util.stream.Collectors;
 @Transactional(rollbackFor = Exception.class)
 public class ApiScenarioReportService {
     Logger testPlanLog = LoggerFactory.getLogger("testPlanExecuteLog");
+    private static final int REPORT_BATCH_SIZE = 500;
     @Resource
     private ExtApiScenarioReportMapper extApiScenarioReportMapper;
     @Resource
@@ -132,6 +134,38 @@ public class ApiScenarioReportService {
         return reportResult;
     }
 
+    /**
+     * 批量查询报告及内容，按 ID 分批 IN 查询，key 为报告 ID
+     */
+    public Map<String, APIScenarioReportResult> getReports(Collection<String> reportIds) {
+        Map<String, APIScenarioReportResult> reportMap = new HashMap<>();
+        if (CollectionUtils.isEmpty(reportIds)) {
+            return reportMap;
+        }
+        for (List<String> subIds : Lists.partition(new ArrayList<>(new LinkedHashSet<>(reportIds)), REPORT_BATCH_SIZE)) {
+            List<APIScenarioReportResult> reports = extApiScenarioReportMapper.selectByIds(subIds);
+            List<String> structureIds = new ArrayList<>();
+            List<String> detailIds = new ArrayList<>();
+            reports.forEach(report -> {
+                reportMap.put(report.getId(), report);
+                if (report.getReportVersion() != null && report.getReportVersion() > 1) {
+                    structureIds.add(report.getId());
+                } else {
+                    detailIds.add(report.getId());
+                }
+            });
+            apiScenarioReportStructureService.getReports(structureIds)
+                    .forEach((id, report) -> reportMap.get(id).setContent(JSON.toJSONString(report)));
+            if (CollectionUtils.isNotEmpty(detailIds)) {
+                ApiScenarioReportDetailExample example = new ApiScenarioReportDetailExample();
+                example.createCriteria().andReportIdIn(detailIds);
+                apiScenarioReportDetailMapper.selectByExampleWithBLOBs(example).forEach(detail ->
+                        reportMap.get(detail.getReportId()).setContent(new String(detail.getContent(), StandardCharsets.UTF_8)));
+            }
+        }
+        return reportMap;
+    }
+
     public List<APIScenarioReportResult> list(QueryAPIReportRequest request) {
         request.setOrders(ServiceUtils.getDefaultOrder(request.getOrders()));
         return extApiScenarioReportMapper.list(request);
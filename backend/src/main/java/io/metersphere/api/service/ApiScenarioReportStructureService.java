@@ -3,11 +3,13 @@ package io.metersphere.api.service;
 import com.alibaba.fastjson.JSON;
 import com.alibaba.fastjson.JSONArray;
 import com.alibaba.fastjson.JSONObject;
+import com.google.common.collect.Lists;
 import io.metersphere.api.dto.ApiScenarioReportDTO;
 import io.metersphere.api.dto.StepTreeDTO;
 import io.metersphere.base.domain.*;
 import io.metersphere.base.mapper.ApiScenarioReportResultMapper;
 import io.metersphere.base.mapper.ApiScenarioReportStructureMapper;
+import io.metersphere.commons.utils.ReportContentCodec;
 import io.metersphere.constants.RunModeConstants;
 import io.metersphere.dto.RequestResult;
 import io.metersphere.utils.LoggerUtil;
@@ -31,6 +33,7 @@ public class ApiScenarioReportStructureService {
     @Resource
     private ApiScenarioReportResultMapper reportResultMapper;
 
+    private static final int REPORT_BATCH_SIZE = 100;
     private static final List<String> requests = Arrays.asList("HTTPSamplerProxy", "DubboSampler", "JDBCSampler", "TCPSampler", "JSR223Processor", "AbstractSampler");
 
     public void save(List<ApiScenarioWithBLOBs> apiScenarios, String reportId, String reportType) {
@@ -167,15 +170,15 @@ public class ApiScenarioReportStructureService {
                 if (reportResults.size() > 1) {
                     for (int i = 0; i < reportResults.size(); i++) {
                         if (i == 0) {
-                            dto.setValue(JSON.parseObject(new String(reportResults.get(i).getContent(), StandardCharsets.UTF_8), RequestResult.class));
+                            dto.setValue(JSON.parseObject(new String(ReportContentCodec.decode(reportResults.get(i).getContent()), StandardCharsets.UTF_8), RequestResult.class));
                         } else {
                             StepTreeDTO step = new StepTreeDTO(dto.getLabel(), UUID.randomUUID().toString(), dto.getType(), (i + 1));
-                            step.setValue(JSON.parseObject(new String(reportResults.get(i).getContent(), StandardCharsets.UTF_8), RequestResult.class));
+                            step.setValue(JSON.parseObject(new String(ReportContentCodec.decode(reportResults.get(i).getContent()), StandardCharsets.UTF_8), RequestResult.class));
                             dtoList.add(step);
                         }
                     }
                 } else {
-                    String content = new String(reportResults.get(0).getContent(), StandardCharsets.UTF_8);
+                    String content = new String(ReportContentCodec.decode(reportResults.get(0).getContent()), StandardCharsets.UTF_8);
                     dto.setValue(JSON.parseObject(content, RequestResult.class));
                 }
             }
@@ -202,7 +205,34 @@ public class ApiScenarioReportStructureService {
         ApiScenarioReportStructureExample structureExample = new ApiScenarioReportStructureExample();
         structureExample.createCriteria().andReportIdEqualTo(reportId);
         List<ApiScenarioReportStructureWithBLOBs> reportStructureWithBLOBs = mapper.selectByExampleWithBLOBs(structureExample);
+        return buildReport(reportResults, reportStructureWithBLOBs);
+    }
+
+    /**
+     * 批量组装报告，结果和结构按 report_id 分批查询，key 为报告 ID
+     */
+    public Map<String, ApiScenarioReportDTO> getReports(List<String> reportIds) {
+        Map<String, ApiScenarioReportDTO> reportMap = new HashMap<>();
+        if (CollectionUtils.isEmpty(reportIds)) {
+            return reportMap;
+        }
+        for (List<String> subIds : Lists.partition(reportIds, REPORT_BATCH_SIZE)) {
+            ApiScenarioReportResultExample example = new ApiScenarioReportResultExample();
+            example.createCriteria().andReportIdIn(subIds);
+            Map<String, List<ApiScenarioReportResult>> resultMap = reportResultMapper.selectByExampleWithBLOBs(example)
+                    .stream().collect(Collectors.groupingBy(ApiScenarioReportResult::getReportId));
+
+            ApiScenarioReportStructureExample structureExample = new ApiScenarioReportStructureExample();
+            structureExample.createCriteria().andReportIdIn(subIds);
+            Map<String, List<ApiScenarioReportStructureWithBLOBs>> structureMap = mapper.selectByExampleWithBLOBs(structureExample)
+                    .stream().collect(Collectors.groupingBy(ApiScenarioReportStructureWithBLOBs::getReportId));
+
+            subIds.forEach(reportId -> reportMap.put(reportId, buildReport(resultMap.get(reportId), structureMap.get(reportId))));
+        }
+        return reportMap;
+    }
 
+    private ApiScenarioReportDTO buildReport(List<ApiScenarioReportResult> reportResults, List<ApiScenarioReportStructureWithBLOBs> reportStructureWithBLOBs) {
         ApiScenarioReportDTO reportDTO = new ApiScenarioReportDTO();
         // 组装报告
         if (CollectionUtils.isNotEmpty(reportStructureWithBLOBs) && CollectionUtils.isNotEmpty(reportResults)) {
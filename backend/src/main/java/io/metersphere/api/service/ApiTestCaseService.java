@@ -1073,6 +1073,31 @@ public class ApiTestCaseService {
         return null;
     }
 
+    /**
+     * 批量获取接口用例的环境，结果中包含所有存在的用例，没有环境或环境已删除时值为 null
+     */
+    public Map<String, String> getApiCaseEnvironmentMap(List<String> caseIds) {
+        Map<String, String> environmentMap = new HashMap<>();
+        if (CollectionUtils.isEmpty(caseIds)) {
+            return environmentMap;
+        }
+        extApiTestCaseMapper.getApiCaseEnvironments(caseIds)
+                .forEach(item -> environmentMap.put(item.get("id"), StringUtils.trimToNull(item.get("environmentId"))));
+        List<String> environmentIds = environmentMap.values().stream()
+                .filter(Objects::nonNull)
+                .distinct()
+                .collect(Collectors.toList());
+        if (CollectionUtils.isNotEmpty(environmentIds)) {
+            ApiTestEnvironmentExample example = new ApiTestEnvironmentExample();
+            example.createCriteria().andIdIn(environmentIds);
+            Set<String> existIds = apiTestEnvironmentMapper.selectByExample(example).stream()
+                    .map(ApiTestEnvironment::getId)
+                    .collect(Collectors.toSet());
+            environmentMap.replaceAll((id, environmentId) -> existIds.contains(environmentId) ? environmentId : null);
+        }
+        return environmentMap;
+    }
+
     public List<String> getFollows(String testId) {
         List<String> result = new ArrayList<>();
         if (StringUtils.isBlank(testId)) {
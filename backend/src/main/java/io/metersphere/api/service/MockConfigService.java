@@ -4,14 +4,16 @@ import com.alibaba.fastjson.JSON;
 import com.alibaba.fastjson.JSONArray;
 import com.alibaba.fastjson.JSONObject;
 import com.alibaba.fastjson.JSONValidator;
+import io.metersphere.api.cache.MockExpectCache;
 import io.metersphere.api.dto.ApiTestImportRequest;
 import io.metersphere.api.dto.automation.EsbDataStruct;
 import io.metersphere.api.dto.automation.TcpTreeTableDataStruct;
-import io.metersphere.api.dto.automation.parse.TcpTreeTableDataParser;
 import io.metersphere.api.dto.definition.parse.ApiDefinitionImport;
 import io.metersphere.api.dto.mock.MockApiUtils;
+import io.metersphere.api.dto.mock.MockExpectMatcher;
 import io.metersphere.api.dto.mock.MockParamSuggestions;
 import io.metersphere.api.dto.mock.RequestMockParams;
+import io.metersphere.api.dto.mock.TcpMockExpectMatcher;
 import io.metersphere.api.dto.mockconfig.MockConfigImportDTO;
 import io.metersphere.api.dto.mockconfig.MockConfigRequest;
 import io.metersphere.api.dto.mockconfig.MockExpectConfigRequest;
@@ -33,17 +35,11 @@ import org.apache.ibatis.session.SqlSession;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.multipart.MultipartFile;
-import org.xml.sax.InputSource;
 
 import javax.annotation.Resource;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
-import javax.xml.parsers.DocumentBuilder;
-import javax.xml.parsers.DocumentBuilderFactory;
-import java.io.*;
 import java.util.*;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
 import java.util.stream.Collectors;
 
 @Service
@@ -137,6 +133,7 @@ public class MockConfigService {
                 expectNumIndex++;
             }
         }
+        MockExpectCache.invalidateAll();
 
     }
 
@@ -168,6 +165,7 @@ public class MockConfigService {
             if (request.getApiId() != null) {
                 config.setApiId(request.getApiId());
                 mockConfigMapper.insert(config);
+                MockExpectCache.invalidate(request.getApiId());
             }
             returnRsp = new MockConfigResponse(config, new ArrayList<>());
         } else {
@@ -199,6 +197,8 @@ public class MockConfigService {
             model.setUpdateTime(timeStmp);
             model.setStatus(request.getStatus());
             mockExpectConfigMapper.updateByPrimaryKeySelective(model);
+            // 请求中没有配置 ID，直接清空
+            MockExpectCache.invalidateAll();
             return model;
         } else {
             return null;
@@ -248,6 +248,7 @@ public class MockConfigService {
             FileUtils.copyBdyFile(request.getCopyId(), model.getId());
         }
         FileUtils.createBodyFiles(model.getId(), bodyFiles);
+        MockExpectCache.invalidateByMockConfigId(request.getMockConfigId());
         return model;
     }
 
@@ -311,336 +312,14 @@ public class MockConfigService {
     }
 
     public MockExpectConfigResponse findExpectConfig(Map<String, String> requestHeaderMap, List<MockExpectConfigResponse> mockExpectConfigList, RequestMockParams requestMockParams) {
-        MockExpectConfigResponse returnModel = null;
-
-        if (requestMockParams == null || requestMockParams.isEmpty()) {
-            //如果参数为空，则匹配请求为空的期望
-            for (MockExpectConfigResponse model : mockExpectConfigList) {
-                if (!model.isStatus()) {
-                    continue;
-                }
-                JSONObject requestObj = model.getRequest();
-                MockExpectConfigResponse resultModel = null;
-                if (requestObj.containsKey("params")) {
-                    resultModel = this.getEmptyRequestMockExpectByParams(requestHeaderMap, model);
-                } else {
-                    resultModel = this.getEmptyRequestMockExpect(model);
-                }
-                if (resultModel != null) {
-                    return resultModel;
-                }
-            }
-        }
-        for (MockExpectConfigResponse model : mockExpectConfigList) {
-            try {
-                if (!model.isStatus()) {
-                    continue;
-                }
-                JSONObject mockExpectRequestObj = model.getRequest();
-                boolean isMatch;
-                if (mockExpectRequestObj.containsKey("params")) {
-                    isMatch = this.isRequestMockExpectMatchingByParams(requestHeaderMap, mockExpectRequestObj, requestMockParams);
-                } else {
-                    isMatch = this.isRequestMockExpectMatching(mockExpectRequestObj, requestMockParams);
-                }
-
-                if (isMatch) {
-                    returnModel = model;
-                    break;
-                }
-            } catch (Exception e) {
-                LogUtil.error(e);
-            }
-        }
-        return returnModel;
-    }
-
-    private boolean isRequestMockExpectMatchingByParams(Map<String, String> requestHeaderMap, JSONObject mockExpectRequestObj, RequestMockParams requestMockParams) {
-        JSONObject expectParamsObj = mockExpectRequestObj.getJSONObject("params");
-        if (expectParamsObj.containsKey("headers")) {
-            //检测headers
-            JSONArray headerArr = expectParamsObj.getJSONArray("headers");
-            for (int i = 0; i < headerArr.size(); i++) {
-                JSONObject jsonObject = headerArr.getJSONObject(i);
-                if (jsonObject.containsKey("name") && jsonObject.containsKey("value")) {
-                    String headerName = jsonObject.getString("name");
-                    String headerValue = jsonObject.getString("value");
-                    if(StringUtils.isNotEmpty(headerName)){
-                        if (!requestHeaderMap.containsKey(headerName) || !StringUtils.equals(requestHeaderMap.get(headerName), headerValue)) {
-                            return false;
-                        }
-                    }
-                }
-            }
-        }
-
-        if (expectParamsObj.containsKey("body")) {
-            JSONObject expectBodyObject = expectParamsObj.getJSONObject("body");
-            JSON mockExpectJsonArray = MockApiUtils.getExpectBodyParams(expectBodyObject);
-            JSONArray jsonArray = requestMockParams.getBodyParams();
-
-            if (mockExpectJsonArray instanceof JSONObject) {
-                if (!JsonStructUtils.checkJsonArrayCompliance(jsonArray, (JSONObject) mockExpectJsonArray)) {
-                    return false;
-                }
-            } else if (mockExpectJsonArray instanceof JSONArray) {
-                if (!JsonStructUtils.checkJsonArrayCompliance(jsonArray, (JSONArray) mockExpectJsonArray)) {
-                    return false;
-                }
-            }
-        }
-
-        if (expectParamsObj.containsKey("arguments")) {
-            JSONArray argumentsArray = expectParamsObj.getJSONArray("arguments");
-            JSONObject urlRequestParamObj = MockApiUtils.getParamsByJSONArray(argumentsArray);
-            if (!JsonStructUtils.checkJsonObjCompliance(requestMockParams.getQueryParamsObj(), urlRequestParamObj)) {
-                return false;
-            }
-        }
-
-        if (expectParamsObj.containsKey("rest")) {
-            JSONArray restArray = expectParamsObj.getJSONArray("rest");
-            JSONObject restRequestParamObj = MockApiUtils.getParamsByJSONArray(restArray);
-            if (!JsonStructUtils.checkJsonObjCompliance(requestMockParams.getRestParamsObj(), restRequestParamObj)) {
-                return false;
-            }
-        }
-//        JSONArray jsonArray = requestMockParams.getBodyParams();
-//        if (jsonArray == null) {
-//            //url or get 参数
-//            JSONArray argumentsArray = expectParamsObj.getJSONArray("arguments");
-//            JSONArray restArray = expectParamsObj.getJSONArray("rest");
-//
-//            JSONObject urlRequestParamObj = MockApiUtils.getParams(argumentsArray);
-//            JSONObject restRequestParamObj = MockApiUtils.getParams(restArray);
-//
-//            if (requestMockParams.getQueryParamsObj() == null || requestMockParams.getQueryParamsObj().isEmpty()) {
-//                return JsonStructUtils.checkJsonObjCompliance(requestMockParams.getRestParamsObj(), restRequestParamObj);
-//            } else if (requestMockParams.getRestParamsObj() == null || requestMockParams.getRestParamsObj().isEmpty()) {
-//                return JsonStructUtils.checkJsonObjCompliance(requestMockParams.getQueryParamsObj(), urlRequestParamObj);
-//            } else {
-//                return JsonStructUtils.checkJsonObjCompliance(requestMockParams.getQueryParamsObj(), urlRequestParamObj)
-//                        && JsonStructUtils.checkJsonObjCompliance(requestMockParams.getRestParamsObj(), restRequestParamObj);
-//            }
-//
-//        } else {
-//            // body参数
-//            JSONObject expectBodyObject = expectParamsObj.getJSONObject("body");
-//            JSONArray mockExpectJsonArray = MockApiUtils.getExpectBodyParams(expectBodyObject);
-//
-//            return JsonStructUtils.checkJsonArrayCompliance(jsonArray, mockExpectJsonArray);
-//        }
-
-//        JSONObject mockExpectJson = new JSONObject();
-//        if (isJsonParam) {
-//            String jsonParams = mockExpectRequestObj.getString("jsonData");
-//            JSONValidator jsonValidator = JSONValidator.from(jsonParams);
-//            if (StringUtils.equalsIgnoreCase("Array", jsonValidator.getType().name())) {
-//                JSONArray mockExpectArr = JSONArray.parseArray(jsonParams);
-//                for (int expectIndex = 0; expectIndex < mockExpectArr.size(); expectIndex++) {
-//                    JSONObject itemObj = mockExpectArr.getJSONObject(expectIndex);
-//                    mockExpectJson = itemObj;
-//                }
-//            } else if (StringUtils.equalsIgnoreCase("Object", jsonValidator.getType().name())) {
-//                JSONObject mockExpectJsonItem = JSONObject.parseObject(jsonParams);
-//                mockExpectJson = mockExpectJsonItem;
-//            }
-//        } else {
-//            JSONArray jsonArray = mockExpectRequestObj.getJSONArray("variables");
-//            for (int i = 0; i < jsonArray.size(); i++) {
-//                JSONObject object = jsonArray.getJSONObject(i);
-//                String name = "";
-//                String value = "";
-//                if (object.containsKey("name")) {
-//                    name = String.valueOf(object.get("name")).trim();
-//                }
-//                if (object.containsKey("value")) {
-//                    value = String.valueOf(object.get("value")).trim();
-//                }
-//                if (StringUtils.isNotEmpty(name)) {
-//                    mockExpectJson.put(name, value);
-//                }
-//            }
-//        }
-
-//        boolean isMatching = JsonStructUtils.checkJsonObjCompliance(mockExpectRequestObj, mockExpectJson);
-        return true;
-    }
-
-    private boolean isRequestMockExpectMatching(JSONObject mockExpectRequestObj, RequestMockParams requestMockParams) {
-        boolean isJsonParam = mockExpectRequestObj.getBoolean("jsonParam");
-        JSONObject mockExpectJson = new JSONObject();
-        if (isJsonParam) {
-            String jsonParams = mockExpectRequestObj.getString("jsonData");
-            JSONValidator jsonValidator = JSONValidator.from(jsonParams);
-            if (StringUtils.equalsIgnoreCase("Array", jsonValidator.getType().name())) {
-                JSONArray mockExpectArr = JSONArray.parseArray(jsonParams);
-                for (int expectIndex = 0; expectIndex < mockExpectArr.size(); expectIndex++) {
-                    JSONObject itemObj = mockExpectArr.getJSONObject(expectIndex);
-                    mockExpectJson = itemObj;
-                }
-            } else if (StringUtils.equalsIgnoreCase("Object", jsonValidator.getType().name())) {
-                JSONObject mockExpectJsonItem = JSONObject.parseObject(jsonParams);
-                mockExpectJson = mockExpectJsonItem;
-            }
-        } else {
-            JSONArray jsonArray = mockExpectRequestObj.getJSONArray("variables");
-            for (int i = 0; i < jsonArray.size(); i++) {
-                JSONObject object = jsonArray.getJSONObject(i);
-                String name = "";
-                String value = "";
-                if (object.containsKey("name")) {
-                    name = String.valueOf(object.get("name")).trim();
-                }
-                if (object.containsKey("value")) {
-                    value = String.valueOf(object.get("value")).trim();
-                }
-                if (StringUtils.isNotEmpty(name)) {
-                    mockExpectJson.put(name, value);
-                }
-            }
-        }
-
-        boolean matchRest = false;
-        boolean matchQuery = false;
-        boolean matchBody = false;
-
-        if (requestMockParams.getQueryParamsObj() != null) {
-            matchQuery = JsonStructUtils.checkJsonObjCompliance(requestMockParams.getQueryParamsObj(), mockExpectJson);
-        }
-        if (requestMockParams.getRestParamsObj() != null) {
-            matchRest = JsonStructUtils.checkJsonObjCompliance(requestMockParams.getRestParamsObj(), mockExpectJson);
-        }
-        if (requestMockParams.getBodyParams() != null) {
-            for (int i = 0; i < requestMockParams.getBodyParams().size(); i++) {
-                JSONObject reqJsonObj = requestMockParams.getBodyParams().getJSONObject(i);
-                matchBody = JsonStructUtils.checkJsonObjCompliance(reqJsonObj, mockExpectJson);
-                if (matchBody) {
-                    break;
-                }
-            }
-        }
-
-//        boolean isMatching = JsonStructUtils.checkJsonObjCompliance(reqJsonObj, mockExpectJson);
-        return matchRest || matchQuery || matchBody;
-    }
-
-    private MockExpectConfigResponse getEmptyRequestMockExpectByParams(Map<String, String> requestHeaderMap, MockExpectConfigResponse model) {
-        JSONObject requestObj = model.getRequest();
-        if (requestObj.containsKey("params")) {
-            JSONObject paramsObj = requestObj.getJSONObject("params");
-            if (paramsObj.containsKey("headers")) {
-                JSONArray headArray = paramsObj.getJSONArray("headers");
-                boolean isHeadMatch = MockApiUtils.matchRequestHeader(headArray, requestHeaderMap);
-                if (!isHeadMatch) {
-                    return null;
-                }
-                //判断rest为空
-                if (paramsObj.containsKey("rest")) {
-                    JSONArray restArray = paramsObj.getJSONArray("rest");
-                    for (int i = 0; i < restArray.size(); i++) {
-                        JSONObject restObj = restArray.getJSONObject(i);
-                        if (restObj.containsKey("name") && restObj.containsKey("value")) {
-                            return null;
-                        }
-                    }
-                }
-                //判断arguments为空
-                if (paramsObj.containsKey("arguments")) {
-                    JSONArray argumentsArray = paramsObj.getJSONArray("arguments");
-                    for (int i = 0; i < argumentsArray.size(); i++) {
-                        JSONObject argumentsObj = argumentsArray.getJSONObject(i);
-                        if (argumentsObj.containsKey("name") && argumentsObj.containsKey("value")) {
-                            return null;
-                        }
-                    }
-                }
-                //判断请求体为空
-                if (paramsObj.containsKey("body")) {
-                    JSONObject bodyObj = paramsObj.getJSONObject("body");
-                    if (bodyObj.containsKey("type")) {
-                        String type = bodyObj.getString("type");
-                        if (StringUtils.equalsIgnoreCase(type, "json")) {
-                            if (bodyObj.containsKey("format") && StringUtils.equalsIgnoreCase(bodyObj.getString("format"), "json-schema") && bodyObj.containsKey("jsonSchema") && bodyObj.get("jsonSchema") != null) {
-                                return null;
-                            } else {
-                                if (bodyObj.containsKey("raw")) {
-                                    String raw = bodyObj.getString("raw");
-                                    if (StringUtils.isNotEmpty(raw)) {
-                                        return null;
-                                    }
-                                }
-                            }
-                            //Binary的先不处理
-//                        }else if(StringUtils.equalsIgnoreCase(type,"binary")){
-//                            if(bodyObj.containsKey("binary")){
-//                                JSONArray binaryArray = bodyObj.getJSONArray("binary");
-//                                for(int i = 0; i < binaryArray.size(); i ++){
-//                                    JSONObject binarObj = binaryArray.getJSONObject(i);
-//                                    if(binarObj.containsKey("enable") && binarObj.containsKey("description")){
-//                                        boolean isEnable = binarObj.getBoolean("enable");
-//                                        if(isEnable){
-//                                            return null;
-//                                        }
-//                                    }
-//                                }
-//                            }
-                        } else if (StringUtils.equalsAnyIgnoreCase(type, "KeyValue", "Form Data", "WWW_FORM")) {
-                            if (bodyObj.containsKey("kvs")) {
-                                JSONArray kvsArray = bodyObj.getJSONArray("kvs");
-                                for (int i = 0; i < kvsArray.size(); i++) {
-                                    JSONObject kvsObj = kvsArray.getJSONObject(i);
-                                    if (kvsObj.containsKey("name") && kvsObj.containsKey("value")) {
-                                        return null;
-                                    }
-                                }
-                            }
-                        } else if (StringUtils.equalsAnyIgnoreCase(type, "XML", "Raw")) {
-                            String raw = bodyObj.getString("raw");
-                            if (StringUtils.isNotEmpty(raw)) {
-                                return null;
-                            }
-                        }
-                    }
-                }
-                return model;
-            } else {
-                return null;
-            }
-        } else {
-            return null;
-        }
+        return new MockExpectMatcher(new MockConfigResponse(null, mockExpectConfigList)).match(requestHeaderMap, requestMockParams);
     }
 
-    private MockExpectConfigResponse getEmptyRequestMockExpect(MockExpectConfigResponse model) {
-        JSONObject requestObj = model.getRequest();
-        boolean isJsonParam = requestObj.getBoolean("jsonParam");
-        if (isJsonParam) {
-            if (StringUtils.isEmpty(requestObj.getString("jsonData"))) {
-                return model;
-            }
-        } else {
-            JSONObject mockExpectJson = new JSONObject();
-            JSONArray jsonArray = requestObj.getJSONArray("variables");
-            for (int i = 0; i < jsonArray.size(); i++) {
-                JSONObject object = jsonArray.getJSONObject(i);
-                String name = "";
-                String value = "";
-                if (object.containsKey("name")) {
-                    name = String.valueOf(object.get("name")).trim();
-                }
-                if (object.containsKey("value")) {
-                    value = String.valueOf(object.get("value")).trim();
-                }
-                if (StringUtils.isNotEmpty(name)) {
-                    mockExpectJson.put(name, value);
-                }
-            }
-            if (mockExpectJson.isEmpty()) {
-                return model;
-            }
-        }
-        return null;
+    /**
+     * 查询接口的期望匹配器，期望解析结果按接口缓存
+     */
+    public MockExpectMatcher findExpectMatcherByApiId(String apiId) {
+        return MockExpectCache.get(apiId, () -> new MockExpectMatcher(this.findByApiId(apiId)));
     }
 
     public MockExpectConfigResponse findExpectConfigByArrayJson(Map<String, String> requestHeaderMap, List<MockExpectConfigResponse> mockExpectConfigList, JSONArray reqJsonArray) {
@@ -957,6 +636,7 @@ public class MockConfigService {
         if (mockBlobs != null) {
             this.deleteMockExpectFiles(mockBlobs);
             mockExpectConfigMapper.deleteByPrimaryKey(id);
+            MockExpectCache.invalidateByMockConfigId(mockBlobs.getMockConfigId());
         }
     }
 
@@ -984,6 +664,7 @@ public class MockConfigService {
             mockExpectConfigMapper.deleteByExample(example);
         }
         mockConfigMapper.deleteByExample(configExample);
+        MockExpectCache.invalidate(apiId);
     }
 
     public Map<String, List<MockParamSuggestions>> getApiParamsByApiDefinitionBLOBs(ApiDefinitionWithBLOBs apiModel) {
@@ -1151,7 +832,7 @@ public class MockConfigService {
         String returnStr = "";
         boolean isMatch = false;
         String url = request.getRequestURL().toString();
-        List<ApiDefinitionWithBLOBs> aualifiedApiList = new ArrayList<>();
+        List<ApiDefinition> aualifiedApiList = new ArrayList<>();
         if (project != null) {
             String urlSuffix = this.getUrlSuffix(project.getSystemId(), request);
             aualifiedApiList = apiDefinitionService.preparedUrl(project.getId(), method, urlSuffix);
@@ -1159,11 +840,10 @@ public class MockConfigService {
             JSON paramJson = MockApiUtils.getPostParamMap(request);
             JSONObject parameterObject = MockApiUtils.getParameterJsonObject(request);
 
-            for (ApiDefinitionWithBLOBs api : aualifiedApiList) {
+            for (ApiDefinition api : aualifiedApiList) {
                 RequestMockParams mockParams = MockApiUtils.getParams(urlSuffix, api.getPath(), parameterObject, paramJson);
 
-                MockConfigResponse mockConfigData = this.findByApiId(api.getId());
-                MockExpectConfigResponse finalExpectConfig = this.findExpectConfig(requestHeaderMap, mockConfigData.getMockExpectConfigList(), mockParams);
+                MockExpectConfigResponse finalExpectConfig = this.findExpectMatcherByApiId(api.getId()).match(requestHeaderMap, mockParams);
                 if (finalExpectConfig != null) {
                     isMatch = true;
                     returnStr = this.updateHttpServletResponse(finalExpectConfig, url, requestHeaderMap, mockParams, response);
@@ -1214,7 +894,7 @@ public class MockConfigService {
         String returnStr = "";
         boolean isMatch = false;
         String url = request.getRequestURL().toString();
-        List<ApiDefinitionWithBLOBs> aualifiedApiList = new ArrayList<>();
+        List<ApiDefinition> aualifiedApiList = new ArrayList<>();
         if (project != null) {
             String urlSuffix = this.getUrlSuffix(project.getSystemId(), request);
             aualifiedApiList = apiDefinitionService.preparedUrl(project.getId(), method, urlSuffix);
@@ -1229,17 +909,14 @@ public class MockConfigService {
             JSON paramJson = MockApiUtils.getPostParamMap(request);
             JSONObject parameterObject = MockApiUtils.getParameterJsonObject(request);
 
-            for (ApiDefinitionWithBLOBs api : aualifiedApiList) {
+            for (ApiDefinition api : aualifiedApiList) {
                 RequestMockParams paramMap = MockApiUtils.getParams(urlSuffix, api.getPath(), parameterObject, paramJson);
 
-                MockConfigResponse mockConfigData = this.findByApiId(api.getId());
-                if (mockConfigData != null && mockConfigData.getMockExpectConfigList() != null) {
-                    MockExpectConfigResponse finalExpectConfig = this.findExpectConfig(requestHeaderMap, mockConfigData.getMockExpectConfigList(), paramMap);
-                    if (finalExpectConfig != null) {
-                        returnStr = this.updateHttpServletResponse(finalExpectConfig, url, requestHeaderMap, paramMap, response);
-                        isMatch = true;
-                        break;
-                    }
+                MockExpectConfigResponse finalExpectConfig = this.findExpectMatcherByApiId(api.getId()).match(requestHeaderMap, paramMap);
+                if (finalExpectConfig != null) {
+                    returnStr = this.updateHttpServletResponse(finalExpectConfig, url, requestHeaderMap, paramMap, response);
+                    isMatch = true;
+                    break;
                 }
             }
         }
@@ -1296,118 +973,16 @@ public class MockConfigService {
     }
 
     public MockExpectConfigWithBLOBs matchTcpMockExpect(String message, int port) {
-        ProjectExample projectExample = new ProjectExample();
-        projectExample.createCriteria().andMockTcpPortEqualTo(port).andIsMockTcpOpenEqualTo(true);
-        List<Project> projectList = projectMapper.selectByExample(projectExample);
-
-        boolean isJsonMessage = this.checkMessageIsJson(message);
-        boolean isXMLMessage = this.checkMessageIsXml(message);
-
-        List<MockExpectConfigWithBLOBs> structResult = new ArrayList<>();
-        List<MockExpectConfigWithBLOBs> rawResult = new ArrayList<>();
-
-        for (Project project : projectList) {
-            String projectId = project.getId();
-            List<MockExpectConfigWithBLOBs> mockExpectConfigList = extMockExpectConfigMapper.selectByProjectIdAndStatusIsOpen(projectId);
-            for (MockExpectConfigWithBLOBs expectConfig : mockExpectConfigList) {
-                String requestStr = expectConfig.getRequest();
-                String responseStr = expectConfig.getResponse();
-                if (StringUtils.isEmpty(responseStr)) {
-                    continue;
-                }
-
-                try {
-                    JSONObject requestJson = JSONObject.parseObject(requestStr);
-                    if (requestJson.containsKey("reportType")) {
-                        boolean isMatch = false;
-                        boolean isRaw = false;
-                        String reportType = requestJson.getString("reportType");
-
-                        if (isJsonMessage && StringUtils.equalsIgnoreCase(reportType, "json")) {
-                            if (requestJson.containsKey("jsonDataStruct")) {
-                                isMatch = JsonStructUtils.checkJsonCompliance(message, requestJson.getString("jsonDataStruct"));
-                            }
-                        } else if (isXMLMessage && StringUtils.equalsIgnoreCase(reportType, "xml")) {
-                            if (requestJson.containsKey("xmlDataStruct")) {
-                                JSONObject sourceObj = XMLUtils.XmlToJson(message);
-                                String xmlStr = "";
-                                try {
-                                    List<TcpTreeTableDataStruct> tcpDataList = JSONArray.parseArray(requestJson.getString("xmlDataStruct"), TcpTreeTableDataStruct.class);
-                                    xmlStr = TcpTreeTableDataParser.treeTableData2Xml(tcpDataList);
-                                } catch (Exception e) {
-
-                                }
-                                JSONObject matchObj = XMLUtils.XmlToJson(xmlStr);
-                                isMatch = JsonStructUtils.checkJsonObjCompliance(sourceObj, matchObj);
-                            }
-                        } else if (StringUtils.equalsIgnoreCase(reportType, "raw")) {
-                            if (requestJson.containsKey("rawDataStruct")) {
-                                String rawDataStruct = requestJson.getString("rawDataStruct");
-                                if (StringUtils.contains(message, rawDataStruct)) {
-                                    isMatch = true;
-                                    isRaw = true;
-                                } else {
-                                    Pattern pattern = Pattern.compile(rawDataStruct);
-                                    Matcher matcher = pattern.matcher(message);
-                                    if (matcher.find()) {
-                                        isMatch = true;
-                                        isRaw = true;
-                                    }
-                                }
-                            }
-                        }
-
-                        if (isMatch) {
-                            JSONObject responseObj = JSONObject.parseObject(responseStr);
-                            if (responseObj.containsKey("body")) {
-                                if (isRaw) {
-                                    rawResult.add(expectConfig);
-                                } else {
-                                    structResult.add(expectConfig);
-                                }
-                            }
-                        }
-                    }
-
-                } catch (Exception e) {
-                }
-            }
-        }
-        //优先返回结构匹配的数据
-        if (!structResult.isEmpty()) {
-            return structResult.get(0);
-        } else {
-            if (!rawResult.isEmpty()) {
-                return rawResult.get(0);
-            } else {
-                return null;
+        return MockExpectCache.getTcp(port, () -> {
+            ProjectExample projectExample = new ProjectExample();
+            projectExample.createCriteria().andMockTcpPortEqualTo(port).andIsMockTcpOpenEqualTo(true);
+            List<Project> projectList = projectMapper.selectByExample(projectExample);
+            List<MockExpectConfigWithBLOBs> expectConfigList = new ArrayList<>();
+            for (Project project : projectList) {
+                expectConfigList.addAll(extMockExpectConfigMapper.selectByProjectIdAndStatusIsOpen(project.getId()));
             }
-        }
-    }
-
-    private boolean checkMessageIsXml(String message) {
-        boolean isXml = false;
-        try {
-            DocumentBuilderFactory documentBuilderFactory = DocumentBuilderFactory.newInstance();
-            DocumentBuilder builder = documentBuilderFactory.newDocumentBuilder();
-            builder.parse(new InputSource(new ByteArrayInputStream(message.getBytes("utf-8"))));
-            isXml = true;
-        } catch (Exception e) {
-        }
-        return isXml;
-    }
-
-    private boolean checkMessageIsJson(String message) {
-        boolean isJson = false;
-        try {
-            JSONValidator validator = JSONValidator.from(message);
-            String type = validator.getType().name();
-            if (!StringUtils.equalsIgnoreCase("value", type)) {
-                isJson = true;
-            }
-        } catch (Exception e) {
-        }
-        return isJson;
+            return new TcpMockExpectMatcher(expectConfigList);
+        }).match(message);
     }
 
     public void importMock(ApiDefinitionImport apiImport, SqlSession sqlSession, ApiTestImportRequest request) {
@@ -1452,6 +1027,7 @@ public class MockConfigService {
                 if (batchCount % 300 == 0) {
                     sqlSession.flushStatements();
                 }
+                MockExpectCache.invalidate(apiId);
             }
 
         }
@@ -1484,6 +1060,7 @@ public class MockConfigService {
                     }
                 }
             }
+            MockExpectCache.invalidate(apiDefinitionWithBLOBs.getId());
         }
     }
 }
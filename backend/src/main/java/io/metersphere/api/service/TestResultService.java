@@ -7,6 +7,7 @@ import io.metersphere.base.mapper.ApiScenarioReportMapper;
 import io.metersphere.commons.constants.ApiRunMode;
 import io.metersphere.commons.constants.NoticeConstants;
 import io.metersphere.commons.constants.ReportTriggerMode;
+import io.metersphere.commons.utils.BeanUtils;
 import io.metersphere.commons.utils.CommonBeanFactory;
 import io.metersphere.commons.utils.DateUtils;
 import io.metersphere.commons.utils.LogUtil;
@@ -73,6 +74,40 @@ public class TestResultService {
         updateTestCaseStates(requestResults, dto.getRunMode());
     }
 
+    /**
+     * 批量存储同一报告、同一执行模式的结果，在一个事务内完成
+     * 场景报告只按报告追加结果，合并后一次写入；接口用例的存储依赖单条消息上下文，逐条处理
+     */
+    public void batchSaveResults(List<ResultDTO> dtoList) {
+        if (CollectionUtils.isEmpty(dtoList)) {
+            return;
+        }
+        ResultDTO first = dtoList.get(0);
+        if (dtoList.size() > 1 && StringUtils.equalsAny(first.getRunMode(), ApiRunMode.SCENARIO.name(), ApiRunMode.SCENARIO_PLAN.name(), ApiRunMode.SCHEDULE_SCENARIO_PLAN.name(), ApiRunMode.SCHEDULE_SCENARIO.name(), ApiRunMode.JENKINS_SCENARIO_PLAN.name())) {
+            List<RequestResult> requestResults = new LinkedList<>();
+            List<String> environmentList = new LinkedList<>();
+            for (ResultDTO dto : dtoList) {
+                if (CollectionUtils.isNotEmpty(dto.getRequestResults())) {
+                    requestResults.addAll(dto.getRequestResults());
+                }
+                if (dto.getArbitraryData() != null && dto.getArbitraryData().containsKey("ENV")) {
+                    environmentList.addAll((List<String>) dto.getArbitraryData().get("ENV"));
+                }
+            }
+            // 合并到副本上，存储失败后调用方还可以按原始消息逐条重试
+            ResultDTO merged = BeanUtils.copyBean(new ResultDTO(), first);
+            merged.setRequestResults(requestResults);
+            if (CollectionUtils.isNotEmpty(environmentList)) {
+                Map<String, Object> arbitraryData = first.getArbitraryData() == null ? new HashMap<>() : new HashMap<>(first.getArbitraryData());
+                arbitraryData.put("ENV", environmentList);
+                merged.setArbitraryData(arbitraryData);
+            }
+            this.saveResults(merged);
+        } else {
+            dtoList.forEach(this::saveResults);
+        }
+    }
+
     public void editReportTime(ResultDTO dto) {
         ApiScenarioReport report = apiScenarioReportMapper.selectByPrimaryKey(dto.getReportId());
         if (report != null) {
@@ -1,5 +1,6 @@
 package io.metersphere.api.tcp;
 
+import io.metersphere.api.cache.MockExpectCache;
 import io.metersphere.api.tcp.server.TCPServer;
 import io.metersphere.commons.exception.MSException;
 import io.metersphere.commons.utils.LogUtil;
@@ -20,6 +21,8 @@ public class TCPPool {
     public static String createTcp(int port){
         String returnString = "";
         if(port > 0){
+            // 端口对应的项目可能发生变化，重新加载期望
+            MockExpectCache.invalidateTcp(port);
             TCPServer tcpServer = null;
             if(serverSockedMap.containsKey(port)){
                 tcpServer = serverSockedMap.get(port);
@@ -65,6 +68,7 @@ public class TCPPool {
                 }else {
                     stringBuffer.append("Port is "+port + ";");
                     stringBuffer.append("Server is open: "+ tcpServer.isSocketOpen()+";");
+                    stringBuffer.append(tcpServer.getStatus());
                 }
             }
             return stringBuffer.toString();
@@ -0,0 +1,170 @@
+package io.metersphere.api.tcp.server;
+
+import io.metersphere.commons.utils.CommonBeanFactory;
+import org.apache.commons.lang3.StringUtils;
+import org.apache.commons.text.StringEscapeUtils;
+import org.springframework.core.env.Environment;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * TCP Mock 报文分帧
+ * RAW：一次可读的数据作为一个报文，响应后关闭连接（与原先的行为一致）
+ * LENGTH_PREFIX：4 字节大端长度 + 报文；DELIMITER：以分隔符结尾；FIXED_LENGTH：固定长度
+ * 除 RAW 外的方式在同一个连接上可以连续收发多个报文
+ */
+public class TCPFrameCodec {
+    public enum Mode {
+        RAW, LENGTH_PREFIX, DELIMITER, FIXED_LENGTH
+    }
+
+    private static final int LENGTH_FIELD_SIZE = 4;
+    private static final int DEFAULT_MAX_FRAME_SIZE = 1024 * 1024;
+
+    private final Mode mode;
+    private final byte[] delimiter;
+    private final int fixedLength;
+    private final int maxFrameSize;
+
+    // 当前连接已收到但还不够一帧的数据
+    private final ByteArrayOutputStream pending = new ByteArrayOutputStream();
+
+    private TCPFrameCodec(Mode mode, byte[] delimiter, int fixedLength, int maxFrameSize) {
+        this.mode = mode;
+        this.delimiter = delimiter;
+        this.fixedLength = fixedLength;
+        this.maxFrameSize = maxFrameSize;
+    }
+
+    /**
+     * 读取配置 tcp.mock.framing / tcp.mock.delimiter / tcp.mock.frame-length / tcp.mock.max-frame-size
+     */
+    public static TCPFrameCodec fromEnvironment() {
+        Environment env = CommonBeanFactory.getBean(Environment.class);
+        if (env == null) {
+            return new TCPFrameCodec(Mode.RAW, null, 0, DEFAULT_MAX_FRAME_SIZE);
+        }
+        Mode mode = Mode.RAW;
+        String framing = env.getProperty("tcp.mock.framing");
+        if (StringUtils.isNotBlank(framing)) {
+            mode = Mode.valueOf(framing.trim().toUpperCase());
+        }
+        String delimiter = StringEscapeUtils.unescapeJava(env.getProperty("tcp.mock.delimiter", "\\n"));
+        if (mode == Mode.DELIMITER && StringUtils.isEmpty(delimiter)) {
+            throw new IllegalArgumentException("tcp.mock.delimiter is empty");
+        }
+        int fixedLength = env.getProperty("tcp.mock.frame-length", Integer.class, 0);
+        if (mode == Mode.FIXED_LENGTH && fixedLength <= 0) {
+            throw new IllegalArgumentException("tcp.mock.frame-length must be greater than 0");
+        }
+        int maxFrameSize = env.getProperty("tcp.mock.max-frame-size", Integer.class, DEFAULT_MAX_FRAME_SIZE);
+        return new TCPFrameCodec(mode, delimiter.getBytes(StandardCharsets.UTF_8), fixedLength, maxFrameSize);
+    }
+
+    /**
+     * 新连接使用相同配置的编解码器
+     */
+    public TCPFrameCodec newInstance() {
+        return new TCPFrameCodec(mode, delimiter, fixedLength, maxFrameSize);
+    }
+
+    public Mode getMode() {
+        return mode;
+    }
+
+    public boolean isCloseAfterResponse() {
+        return mode == Mode.RAW;
+    }
+
+    /**
+     * 追加读到的数据
+     */
+    public void append(ByteBuffer buffer) {
+        pending.write(buffer.array(), buffer.arrayOffset() + buffer.position(), buffer.remaining());
+        if (pending.size() > maxFrameSize + LENGTH_FIELD_SIZE && mode != Mode.RAW) {
+            throw new IllegalStateException("TCP mock frame exceeds " + maxFrameSize + " bytes");
+        }
+    }
+
+    /**
+     * 取出已完整的报文；RAW 方式在一次读取结束时调用，取出全部数据
+     */
+    public List<byte[]> decode() {
+        List<byte[]> frames = new ArrayList<>();
+        byte[] data = pending.toByteArray();
+        int offset = 0;
+        switch (mode) {
+            case LENGTH_PREFIX:
+                while (data.length - offset >= LENGTH_FIELD_SIZE) {
+                    int length = ByteBuffer.wrap(data, offset, LENGTH_FIELD_SIZE).getInt();
+                    if (length < 0 || length > maxFrameSize) {
+                        throw new IllegalStateException("Illegal TCP mock frame length: " + length);
+                    }
+                    if (data.length - offset - LENGTH_FIELD_SIZE < length) {
+                        break;
+                    }
+                    frames.add(Arrays.copyOfRange(data, offset + LENGTH_FIELD_SIZE, offset + LENGTH_FIELD_SIZE + length));
+                    offset += LENGTH_FIELD_SIZE + length;
+                }
+                break;
+            case DELIMITER:
+                int index;
+                while ((index = indexOf(data, delimiter, offset)) >= 0) {
+                    frames.add(Arrays.copyOfRange(data, offset, index));
+                    offset = index + delimiter.length;
+                }
+                break;
+            case FIXED_LENGTH:
+                while (data.length - offset >= fixedLength) {
+                    frames.add(Arrays.copyOfRange(data, offset, offset + fixedLength));
+                    offset += fixedLength;
+                }
+                break;
+            default:
+                if (data.length > 0) {
+                    frames.add(data);
+                    offset = data.length;
+                }
+                break;
+        }
+        pending.reset();
+        if (offset < data.length) {
+            pending.write(data, offset, data.length - offset);
+        }
+        return frames;
+    }
+
+    /**
+     * 按分帧方式封装响应
+     */
+    public byte[] encode(byte[] body) {
+        switch (mode) {
+            case LENGTH_PREFIX:
+                return ByteBuffer.allocate(LENGTH_FIELD_SIZE + body.length).putInt(body.length).put(body).array();
+            case DELIMITER:
+                byte[] frame = Arrays.copyOf(body, body.length + delimiter.length);
+                System.arraycopy(delimiter, 0, frame, body.length, delimiter.length);
+                return frame;
+            default:
+                return body;
+        }
+    }
+
+    private static int indexOf(byte[] data, byte[] target, int from) {
+        outer:
+        for (int i = from; i <= data.length - target.length; i++) {
+            for (int j = 0; j < target.length; j++) {
+                if (data[i + j] != target[j]) {
+                    continue outer;
+                }
+            }
+            return i;
+        }
+        return -1;
+    }
+}
@@ -1,55 +1,188 @@
 package io.metersphere.api.tcp.server;
 
+import io.metersphere.api.exec.utils.NamedThreadFactory;
+import io.metersphere.commons.utils.CommonBeanFactory;
 import io.metersphere.commons.utils.LogUtil;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
 
-import java.net.ServerSocket;
-import java.net.Socket;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.Iterator;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * @author song.tianyang
  * @Date 2021/8/11 10:35 上午
+ * <p>
+ * 基于 selector 的 TCP Mock 服务，一个端口一个 selector 线程处理所有连接；
+ * 期望匹配和延时响应在共用的工作线程中执行，慢连接和延时响应不会阻塞同端口的其他连接
  */
 public class TCPServer implements Runnable {
-    private int port;
-    private ServerSocket serverSocket;
+    private static final ScheduledExecutorService WORKERS = Executors.newScheduledThreadPool(4, new NamedThreadFactory("MS-TCP-MOCK"));
+    private static final int READ_BUFFER_SIZE = 8192;
 
-    private TCPServicer servicer;
+    private final int port;
+    private final Metrics metrics = new Metrics();
+    private final Queue<Runnable> selectorTasks = new ConcurrentLinkedQueue<>();
+    private volatile ServerSocketChannel serverChannel;
+    private volatile Selector selector;
 
-    public TCPServer(int port){
+    public TCPServer(int port) {
         this.port = port;
+        this.registerMetrics();
     }
 
     public void openSocket() throws Exception {
-        this.serverSocket = new ServerSocket(this.port);
-        int connectIndex = 0;
-
-        while (true) {
-            if (!this.serverSocket.isClosed()) {
-                Socket socket = this.serverSocket.accept();
-                servicer = new TCPServicer(socket,port);
-                servicer.run();
+        TCPFrameCodec codec = TCPFrameCodec.fromEnvironment();
+        Selector selector = Selector.open();
+        ServerSocketChannel serverChannel = ServerSocketChannel.open();
+        try {
+            serverChannel.configureBlocking(false);
+            serverChannel.bind(new InetSocketAddress(this.port));
+            serverChannel.register(selector, SelectionKey.OP_ACCEPT);
+        } catch (Exception e) {
+            serverChannel.close();
+            selector.close();
+            throw e;
+        }
+        this.selector = selector;
+        this.serverChannel = serverChannel;
+
+        ByteBuffer readBuffer = ByteBuffer.allocate(READ_BUFFER_SIZE);
+        try {
+            while (serverChannel.isOpen()) {
+                selector.select();
+                Runnable task;
+                while ((task = selectorTasks.poll()) != null) {
+                    task.run();
+                }
+                Iterator<SelectionKey> iterator = selector.selectedKeys().iterator();
+                while (iterator.hasNext()) {
+                    SelectionKey key = iterator.next();
+                    iterator.remove();
+                    if (!key.isValid()) {
+                        continue;
+                    }
+                    if (key.isAcceptable()) {
+                        this.accept(selector, serverChannel, codec);
+                        continue;
+                    }
+                    TCPServicer servicer = (TCPServicer) key.attachment();
+                    try {
+                        if (key.isReadable()) {
+                            servicer.onReadable(readBuffer);
+                        }
+                        if (key.isValid() && key.isWritable()) {
+                            servicer.onWritable();
+                        }
+                    } catch (Exception e) {
+                        LogUtil.error(e.getMessage(), e);
+                        servicer.close();
+                    }
+                }
             }
-            if (this.serverSocket.isClosed()) {
-                break;
+        } finally {
+            for (SelectionKey key : selector.keys()) {
+                if (key.attachment() instanceof TCPServicer) {
+                    ((TCPServicer) key.attachment()).close();
+                }
             }
+            selectorTasks.clear();
+            selector.close();
         }
     }
 
-    public boolean  isSocketOpen(){
-        if (this.serverSocket != null && !this.serverSocket.isClosed()) {
-            return true;
-        }else {
-            return false;
+    private void accept(Selector selector, ServerSocketChannel serverChannel, TCPFrameCodec codec) throws Exception {
+        SocketChannel channel;
+        while ((channel = serverChannel.accept()) != null) {
+            channel.configureBlocking(false);
+            TCPServicer servicer = new TCPServicer(this, channel, codec.newInstance());
+            servicer.register(channel.register(selector, SelectionKey.OP_READ, servicer));
+            metrics.connectionOpened();
         }
     }
 
-    public void closeSocket() throws Exception {
-        if (this.serverSocket != null && !this.serverSocket.isClosed()) {
-            if(servicer != null){
-                servicer.close();
+    /**
+     * 在工作线程中匹配期望，按配置的延时发送响应；同一连接同时只有一个报文在处理，由 TCPServicer 保证
+     */
+    void dispatch(TCPServicer servicer, String message) {
+        WORKERS.execute(() -> {
+            TCPServicer.MockResponse response;
+            try {
+                response = TCPServicer.getReturnMsg(message, port);
+            } catch (Exception e) {
+                LogUtil.error(e);
+                response = new TCPServicer.MockResponse("", 0);
+            }
+            byte[] body = response.body.getBytes();
+            if (response.delayed > 0) {
+                WORKERS.schedule(() -> servicer.respond(body), response.delayed, TimeUnit.MILLISECONDS);
+            } else {
+                servicer.respond(body);
             }
-            this.serverSocket.close();
+        });
+    }
+
+    /**
+     * 在 selector 线程中执行
+     */
+    void execute(Runnable task) {
+        Selector current = this.selector;
+        if (current != null && current.isOpen()) {
+            selectorTasks.offer(task);
+            current.wakeup();
+        }
+    }
+
+    Metrics getMetrics() {
+        return metrics;
+    }
+
+    public boolean isSocketOpen() {
+        return this.serverChannel != null && this.serverChannel.isOpen();
+    }
+
+    public void closeSocket() throws Exception {
+        if (this.serverChannel != null && this.serverChannel.isOpen()) {
+            this.serverChannel.close();
+            this.selector.wakeup();
+        }
+    }
+
+    public String getStatus() {
+        return "Connections active: " + metrics.active.get() + ", total: " + metrics.accepted.get()
+                + "; Messages received: " + metrics.received.get() + ", sent: " + metrics.sent.get() + ";";
+    }
+
+    private void registerMetrics() {
+        MeterRegistry meterRegistry = CommonBeanFactory.getBean(MeterRegistry.class);
+        if (meterRegistry == null) {
+            return;
         }
+        String tag = String.valueOf(port);
+        Gauge.builder("ms.mock.tcp.connections.active", metrics, m -> m.active.get())
+                .tag("port", tag).description("TCP Mock 当前连接数").register(meterRegistry);
+        Gauge.builder("ms.mock.tcp.connections.accepted", metrics, m -> m.accepted.get())
+                .tag("port", tag).description("TCP Mock 累计连接数").register(meterRegistry);
+        Gauge.builder("ms.mock.tcp.messages.received", metrics, m -> m.received.get())
+                .tag("port", tag).description("TCP Mock 累计收到报文数").register(meterRegistry);
+        Gauge.builder("ms.mock.tcp.messages.sent", metrics, m -> m.sent.get())
+                .tag("port", tag).description("TCP Mock 累计发送响应数").register(meterRegistry);
+        Gauge.builder("ms.mock.tcp.bytes.in", metrics, m -> m.bytesIn.get())
+                .tag("port", tag).description("TCP Mock 累计读取字节数").register(meterRegistry);
+        Gauge.builder("ms.mock.tcp.bytes.out", metrics, m -> m.bytesOut.get())
+                .tag("port", tag).description("TCP Mock 累计写出字节数").register(meterRegistry);
     }
 
     @Override
@@ -60,4 +193,38 @@ public class TCPServer implements Runnable {
             LogUtil.error(e);
         }
     }
+
+    static class Metrics {
+        private final AtomicInteger active = new AtomicInteger();
+        private final AtomicLong accepted = new AtomicLong();
+        private final AtomicLong received = new AtomicLong();
+        private final AtomicLong sent = new AtomicLong();
+        private final AtomicLong bytesIn = new AtomicLong();
+        private final AtomicLong bytesOut = new AtomicLong();
+
+        void connectionOpened() {
+            active.incrementAndGet();
+            accepted.incrementAndGet();
+        }
+
+        void connectionClosed() {
+            active.decrementAndGet();
+        }
+
+        void messageReceived() {
+            received.incrementAndGet();
+        }
+
+        void messageSent() {
+            sent.incrementAndGet();
+        }
+
+        void bytesIn(long len) {
+            bytesIn.addAndGet(len);
+        }
+
+        void bytesOut(long len) {
+            bytesOut.addAndGet(len);
+        }
+    }
 }
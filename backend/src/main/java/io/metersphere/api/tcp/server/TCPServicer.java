@@ -7,94 +7,195 @@ import io.metersphere.base.domain.MockExpectConfigWithBLOBs;
 import io.metersphere.commons.utils.CommonBeanFactory;
 import io.metersphere.commons.utils.LogUtil;
 
-import java.io.InputStream;
-import java.io.OutputStream;
-import java.net.Socket;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.SocketChannel;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 
+/**
+ * 单个 TCP 连接的读写处理
+ * 读写只在 TCPServer 的 selector 线程中执行；匹配期望和延时响应交给 TCPServer 的工作线程，
+ * 生成的响应放入写队列后由 selector 线程发送，不会阻塞其他连接。
+ * 同一连接的报文按收到的顺序逐个处理，上一个报文响应后再处理下一个，保证响应顺序与请求一致
+ */
 public class TCPServicer {
-    private Socket s;
-    private InputStream is;
-    private OutputStream os;
-    private int port;
-    public TCPServicer(Socket s, int port) {
-        this.s = s;
-        this.port = port;
+    private final TCPServer server;
+    private final SocketChannel channel;
+    private final TCPFrameCodec codec;
+    private SelectionKey key;
+
+    private final Queue<ByteBuffer> writeQueue = new ConcurrentLinkedQueue<>();
+    // 已收到还未交给工作线程的报文
+    private final Queue<String> pendingFrames = new ConcurrentLinkedQueue<>();
+    // 是否有报文正在工作线程中处理
+    private final AtomicBoolean dispatching = new AtomicBoolean();
+    // 已收到还未生成响应的报文数
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private boolean inputClosed;
+    private boolean responded;
+    private boolean closed;
+
+    public TCPServicer(TCPServer server, SocketChannel channel, TCPFrameCodec codec) {
+        this.server = server;
+        this.channel = channel;
+        this.codec = codec;
     }
 
-    public void run() {
-        byte[] b = new byte[1024];
-        String returnMsg = "";
-        String message = "";
+    void register(SelectionKey key) {
+        this.key = key;
+    }
+
+    void onReadable(ByteBuffer buffer) throws IOException {
+        while (true) {
+            buffer.clear();
+            int len = channel.read(buffer);
+            if (len < 0) {
+                inputClosed = true;
+                break;
+            }
+            if (len == 0) {
+                break;
+            }
+            buffer.flip();
+            server.getMetrics().bytesIn(len);
+            codec.append(buffer);
+        }
+        List<byte[]> frames = codec.decode();
+        for (byte[] frame : frames) {
+            // RAW 方式一个连接只响应一次
+            if (codec.isCloseAfterResponse() && responded) {
+                break;
+            }
+            responded = true;
+            inFlight.incrementAndGet();
+            server.getMetrics().messageReceived();
+            pendingFrames.offer(new String(frame));
+        }
+        dispatchNext();
+        if (inputClosed) {
+            key.interestOps(key.interestOps() & ~SelectionKey.OP_READ);
+        }
+        closeIfDone();
+    }
+
+    void onWritable() throws IOException {
+        ByteBuffer buffer;
+        while ((buffer = writeQueue.peek()) != null) {
+            int len = channel.write(buffer);
+            server.getMetrics().bytesOut(len);
+            if (buffer.hasRemaining()) {
+                return;
+            }
+            writeQueue.poll();
+            server.getMetrics().messageSent();
+        }
+        key.interestOps(key.interestOps() & ~SelectionKey.OP_WRITE);
+        closeIfDone();
+    }
+
+    /**
+     * 工作线程调用，把响应放入写队列
+     */
+    void respond(byte[] body) {
+        writeQueue.offer(ByteBuffer.wrap(codec.encode(body)));
+        inFlight.decrementAndGet();
+        dispatching.set(false);
+        dispatchNext();
+        server.execute(() -> {
+            if (!closed && key.isValid()) {
+                key.interestOps(key.interestOps() | SelectionKey.OP_WRITE);
+            }
+        });
+    }
+
+    /**
+     * 没有报文在处理时把下一个报文交给工作线程
+     */
+    private void dispatchNext() {
+        while (!pendingFrames.isEmpty() && dispatching.compareAndSet(false, true)) {
+            String message = pendingFrames.poll();
+            if (message != null) {
+                server.dispatch(this, message);
+                return;
+            }
+            dispatching.set(false);
+        }
+    }
+
+    private void closeIfDone() {
+        if (inFlight.get() > 0 || !writeQueue.isEmpty()) {
+            return;
+        }
+        if (inputClosed || (codec.isCloseAfterResponse() && responded)) {
+            close();
+        }
+    }
+
+    public void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        server.getMetrics().connectionClosed();
+        //关闭资源
         try {
-            is = s.getInputStream();
-            os = s.getOutputStream();
-            int len = is.read(b);
-            message = new String(b,0,len);
-            returnMsg = this.getReturnMsg(message);
-            os.write(returnMsg.getBytes());
+            if (key != null) {
+                key.cancel();
+            }
+            channel.close();
         } catch (Exception e) {
-            LogUtil.error(e);
-        }finally {
-            this.close();
         }
     }
 
-    private String getReturnMsg(String message) {
+    /**
+     * 匹配期望并生成响应内容
+     */
+    static MockResponse getReturnMsg(String message, int port) {
         MockConfigService mockConfigService = CommonBeanFactory.getBean(MockConfigService.class);
-        MockExpectConfigWithBLOBs matchdMockExpect = mockConfigService.matchTcpMockExpect(message,this.port);
+        MockExpectConfigWithBLOBs matchdMockExpect = mockConfigService.matchTcpMockExpect(message, port);
         String returnMsg = "";
-        if(matchdMockExpect != null){
+        int delayed = 0;
+        if (matchdMockExpect != null) {
             String response = matchdMockExpect.getResponse();
             JSONObject responseObj = JSONObject.parseObject(response);
-            int delayed = 0;
             try {
-                if(responseObj.containsKey("delayed")){
+                if (responseObj.containsKey("delayed")) {
                     delayed = responseObj.getInteger("delayed");
                 }
             } catch (Exception e) {
                 LogUtil.error(e);
             }
-            if(responseObj.containsKey("responseResult")){
+            if (responseObj.containsKey("responseResult")) {
                 JSONObject respResultObj = responseObj.getJSONObject("responseResult");
-                if(respResultObj.containsKey("body")){
-                    returnMsg = MockApiUtils.getResultByResponseResult(respResultObj.getJSONObject("body"),"",null,null);
+                if (respResultObj.containsKey("body")) {
+                    returnMsg = MockApiUtils.getResultByResponseResult(respResultObj.getJSONObject("body"), "", null, null);
                 }
                 try {
-                    if(respResultObj.containsKey("delayed")){
+                    if (respResultObj.containsKey("delayed")) {
                         delayed = respResultObj.getInteger("delayed");
                     }
                 } catch (Exception e) {
                     LogUtil.error(e);
                 }
-            }else {
+            } else {
                 returnMsg = responseObj.getString("body");
             }
-
-
-            try {
-                Thread.sleep(delayed);
-            } catch (Exception e) {
-                LogUtil.error(e);
-            }
         }
-        return returnMsg;
+        return new MockResponse(returnMsg == null ? "" : returnMsg, delayed);
     }
 
-    public void close() {
-        //关闭资源
-        try{
-            is.close();
-        }catch (Exception e){}finally {
-            try{
-                os.close();
-            }catch (Exception e){}finally {
-                try{
-                    s.close();
-                }catch (Exception e){}finally {
+    static class MockResponse {
+        final String body;
+        final int delayed;
 
-                }
-            }
+        MockResponse(String body, int delayed) {
+            this.body = body;
+            this.delayed = delayed;
         }
     }
-
 }
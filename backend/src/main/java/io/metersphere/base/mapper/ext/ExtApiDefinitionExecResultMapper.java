@@ -13,6 +13,8 @@ public interface ExtApiDefinitionExecResultMapper {
 
     ApiDefinitionExecResult selectMaxResultByResourceId(String resourceId);
 
+    List<ApiDefinitionExecResult> selectMaxResultByResourceIds(@Param("resourceIds") Collection<String> resourceIds);
+
     ApiDefinitionExecResult selectMaxResultByResourceIdAndType(String resourceId, String type);
 
 
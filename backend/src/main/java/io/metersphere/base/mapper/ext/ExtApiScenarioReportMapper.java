@@ -33,5 +33,7 @@ public interface ExtApiScenarioReportMapper {
 
     List<ApiScenarioReport> selectStatusByIds(@Param("ids") Collection<String> values);
 
+    List<APIScenarioReportResult> selectByIds(@Param("ids") Collection<String> ids);
+
     List<ApiScenarioReport> selectReportByProjectId(String projectId);
 }
\ No newline at end of file
@@ -0,0 +1,9 @@
+package io.metersphere.base.mapper.ext;
+
+import org.apache.ibatis.annotations.Param;
+
+import java.util.List;
+
+public interface ExtApiScenarioReportResultMapper {
+    List<String> selectUncompressedIds(@Param("lastId") String lastId, @Param("limit") int limit);
+}
@@ -8,6 +8,7 @@ import io.metersphere.controller.request.BaseQueryRequest;
 import org.apache.ibatis.annotations.Param;
 
 import java.util.List;
+import java.util.Map;
 
 public interface ExtApiTestCaseMapper {
 
@@ -65,5 +66,12 @@ public interface ExtApiTestCaseMapper {
      */
     String getApiCaseEnvironment(@Param("caseId") String caseId);
 
+    /**
+     * 批量获取接口用例的环境
+     * @param ids 用例ID
+     * @return id 和 environmentId
+     */
+    List<Map<String, String>> getApiCaseEnvironments(@Param("ids") List<String> ids);
+
     int moduleCount(@Param("request")ApiTestCaseRequest request);
 }
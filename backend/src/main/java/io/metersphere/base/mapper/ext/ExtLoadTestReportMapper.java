@@ -1,11 +1,14 @@
 package io.metersphere.base.mapper.ext;
 
 import io.metersphere.base.domain.LoadTestReport;
+import io.metersphere.base.domain.LoadTestReportLog;
 import io.metersphere.base.domain.LoadTestReportWithBLOBs;
 import io.metersphere.dto.DashboardTestDTO;
 import io.metersphere.dto.ReportDTO;
 import io.metersphere.performance.controller.request.ReportRequest;
+import io.metersphere.performance.dto.LoadTestReportLogPart;
 import org.apache.ibatis.annotations.Param;
+import org.apache.ibatis.cursor.Cursor;
 
 import java.util.List;
 
@@ -22,4 +25,8 @@ public interface ExtLoadTestReportMapper {
     void updateJmxContentIfAbsent(LoadTestReportWithBLOBs record);
 
     List<LoadTestReport> selectReportByProjectId(String projectId);
+
+    List<LoadTestReportLogPart> selectLogPartSizes(@Param("reportId") String reportId, @Param("resourceId") String resourceId);
+
+    Cursor<LoadTestReportLog> selectLogCursor(@Param("reportId") String reportId, @Param("resourceId") String resourceId, @Param("startPart") Long startPart);
 }
@@ -1,35 +1,110 @@
 package io.metersphere.commons.consumer;
 
 import com.alibaba.fastjson.JSON;
-import io.metersphere.Application;
+import io.metersphere.api.exec.utils.NamedThreadFactory;
 import io.metersphere.base.domain.LoadTestReport;
-import io.metersphere.commons.utils.CommonBeanFactory;
 import io.metersphere.commons.utils.LogUtil;
-import io.metersphere.config.KafkaProperties;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import org.apache.kafka.clients.consumer.ConsumerRecord;
-import org.reflections8.Reflections;
+import org.springframework.aop.support.AopUtils;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.kafka.annotation.KafkaListener;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
 
-import java.util.Set;
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.annotation.Resource;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 
+/**
+ * 消费性能测试结束消息，事件处理不共用事务，单个处理失败不影响其他处理
+ */
 @Service
-@Transactional(rollbackFor = Exception.class)
 public class LoadTestConsumer {
     public static final String CONSUME_ID = "load-test-data";
+    // 等待执行的事件数，超过后由消费线程直接执行，避免堆积
+    private static final int WORK_QUEUE_SIZE = 1000;
+
+    /**
+     * 启动时由 Spring 注入全部实现，不再每条消息扫描一次类路径
+     */
+    @Resource
+    private List<LoadTestFinishEvent> loadTestFinishEvents;
+    @Resource
+    private MeterRegistry meterRegistry;
+    @Value("${kafka.test.finish-event.async:true}")
+    private boolean async;
+    @Value("${kafka.test.finish-event.threads:4}")
+    private int threads;
+
+    private final List<Handler> handlers = new ArrayList<>();
+    private ThreadPoolExecutor executor;
+
+    @PostConstruct
+    public void init() {
+        loadTestFinishEvents.forEach(event -> {
+            String name = AopUtils.getTargetClass(event).getSimpleName();
+            Timer timer = Timer.builder("ms.load.test.finish.event")
+                    .tag("handler", name)
+                    .description("性能测试结束事件处理耗时")
+                    .register(meterRegistry);
+            handlers.add(new Handler(name, event, timer));
+        });
+        if (async) {
+            executor = new ThreadPoolExecutor(threads, threads, 1, TimeUnit.MINUTES,
+                    new ArrayBlockingQueue<>(WORK_QUEUE_SIZE),
+                    new NamedThreadFactory("MS-LOAD-TEST-FINISH"),
+                    new ThreadPoolExecutor.CallerRunsPolicy());
+        }
+    }
+
+    @PreDestroy
+    public void destroy() {
+        if (executor != null) {
+            executor.shutdown();
+        }
+    }
 
     @KafkaListener(id = CONSUME_ID, topics = "${kafka.test.topic}", groupId = "${spring.kafka.consumer.group-id}")
     public void consume(ConsumerRecord<?, String> record) {
         LoadTestReport loadTestReport = JSON.parseObject(record.value(), LoadTestReport.class);
-        Reflections reflections = new Reflections(Application.class);
-        Set<Class<? extends LoadTestFinishEvent>> subTypes = reflections.getSubTypesOf(LoadTestFinishEvent.class);
-        subTypes.forEach(s -> {
+        handlers.forEach(handler -> {
+            if (executor != null) {
+                executor.execute(() -> handler.execute(loadTestReport));
+            } else {
+                handler.execute(loadTestReport);
+            }
+        });
+    }
+
+    /**
+     * 单个事件处理，异常互不影响并记录耗时
+     */
+    private static class Handler {
+        private final String name;
+        private final LoadTestFinishEvent event;
+        private final Timer timer;
+
+        Handler(String name, LoadTestFinishEvent event, Timer timer) {
+            this.name = name;
+            this.event = event;
+            this.timer = timer;
+        }
+
+        void execute(LoadTestReport loadTestReport) {
+            long start = System.nanoTime();
             try {
-                CommonBeanFactory.getBean(s).execute(loadTestReport);
+                event.execute(loadTestReport);
             } catch (Exception e) {
-                LogUtil.error(e);
+                LogUtil.error(name + " 处理性能测试结束事件失败，报告ID：" + loadTestReport.getId(), e);
+            } finally {
+                timer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
             }
-        });
+        }
     }
 }
@@ -1,9 +1,10 @@
 package io.metersphere.commons.consumer;
 
 import io.metersphere.base.domain.LoadTestReport;
-import org.springframework.scheduling.annotation.Async;
 
+/**
+ * 性能测试结束事件，由 LoadTestConsumer 在自己的线程池中调用
+ */
 public interface LoadTestFinishEvent {
-    @Async
     void execute(LoadTestReport loadTestReport);
 }
@@ -0,0 +1,117 @@
+package io.metersphere.commons.utils;
+
+import org.apache.commons.compress.compressors.lz4.FramedLZ4CompressorInputStream;
+import org.apache.commons.compress.compressors.lz4.FramedLZ4CompressorOutputStream;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * 报告内容压缩编码
+ * 编码后格式：[0x00 'M' 'S' codecId][压缩内容]；历史数据是原始 JSON，不带该头部，解码时原样返回
+ */
+public enum ReportContentCodec {
+    NONE((byte) 0) {
+        @Override
+        protected OutputStream wrap(OutputStream out) {
+            return out;
+        }
+
+        @Override
+        protected InputStream wrap(InputStream in) {
+            return in;
+        }
+    },
+    DEFLATE((byte) 1) {
+        @Override
+        protected OutputStream wrap(OutputStream out) {
+            return new DeflaterOutputStream(out);
+        }
+
+        @Override
+        protected InputStream wrap(InputStream in) {
+            return new InflaterInputStream(in);
+        }
+    },
+    LZ4((byte) 2) {
+        @Override
+        protected OutputStream wrap(OutputStream out) throws IOException {
+            return new FramedLZ4CompressorOutputStream(out);
+        }
+
+        @Override
+        protected InputStream wrap(InputStream in) throws IOException {
+            return new FramedLZ4CompressorInputStream(in);
+        }
+    };
+
+    private static final byte[] MAGIC = {0x00, 'M', 'S'};
+    private static final int HEADER_LENGTH = MAGIC.length + 1;
+    // 内容较小时压缩收益不大，直接保存原文
+    private static final int MIN_COMPRESS_SIZE = 512;
+
+    private final byte id;
+
+    ReportContentCodec(byte id) {
+        this.id = id;
+    }
+
+    protected abstract OutputStream wrap(OutputStream out) throws IOException;
+
+    protected abstract InputStream wrap(InputStream in) throws IOException;
+
+    public byte[] encode(byte[] content) {
+        if (this == NONE || content == null || content.length < MIN_COMPRESS_SIZE || isEncoded(content)) {
+            return content;
+        }
+        ByteArrayOutputStream bos = new ByteArrayOutputStream(content.length / 4 + HEADER_LENGTH);
+        bos.write(MAGIC, 0, MAGIC.length);
+        bos.write(id);
+        try (OutputStream out = wrap(bos)) {
+            out.write(content);
+        } catch (IOException e) {
+            LogUtil.error("报告内容压缩失败：" + e.getMessage());
+            return content;
+        }
+        return bos.toByteArray();
+    }
+
+    public static byte[] decode(byte[] content) {
+        if (!isEncoded(content)) {
+            return content;
+        }
+        ReportContentCodec codec = of(content[MAGIC.length]);
+        try (InputStream in = codec.wrap(new ByteArrayInputStream(content, HEADER_LENGTH, content.length - HEADER_LENGTH))) {
+            return org.apache.commons.io.IOUtils.toByteArray(in);
+        } catch (IOException e) {
+            LogUtil.error("报告内容解压失败：" + e.getMessage());
+            return new byte[0];
+        }
+    }
+
+    public static boolean isEncoded(byte[] content) {
+        if (content == null || content.length < HEADER_LENGTH) {
+            return false;
+        }
+        for (int i = 0; i < MAGIC.length; i++) {
+            if (content[i] != MAGIC[i]) {
+                return false;
+            }
+        }
+        return content[MAGIC.length] == DEFLATE.id || content[MAGIC.length] == LZ4.id;
+    }
+
+    private static ReportContentCodec of(byte id) {
+        for (ReportContentCodec codec : values()) {
+            if (codec.id == id) {
+                return codec;
+            }
+        }
+        return NONE;
+    }
+}
@@ -2,10 +2,14 @@ package io.metersphere.config;
 
 import io.metersphere.commons.utils.CommonBeanFactory;
 import org.apache.kafka.clients.admin.NewTopic;
+import org.apache.kafka.clients.consumer.ConsumerConfig;
 import org.apache.kafka.clients.producer.ProducerConfig;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.kafka.config.ConcurrentKafkaListenerContainerFactory;
 import org.springframework.kafka.config.TopicBuilder;
+import org.springframework.kafka.core.ConsumerFactory;
+import org.springframework.kafka.core.DefaultKafkaConsumerFactory;
 
 import java.util.HashMap;
 import java.util.Map;
@@ -14,6 +18,8 @@ import java.util.Map;
 public class KafkaConfig {
     //执行结果回传
     public static final String TOPICS = "ms-api-exec-topic";
+    //执行结果批量消费
+    public static final String BATCH_FACTORY = "batchFactory";
 
     @Bean
     public NewTopic apiExecTopic() {
@@ -21,6 +27,20 @@ public class KafkaConfig {
                 .build();
     }
 
+    @Bean(BATCH_FACTORY)
+    public ConcurrentKafkaListenerContainerFactory<Object, Object> batchFactory(ConsumerFactory<Object, Object> consumerFactory, KafkaProperties kafkaProperties) {
+        KafkaProperties.Consume consume = kafkaProperties.getConsume();
+        Map<String, Object> consumerProps = new HashMap<>(consumerFactory.getConfigurationProperties());
+        consumerProps.put(ConsumerConfig.MAX_POLL_RECORDS_CONFIG, consume.getMaxBatchSize());
+        consumerProps.put(ConsumerConfig.FETCH_MAX_WAIT_MS_CONFIG, consume.getMaxLatencyMs());
+        consumerProps.put(ConsumerConfig.FETCH_MIN_BYTES_CONFIG, consume.getFetchMinBytes());
+
+        ConcurrentKafkaListenerContainerFactory<Object, Object> factory = new ConcurrentKafkaListenerContainerFactory<>();
+        factory.setConsumerFactory(new DefaultKafkaConsumerFactory<>(consumerProps));
+        factory.setBatchListener(true);
+        return factory;
+    }
+
     public static Map<String, Object> getKafka() {
         KafkaProperties kafkaProperties = CommonBeanFactory.getBean(KafkaProperties.class);
         Map<String, Object> producerProps = new HashMap<>();
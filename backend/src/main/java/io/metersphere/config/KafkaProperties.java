@@ -29,6 +29,7 @@ public class KafkaProperties {
     private KafkaProperties.Ssl ssl = new KafkaProperties.Ssl();
     private KafkaProperties.Log log = new KafkaProperties.Log();
     private KafkaProperties.Report report = new KafkaProperties.Report();
+    private KafkaProperties.Consume consume = new KafkaProperties.Consume();
 
     @Value("${spring.kafka.producer.properties.max.request.size}")
     private String maxRequestSize;
@@ -59,4 +60,15 @@ public class KafkaProperties {
     public static class Report {
         private String topic;
     }
+
+    @Getter
+    @Setter
+    public static class Consume {
+        // 执行结果批量消费：单次拉取的最大记录数
+        private Integer maxBatchSize = 100;
+        // 执行结果批量消费：未攒够数据时 broker 最长等待时间（毫秒）
+        private Integer maxLatencyMs = 200;
+        // 执行结果批量消费：broker 返回前至少累积的字节数
+        private Integer fetchMinBytes = 16384;
+    }
 }
@@ -33,6 +33,7 @@ import javax.annotation.Resource;
 import javax.servlet.http.HttpServletResponse;
 import java.io.UnsupportedEncodingException;
 import java.util.List;
+import java.util.Map;
 
 @RestController
 @RequestMapping("share")
@@ -204,8 +205,11 @@ public class ShareController {
     }
 
     @GetMapping("/performance/report/content/{shareId}/{reportKey}/{reportId}")
-    public List<ChartsData> getReportChart(@PathVariable String shareId, @PathVariable String reportKey, @PathVariable String reportId) {
-        return performanceReportService.getReportChart(reportKey, reportId);
+    public List<ChartsData> getReportChart(@PathVariable String shareId, @PathVariable String reportKey, @PathVariable String reportId,
+                                           @RequestParam(required = false) Integer maxPoints,
+                                           @RequestParam(required = false) String start,
+                                           @RequestParam(required = false) String end) {
+        return performanceReportService.getReportChart(reportKey, reportId, maxPoints, start, end);
     }
 
     @GetMapping("/performance/report/content/{shareId}/{reportId}")
@@ -218,6 +222,11 @@ public class ShareController {
         return performanceReportService.getReportErrors(reportId);
     }
 
+    @PostMapping("/performance/report/content/batch/{shareId}/{reportId}")
+    public Map<String, Object> getReportContents(@PathVariable String shareId, @PathVariable String reportId, @RequestBody List<String> reportKeys) {
+        return performanceReportService.getReportContents(reportId, reportKeys);
+    }
+
     @GetMapping("/performance/report/content/errors_top5/{shareId}/{reportId}")
     public List<ErrorsTop5> getReportErrorsTop5(@PathVariable String shareId, @PathVariable String reportId) {
         return performanceReportService.getReportErrorsTOP5(reportId);
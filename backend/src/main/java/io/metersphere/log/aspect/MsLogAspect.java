@@ -6,15 +6,15 @@ import io.metersphere.commons.utils.LogUtil;
 import io.metersphere.commons.utils.SessionUtils;
 import io.metersphere.i18n.Translator;
 import io.metersphere.log.annotation.MsAuditLog;
-import io.metersphere.log.service.OperatingLogService;
+import io.metersphere.log.service.OperatingLogWriter;
 import io.metersphere.log.utils.ReflexObjectUtil;
 import io.metersphere.log.vo.DetailColumn;
 import io.metersphere.log.vo.OperatingLogDetails;
 import org.apache.commons.lang3.StringUtils;
 import org.aspectj.lang.JoinPoint;
-import org.aspectj.lang.annotation.AfterReturning;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
 import org.aspectj.lang.annotation.Aspect;
-import org.aspectj.lang.annotation.Before;
 import org.aspectj.lang.annotation.Pointcut;
 import org.aspectj.lang.reflect.MethodSignature;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -31,16 +31,16 @@ import org.springframework.web.context.request.ServletRequestAttributes;
 
 import javax.annotation.Resource;
 import javax.servlet.http.HttpServletRequest;
-import java.lang.reflect.Field;
-import java.lang.reflect.InvocationHandler;
 import java.lang.reflect.Method;
-import java.lang.reflect.Proxy;
 import java.util.List;
 import java.util.Map;
 import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * 系统日志：切面处理类
+ * 每次调用的前置内容和操作人保存在本次调用中，不再修改注解的共享属性；
+ * SpEL 表达式按方法解析一次后缓存，日志交给 OperatingLogWriter 异步批量写入
  */
 @Aspect
 @Component
@@ -54,11 +54,16 @@ public class MsLogAspect {
      */
     LocalVariableTableParameterNameDiscoverer discoverer = new LocalVariableTableParameterNameDiscoverer();
 
+    /**
+     * 按方法缓存参数名和解析后的表达式
+     */
+    private final Map<Method, LogMetadata> metadataCache = new ConcurrentHashMap<>();
+
     @Autowired
     private ApplicationContext applicationContext;
 
     @Resource
-    private OperatingLogService operatingLogService;
+    private OperatingLogWriter operatingLogWriter;
 
     /**
      * 定义切点 @Pointcut 在注解的位置切入代码
@@ -67,66 +72,65 @@ public class MsLogAspect {
     public void logPoinCut() {
     }
 
-    @Before("logPoinCut()")
-    public void before(JoinPoint joinPoint) {
+    /**
+     * 方法执行前记录前置内容，正常返回后保存日志
+     */
+    @Around("logPoinCut()")
+    public Object around(ProceedingJoinPoint joinPoint) throws Throwable {
+        LogContext logContext = before(joinPoint);
+        Object result = joinPoint.proceed();
+        saveLog(joinPoint, logContext);
+        return result;
+    }
+
+    private LogContext before(JoinPoint joinPoint) {
+        LogContext logContext = new LogContext();
         try {
             //从切面织入点处通过反射机制获取织入点处的方法
             MethodSignature signature = (MethodSignature) joinPoint.getSignature();
             //获取切入点所在的方法
             Method method = signature.getMethod();
-            //获取参数对象数组
-            Object[] args = joinPoint.getArgs();
             MsAuditLog msLog = method.getAnnotation(MsAuditLog.class);
+            if (msLog != null) {
+                logContext.operUser = msLog.operUser();
+                logContext.beforeValue = msLog.beforeValue();
+            }
             if (msLog != null && StringUtils.isNotEmpty(msLog.beforeEvent())) {
                 // 操作内容
-                //获取方法参数名
-                String[] params = discoverer.getParameterNames(method);
+                LogMetadata metadata = getMetadata(method, msLog);
                 //将参数纳入Spring管理
-                EvaluationContext context = new StandardEvaluationContext();
-                for (int len = 0; len < params.length; len++) {
-                    context.setVariable(params[len], args[len]);
-                }
-                InvocationHandler invocationHandler = Proxy.getInvocationHandler(msLog);
-                Field value = invocationHandler.getClass().getDeclaredField("memberValues");
-                value.setAccessible(true);
+                EvaluationContext context = createContext(metadata, joinPoint.getArgs());
                 boolean isNext = false;
                 for (Class clazz : msLog.msClass()) {
                     if (clazz.getName().equals("io.metersphere.commons.utils.SessionUtils")) {
-                        Map<String, Object> memberValues = (Map<String, Object>) value.get(invocationHandler);
-                        memberValues.put("operUser", SessionUtils.getUserId());
+                        logContext.operUser = SessionUtils.getUserId();
                         continue;
                     }
                     context.setVariable("msClass", applicationContext.getBean(clazz));
                     isNext = true;
                 }
                 if (isNext) {
-                    Expression expression = parser.parseExpression(msLog.beforeEvent());
-                    String beforeContent = expression.getValue(context, String.class);
-                    Map<String, Object> memberValues = (Map<String, Object>) value.get(invocationHandler);
-                    memberValues.put("beforeValue", beforeContent);
+                    logContext.beforeValue = getValue(metadata.beforeEvent, context);
                 }
             }
         } catch (Exception e) {
             LogUtil.error(e);
         }
+        return logContext;
     }
 
-    /**
-     * 切面 配置通知
-     */
-    @AfterReturning("logPoinCut()")
-    public void saveLog(JoinPoint joinPoint) {
+    private void saveLog(JoinPoint joinPoint, LogContext logContext) {
         try {
             //从切面织入点处通过反射机制获取织入点处的方法
             MethodSignature signature = (MethodSignature) joinPoint.getSignature();
             //获取切入点所在的方法
             Method method = signature.getMethod();
-            //获取参数对象数组
-            Object[] args = joinPoint.getArgs();
 
             //获取操作
             MsAuditLog msLog = method.getAnnotation(MsAuditLog.class);
             if (msLog != null) {
+                LogMetadata metadata = getMetadata(method, msLog);
+                String beforeValue = logContext.beforeValue;
                 //保存日志
                 OperatingLogWithBLOBs msOperLog = new OperatingLogWithBLOBs();
 
@@ -139,13 +143,8 @@ public class MsLogAspect {
 
                 String module = Translator.get(msLog.module());
                 msOperLog.setOperModule(StringUtils.isNotEmpty(module) ? module : msLog.module());
-                //获取方法参数名
-                String[] params = discoverer.getParameterNames(method);
                 //将参数纳入Spring管理
-                EvaluationContext context = new StandardEvaluationContext();
-                for (int len = 0; len < params.length; len++) {
-                    context.setVariable(params[len], args[len]);
-                }
+                EvaluationContext context = createContext(metadata, joinPoint.getArgs());
 
                 for (Class clazz : msLog.msClass()) {
                     if (clazz.getName().equals("io.metersphere.commons.utils.SessionUtils")) {
@@ -155,8 +154,7 @@ public class MsLogAspect {
                 }
                 // 项目ID 表达式
                 try {
-                    Expression titleExp = parser.parseExpression(msLog.project());
-                    String project = titleExp.getValue(context, String.class);
+                    String project = getValue(metadata.project, context);
                     msOperLog.setProjectId(project);
                 } catch (Exception e) {
                     msOperLog.setProjectId(msLog.project());
@@ -165,8 +163,7 @@ public class MsLogAspect {
                 if (StringUtils.isNotEmpty(msLog.title())) {
                     String title = msLog.title();
                     try {
-                        Expression titleExp = parser.parseExpression(title);
-                        title = titleExp.getValue(context, String.class);
+                        title = getValue(metadata.title, context);
                         msOperLog.setOperTitle(title);
                     } catch (Exception e) {
                         msOperLog.setOperTitle(title);
@@ -175,9 +172,7 @@ public class MsLogAspect {
                 // 资源ID
                 if (StringUtils.isNotEmpty(msLog.sourceId())) {
                     try {
-                        String sourceId = msLog.sourceId();
-                        Expression titleExp = parser.parseExpression(sourceId);
-                        sourceId = titleExp.getValue(context, String.class);
+                        String sourceId = getValue(metadata.sourceId, context);
                         msOperLog.setSourceId(sourceId);
                     } catch (Exception e) {
                     }
@@ -185,8 +180,7 @@ public class MsLogAspect {
 
                 // 操作内容
                 if (StringUtils.isNotEmpty(msLog.content())) {
-                    Expression expression = parser.parseExpression(msLog.content());
-                    String content = expression.getValue(context, String.class);
+                    String content = getValue(metadata.content, context);
                     try {
                         if (StringUtils.isNotEmpty(content)) {
                             OperatingLogDetails details = JSON.parseObject(content, OperatingLogDetails.class);
@@ -199,9 +193,9 @@ public class MsLogAspect {
                             msOperLog.setSourceId(details.getSourceId());
                             msOperLog.setCreateUser(details.getCreateUser());
                         }
-                        if (StringUtils.isNotEmpty(content) && StringUtils.isNotEmpty(msLog.beforeValue())) {
+                        if (StringUtils.isNotEmpty(content) && StringUtils.isNotEmpty(beforeValue)) {
                             OperatingLogDetails details = JSON.parseObject(content, OperatingLogDetails.class);
-                            List<DetailColumn> columns = ReflexObjectUtil.compared(JSON.parseObject(msLog.beforeValue(), OperatingLogDetails.class), details,msLog.module());
+                            List<DetailColumn> columns = ReflexObjectUtil.compared(JSON.parseObject(beforeValue, OperatingLogDetails.class), details,msLog.module());
                             details.setColumns(columns);
                             msOperLog.setOperContent(JSON.toJSONString(details));
                             msOperLog.setSourceId(details.getSourceId());
@@ -214,9 +208,9 @@ public class MsLogAspect {
                     }
                 }
                 // 只有前置操作的处理/如 删除操作
-                if (StringUtils.isNotEmpty(msLog.beforeEvent()) && StringUtils.isNotEmpty(msLog.beforeValue()) && StringUtils.isEmpty(msLog.content())) {
-                    msOperLog.setOperContent(msLog.beforeValue());
-                    OperatingLogDetails details = JSON.parseObject(msLog.beforeValue(), OperatingLogDetails.class);
+                if (StringUtils.isNotEmpty(msLog.beforeEvent()) && StringUtils.isNotEmpty(beforeValue) && StringUtils.isEmpty(msLog.content())) {
+                    msOperLog.setOperContent(beforeValue);
+                    OperatingLogDetails details = JSON.parseObject(beforeValue, OperatingLogDetails.class);
                     if (StringUtils.isEmpty(msLog.title())) {
                         msOperLog.setOperTitle(details.getTitle());
                     }
@@ -235,8 +229,8 @@ public class MsLogAspect {
 
                 msOperLog.setOperTime(System.currentTimeMillis());
                 //获取用户名
-                if (StringUtils.isNotEmpty(msLog.operUser())) {
-                    msOperLog.setOperUser(msLog.operUser());
+                if (StringUtils.isNotEmpty(logContext.operUser)) {
+                    msOperLog.setOperUser(logContext.operUser);
                 } else {
                     msOperLog.setOperUser(SessionUtils.getUserId());
                 }
@@ -263,10 +257,69 @@ public class MsLogAspect {
                     msOperLog.setOperTitle(msOperLog.getOperTitle().substring(0, 5999));
                 }
                 msOperLog.setOperPath(path);
-                operatingLogService.create(msOperLog);
+                operatingLogWriter.write(msOperLog);
             }
         } catch (Exception e) {
             LogUtil.error(e);
         }
     }
+
+    private LogMetadata getMetadata(Method method, MsAuditLog msLog) {
+        return metadataCache.computeIfAbsent(method, m -> {
+            LogMetadata metadata = new LogMetadata();
+            //获取方法参数名
+            metadata.params = discoverer.getParameterNames(m);
+            metadata.project = parseExpression(msLog.project());
+            metadata.title = parseExpression(msLog.title());
+            metadata.sourceId = parseExpression(msLog.sourceId());
+            metadata.content = parseExpression(msLog.content());
+            metadata.beforeEvent = parseExpression(msLog.beforeEvent());
+            return metadata;
+        });
+    }
+
+    /**
+     * 解析失败时返回 null，求值时按解析异常处理
+     */
+    private Expression parseExpression(String expressionString) {
+        try {
+            return parser.parseExpression(expressionString);
+        } catch (Exception e) {
+            return null;
+        }
+    }
+
+    private String getValue(Expression expression, EvaluationContext context) {
+        if (expression == null) {
+            throw new IllegalArgumentException("invalid expression");
+        }
+        return expression.getValue(context, String.class);
+    }
+
+    private EvaluationContext createContext(LogMetadata metadata, Object[] args) {
+        EvaluationContext context = new StandardEvaluationContext();
+        if (metadata.params != null) {
+            for (int len = 0; len < metadata.params.length; len++) {
+                context.setVariable(metadata.params[len], args[len]);
+            }
+        }
+        return context;
+    }
+
+    private static class LogMetadata {
+        private String[] params;
+        private Expression project;
+        private Expression title;
+        private Expression sourceId;
+        private Expression content;
+        private Expression beforeEvent;
+    }
+
+    /**
+     * 单次调用的前置内容和操作人
+     */
+    private static class LogContext {
+        private String beforeValue;
+        private String operUser;
+    }
 }
@@ -0,0 +1,162 @@
+package io.metersphere.log.service;
+
+import io.metersphere.api.exec.utils.NamedThreadFactory;
+import io.metersphere.base.domain.OperatingLogWithBLOBs;
+import io.metersphere.base.mapper.OperatingLogMapper;
+import io.metersphere.commons.utils.LogUtil;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.apache.ibatis.session.ExecutorType;
+import org.apache.ibatis.session.SqlSession;
+import org.apache.ibatis.session.SqlSessionFactory;
+import org.mybatis.spring.SqlSessionUtils;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.annotation.Resource;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 操作日志异步写入
+ * 日志先放入有界队列，由后台线程按批插入；队列满时在调用线程直接插入，不丢日志并记录溢出次数
+ */
+@Service
+public class OperatingLogWriter {
+
+    @Resource
+    private OperatingLogService operatingLogService;
+    @Resource
+    private SqlSessionFactory sqlSessionFactory;
+    @Resource
+    private MeterRegistry meterRegistry;
+    @Value("${audit.log.async:true}")
+    private boolean async;
+    @Value("${audit.log.queue-size:10000}")
+    private int queueSize;
+    @Value("${audit.log.batch-size:100}")
+    private int batchSize;
+
+    private BlockingQueue<OperatingLogWithBLOBs> queue;
+    private ExecutorService executor;
+    private Counter overflowCounter;
+    private volatile boolean running;
+    // 入队与停止互斥，停止后不会再有日志进入队列
+    private final Object lock = new Object();
+
+    @PostConstruct
+    public void init() {
+        if (!async) {
+            return;
+        }
+        queue = new ArrayBlockingQueue<>(queueSize);
+        overflowCounter = Counter.builder("ms.audit.log.overflow")
+                .description("操作日志队列已满，改为同步写入的次数")
+                .register(meterRegistry);
+        Gauge.builder("ms.audit.log.queue.size", queue, BlockingQueue::size)
+                .description("等待写入的操作日志数")
+                .register(meterRegistry);
+        running = true;
+        executor = Executors.newSingleThreadExecutor(new NamedThreadFactory("MS-AUDIT-LOG"));
+        executor.execute(this::consume);
+    }
+
+    @PreDestroy
+    public void destroy() {
+        if (executor == null) {
+            return;
+        }
+        synchronized (lock) {
+            running = false;
+        }
+        executor.shutdown();
+        try {
+            if (!executor.awaitTermination(10, TimeUnit.SECONDS)) {
+                LogUtil.error("operating log writer not terminated, remaining: " + queue.size());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        // 后台线程退出后队列中剩余的日志同步写入
+        OperatingLogWithBLOBs log;
+        while ((log = queue.poll()) != null) {
+            try {
+                operatingLogService.create(log);
+            } catch (Exception e) {
+                LogUtil.error(e.getMessage(), e);
+            }
+        }
+    }
+
+    public void write(OperatingLogWithBLOBs log) {
+        if (queue == null) {
+            operatingLogService.create(log);
+            return;
+        }
+        boolean queued = false;
+        boolean overflow = false;
+        synchronized (lock) {
+            if (running) {
+                queued = queue.offer(log);
+                overflow = !queued;
+            }
+        }
+        if (overflow) {
+            overflowCounter.increment();
+        }
+        if (!queued) {
+            operatingLogService.create(log);
+        }
+    }
+
+    private void consume() {
+        List<OperatingLogWithBLOBs> logs = new ArrayList<>(batchSize);
+        while (running || !queue.isEmpty()) {
+            try {
+                OperatingLogWithBLOBs log = queue.poll(1, TimeUnit.SECONDS);
+                if (log == null) {
+                    continue;
+                }
+                logs.add(log);
+                queue.drainTo(logs, batchSize - 1);
+                insert(logs);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            } catch (Exception e) {
+                LogUtil.error(e.getMessage(), e);
+            } finally {
+                logs.clear();
+            }
+        }
+    }
+
+    private void insert(List<OperatingLogWithBLOBs> logs) {
+        SqlSession sqlSession = sqlSessionFactory.openSession(ExecutorType.BATCH);
+        try {
+            OperatingLogMapper batchMapper = sqlSession.getMapper(OperatingLogMapper.class);
+            logs.forEach(batchMapper::insert);
+            sqlSession.flushStatements();
+        } catch (Exception e) {
+            // 批量失败时逐条重试，避免一条异常数据导致整批丢失
+            LogUtil.error("batch insert operating log failed: " + e.getMessage(), e);
+            logs.forEach(log -> {
+                try {
+                    operatingLogService.create(log);
+                } catch (Exception ex) {
+                    LogUtil.error(ex.getMessage(), ex);
+                }
+            });
+        } finally {
+            SqlSessionUtils.closeSqlSession(sqlSession, sqlSessionFactory);
+        }
+    }
+}
@@ -7,6 +7,8 @@ import io.metersphere.base.mapper.NotificationMapper;
 import io.metersphere.base.mapper.ext.ExtNotificationMapper;
 import io.metersphere.commons.constants.NotificationConstants;
 import io.metersphere.commons.utils.SessionUtils;
+import io.metersphere.websocket.NotificationWebSocket;
+import io.metersphere.websocket.WebSocketPushHub;
 import org.apache.commons.lang3.StringUtils;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
@@ -33,10 +35,12 @@ public class NotificationService {
         notification.setCreateTime(System.currentTimeMillis());
         notification.setReceiver(receiver);
         notificationMapper.insert(notification);
+        WebSocketPushHub.publish(NotificationWebSocket.CHANNEL, receiver);
     }
 
     public void sendAnnouncement(Notification notification) {
         notificationMapper.insert(notification);
+        WebSocketPushHub.publish(NotificationWebSocket.CHANNEL, notification.getReceiver());
     }
 
     public Notification getNotification(int id) {
@@ -48,7 +52,9 @@ public class NotificationService {
         record.setStatus(NotificationConstants.Status.READ.name());
         NotificationExample example = new NotificationExample();
         example.createCriteria().andReceiverEqualTo(SessionUtils.getUser().getId());
-        return notificationMapper.updateByExampleSelective(record, example);
+        int count = notificationMapper.updateByExampleSelective(record, example);
+        WebSocketPushHub.publish(NotificationWebSocket.CHANNEL, SessionUtils.getUser().getId());
+        return count;
     }
 
     public int countNotification(Notification notification) {
@@ -63,7 +69,9 @@ public class NotificationService {
         record.setStatus(NotificationConstants.Status.READ.name());
         NotificationExample example = new NotificationExample();
         example.createCriteria().andIdEqualTo(id).andReceiverEqualTo(SessionUtils.getUser().getId());
-        return notificationMapper.updateByExampleSelective(record, example);
+        int count = notificationMapper.updateByExampleSelective(record, example);
+        WebSocketPushHub.publish(NotificationWebSocket.CHANNEL, SessionUtils.getUser().getId());
+        return count;
     }
 
     public List<Notification> listNotification(Notification notification) {
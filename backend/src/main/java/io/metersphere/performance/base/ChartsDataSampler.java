@@ -0,0 +1,143 @@
+package io.metersphere.performance.base;
+
+import org.apache.commons.lang3.StringUtils;
+
+import java.math.BigDecimal;
+import java.util.*;
+
+/**
+ * 图表数据降采样
+ * 所有 series 共用同一组时间桶，每个桶只保留首尾两个时间点，分别放该桶内 yAxis、yAxis2 的最小值和最大值（按出现先后），
+ * 各 series 的 xAxis 保持一致，前端按 xAxis 合并 ALL 时结果不变，峰值也不会被平均掉
+ */
+public class ChartsDataSampler {
+
+    private ChartsDataSampler() {
+    }
+
+    /**
+     * @param start     xAxis 起始值（包含），为空不限制
+     * @param end       xAxis 结束值（包含），为空不限制
+     * @param maxPoints 每个 series 最多返回的点数，为空或小于 2 时不降采样
+     */
+    public static List<ChartsData> sample(List<ChartsData> data, Integer maxPoints, String start, String end) {
+        if (data == null) {
+            return new ArrayList<>();
+        }
+        List<ChartsData> inRange = new ArrayList<>();
+        data.forEach(item -> {
+            if ((StringUtils.isBlank(start) || StringUtils.compare(item.getxAxis(), start) >= 0)
+                    && (StringUtils.isBlank(end) || StringUtils.compare(item.getxAxis(), end) <= 0)) {
+                inRange.add(item);
+            }
+        });
+
+        // xAxis 为固定格式的时间字符串，按字符串排序即时间顺序
+        TreeSet<String> xAxisSet = new TreeSet<>();
+        inRange.forEach(item -> xAxisSet.add(item.getxAxis() == null ? "" : item.getxAxis()));
+        if (maxPoints == null || maxPoints < 2 || xAxisSet.size() <= maxPoints) {
+            return inRange;
+        }
+
+        List<String> xAxisList = new ArrayList<>(xAxisSet);
+        int bucketCount = maxPoints / 2;
+        Map<String, Integer> bucketIndex = new HashMap<>();
+        for (int i = 0; i < xAxisList.size(); i++) {
+            bucketIndex.put(xAxisList.get(i), (int) ((long) i * bucketCount / xAxisList.size()));
+        }
+        String[] bucketFirst = new String[bucketCount];
+        String[] bucketLast = new String[bucketCount];
+        for (String xAxis : xAxisList) {
+            int index = bucketIndex.get(xAxis);
+            if (bucketFirst[index] == null) {
+                bucketFirst[index] = xAxis;
+            }
+            bucketLast[index] = xAxis;
+        }
+
+        // 按 series 分组，保持原始顺序
+        Map<String, Map<Integer, Bucket>> seriesBuckets = new LinkedHashMap<>();
+        inRange.forEach(item -> {
+            int index = bucketIndex.get(item.getxAxis() == null ? "" : item.getxAxis());
+            seriesBuckets.computeIfAbsent(item.getGroupName(), k -> new TreeMap<>())
+                    .computeIfAbsent(index, k -> new Bucket())
+                    .add(item);
+        });
+
+        List<ChartsData> result = new ArrayList<>();
+        seriesBuckets.forEach((groupName, buckets) -> buckets.forEach((index, bucket) -> {
+            result.add(copy(bucket.sample, bucketFirst[index], bucket.firstY(), bucket.firstY2()));
+            if (!StringUtils.equals(bucketFirst[index], bucketLast[index])) {
+                result.add(copy(bucket.sample, bucketLast[index], bucket.lastY(), bucket.lastY2()));
+            }
+        }));
+        return result;
+    }
+
+    private static ChartsData copy(ChartsData source, String xAxis, BigDecimal yAxis, BigDecimal yAxis2) {
+        ChartsData data = new ChartsData();
+        data.setxAxis(xAxis);
+        data.setyAxis(yAxis);
+        data.setyAxis2(yAxis2);
+        data.setGroupName(source.getGroupName());
+        data.setDescription(source.getDescription());
+        return data;
+    }
+
+    /**
+     * 记录一个桶内 yAxis、yAxis2 最小值和最大值及其出现顺序
+     */
+    private static class Bucket {
+        private ChartsData sample;
+        private int count;
+        private BigDecimal minY;
+        private BigDecimal maxY;
+        private int minYAt;
+        private int maxYAt;
+        private BigDecimal minY2;
+        private BigDecimal maxY2;
+        private int minY2At;
+        private int maxY2At;
+
+        void add(ChartsData item) {
+            if (sample == null) {
+                sample = item;
+            }
+            BigDecimal y = item.getyAxis() == null ? BigDecimal.ZERO : item.getyAxis();
+            BigDecimal y2 = item.getyAxis2() == null ? BigDecimal.ZERO : item.getyAxis2();
+            if (minY == null || y.compareTo(minY) < 0) {
+                minY = y;
+                minYAt = count;
+            }
+            if (maxY == null || y.compareTo(maxY) > 0) {
+                maxY = y;
+                maxYAt = count;
+            }
+            if (minY2 == null || y2.compareTo(minY2) < 0) {
+                minY2 = y2;
+                minY2At = count;
+            }
+            if (maxY2 == null || y2.compareTo(maxY2) > 0) {
+                maxY2 = y2;
+                maxY2At = count;
+            }
+            count++;
+        }
+
+        BigDecimal firstY() {
+            return minYAt <= maxYAt ? minY : maxY;
+        }
+
+        BigDecimal lastY() {
+            return minYAt <= maxYAt ? maxY : minY;
+        }
+
+        BigDecimal firstY2() {
+            return minY2At <= maxY2At ? minY2 : maxY2;
+        }
+
+        BigDecimal lastY2() {
+            return minY2At <= maxY2At ? maxY2 : minY2;
+        }
+    }
+}
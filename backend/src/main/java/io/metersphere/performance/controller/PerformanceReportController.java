@@ -25,6 +25,7 @@ import org.springframework.web.bind.annotation.*;
 import javax.annotation.Resource;
 import javax.servlet.http.HttpServletResponse;
 import java.util.List;
+import java.util.Map;
 
 @RestController
 @RequestMapping(value = "performance/report")
@@ -74,8 +75,16 @@ public class PerformanceReportController {
     }
 
     @GetMapping("/content/{reportKey}/{reportId}")
-    public List<ChartsData> getReportChart(@PathVariable String reportKey, @PathVariable String reportId) {
-        return performanceReportService.getReportChart(reportKey, reportId);
+    public List<ChartsData> getReportChart(@PathVariable String reportKey, @PathVariable String reportId,
+                                           @RequestParam(required = false) Integer maxPoints,
+                                           @RequestParam(required = false) String start,
+                                           @RequestParam(required = false) String end) {
+        return performanceReportService.getReportChart(reportKey, reportId, maxPoints, start, end);
+    }
+
+    @PostMapping("/content/batch/{reportId}")
+    public Map<String, Object> getReportContents(@PathVariable String reportId, @RequestBody List<String> reportKeys) {
+        return performanceReportService.getReportContents(reportId, reportKeys);
     }
 
     @GetMapping("/content/errors_top5/{reportId}")
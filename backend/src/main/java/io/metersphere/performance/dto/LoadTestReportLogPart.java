@@ -0,0 +1,14 @@
+package io.metersphere.performance.dto;
+
+import lombok.Getter;
+import lombok.Setter;
+
+/**
+ * 日志分片的序号和字节数，用于计算断点续传的起始分片
+ */
+@Getter
+@Setter
+public class LoadTestReportLogPart {
+    private Long part;
+    private Long size;
+}
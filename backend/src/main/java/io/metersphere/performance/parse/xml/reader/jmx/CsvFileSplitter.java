@@ -0,0 +1,164 @@
+package io.metersphere.performance.parse.xml.reader.jmx;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+
+import java.io.ByteArrayOutputStream;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 分布式压测 CSV 文件切割
+ * 直接在字节上按行扫描，不把整个文件转换为字符串；同一报告的各个节点共用一次计算出的行数和切割位置
+ * 切割规则与原先 StringTokenizer 的实现保持一致：忽略空行，每行以 \n 结尾
+ */
+public class CsvFileSplitter {
+    private static final byte LF = '\n';
+
+    // 同一报告的多个节点依次生成执行文件，短时间内复用索引
+    private static final Cache<String, CsvIndex> INDEXES = CacheBuilder.newBuilder()
+            .maximumSize(64)
+            .expireAfterAccess(10, TimeUnit.MINUTES)
+            .build();
+
+    private CsvFileSplitter() {
+    }
+
+    /**
+     * 返回当前节点分到的内容，文件没有任何数据行时返回 null
+     */
+    public static byte[] split(String reportId, String filename, byte[] content, boolean hasHeader, double[] ratios, int resourceIndex) {
+        String key = reportId + "|" + filename + "|" + hasHeader;
+        CsvIndex index = INDEXES.getIfPresent(key);
+        if (index == null || !index.matches(content, ratios)) {
+            index = new CsvIndex(content, hasHeader, ratios);
+            INDEXES.put(key, index);
+        }
+        if (index.empty) {
+            return null;
+        }
+        return index.slice(content, resourceIndex);
+    }
+
+    private static int nextLineEnd(byte[] content, int from) {
+        for (int i = from; i < content.length; i++) {
+            if (content[i] == LF) {
+                return i;
+            }
+        }
+        return content.length;
+    }
+
+    private static class CsvIndex {
+        private final int length;
+        private final double[] ratios;
+        private final boolean empty;
+        private final long count;
+        private int headerStart = -1;
+        private int headerEnd;
+        // 每个节点的起止行号（从 1 开始，包含两端）
+        private final long[] fromLines;
+        private final long[] toLines;
+        // 起始行号 -> 字节位置
+        private final Map<Long, Integer> lineStarts = new HashMap<>();
+
+        private CsvIndex(byte[] content, boolean hasHeader, double[] ratios) {
+            this.length = content.length;
+            this.ratios = ratios.clone();
+
+            // 第一遍扫描：统计非空行数
+            long count = 0;
+            boolean hasLine = false;
+            int pos = 0;
+            while (pos < content.length) {
+                int end = nextLineEnd(content, pos);
+                if (end > pos) {
+                    hasLine = true;
+                    if (hasHeader && headerStart < 0) {
+                        headerStart = pos;
+                        headerEnd = end;
+                    } else {
+                        count++;
+                    }
+                }
+                pos = end + 1;
+            }
+            this.empty = !hasLine;
+            this.count = count;
+
+            // 计算每个节点分到的行
+            fromLines = new long[ratios.length];
+            toLines = new long[ratios.length];
+            for (int r = 0; r < ratios.length; r++) {
+                long current, offset = 0;
+                // 计算偏移量
+                for (int k = 0; k < r; k++) {
+                    offset += Math.round(count * ratios[k]);
+                }
+                if (r + 1 == ratios.length) {
+                    current = count - offset; // 最后一个点可以分到的数量
+                } else {
+                    current = Math.round(count * ratios[r]); // 当前节点可以分到的数量
+                }
+                if (current == 0) { // 节点一个都没有分到，把所有的数据都给这个节点（极端情况）
+                    fromLines[r] = 1;
+                    toLines[r] = count;
+                } else {
+                    fromLines[r] = Math.max(offset, 1);
+                    toLines[r] = Math.min(current + offset, count);
+                }
+                lineStarts.put(fromLines[r], content.length);
+            }
+
+            // 第二遍扫描：记录各节点起始行的位置
+            long lineNo = 0;
+            pos = headerStart < 0 ? 0 : Math.min(headerEnd + 1, content.length);
+            while (pos < content.length) {
+                int end = nextLineEnd(content, pos);
+                if (end > pos) {
+                    lineNo++;
+                    if (lineStarts.containsKey(lineNo)) {
+                        lineStarts.put(lineNo, pos);
+                    }
+                }
+                pos = end + 1;
+            }
+        }
+
+        private boolean matches(byte[] content, double[] ratios) {
+            return content.length == length && Arrays.equals(this.ratios, ratios);
+        }
+
+        private byte[] slice(byte[] content, int resourceIndex) {
+            long from = fromLines[resourceIndex];
+            long to = toLines[resourceIndex];
+            int start = lineStarts.get(from);
+            ByteArrayOutputStream out = new ByteArrayOutputStream(estimate(start, from, to));
+            if (headerStart >= 0) {
+                out.write(content, headerStart, headerEnd - headerStart);
+                out.write(LF);
+            }
+            long lineNo = from;
+            int pos = start;
+            while (pos < content.length && lineNo <= to) {
+                int end = nextLineEnd(content, pos);
+                if (end > pos) {
+                    out.write(content, pos, end - pos);
+                    out.write(LF);
+                    lineNo++;
+                }
+                pos = end + 1;
+            }
+            return out.toByteArray();
+        }
+
+        private int estimate(int start, long from, long to) {
+            // 按起始位置之后的平均行长估算，避免切割大文件时反复扩容
+            long lines = Math.max(to - from + 1, 0);
+            long size = (long) (length - start) * lines / Math.max(count - from + 1, 1);
+            return (int) Math.min(size + 1024, Integer.MAX_VALUE - 8);
+        }
+    }
+}
@@ -4,11 +4,15 @@ package io.metersphere.performance.service;
 import com.alibaba.fastjson.JSON;
 import com.alibaba.fastjson.JSONArray;
 import com.alibaba.fastjson.JSONObject;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import io.metersphere.api.exec.utils.NamedThreadFactory;
 import io.metersphere.base.domain.LoadTestReportWithBLOBs;
 import io.metersphere.base.domain.TestResource;
 import io.metersphere.base.mapper.LoadTestReportMapper;
 import io.metersphere.base.mapper.ext.ExtLoadTestReportMapper;
 import io.metersphere.commons.constants.ParamConstants;
+import io.metersphere.commons.constants.PerformanceTestStatus;
 import io.metersphere.commons.exception.MSException;
 import io.metersphere.commons.utils.DateUtils;
 import io.metersphere.commons.utils.LogUtil;
@@ -25,23 +29,34 @@ import io.metersphere.service.SystemParameterService;
 import io.metersphere.service.TestResourceService;
 import org.apache.commons.collections.CollectionUtils;
 import org.apache.commons.lang3.StringUtils;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.client.SimpleClientHttpRequestFactory;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.client.RestTemplate;
 
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
 import javax.annotation.Resource;
 import java.text.DecimalFormat;
 import java.util.*;
+import java.util.concurrent.*;
 import java.util.stream.Collectors;
 
 @Service
 @Transactional(rollbackFor = Exception.class)
 public class MetricQueryService {
 
-    private String prometheusHost;
+    // 每个查询结果的点数差别很大，按点数限制缓存总量
+    private static final long COMPLETED_METRICS_MAX_POINTS = 5000000L;
+
+    // 已完成报告的监控数据不会再变化，按 reportId、promQL、时间范围和 step 缓存查询结果
+    private final Cache<String, List<MetricData>> completedMetrics = CacheBuilder.newBuilder()
+            .maximumWeight(COMPLETED_METRICS_MAX_POINTS)
+            .weigher((String key, List<MetricData> value) -> weigh(value))
+            .expireAfterAccess(30, TimeUnit.MINUTES)
+            .build();
 
-    @Resource
-    private RestTemplate restTemplate;
     @Resource
     private LoadTestReportMapper loadTestReportMapper;
     @Resource
@@ -52,11 +67,44 @@ public class MetricQueryService {
     private TestResourceService testResourceService;
     @Resource
     private SystemParameterService systemParameterService;
+    @Value("${prometheus.query.parallelism:8}")
+    private int parallelism;
+    // 单个 Prometheus 请求的读取超时时间（秒）
+    @Value("${prometheus.query.timeout:10}")
+    private int timeout;
+
+    private RestTemplate restTemplate;
+    private ExecutorService executor;
+
+    @PostConstruct
+    public void init() {
+        SimpleClientHttpRequestFactory requestFactory = new SimpleClientHttpRequestFactory();
+        requestFactory.setConnectTimeout(4000);
+        requestFactory.setReadTimeout(timeout * 1000);
+        restTemplate = new RestTemplate(requestFactory);
+        executor = new ThreadPoolExecutor(parallelism, parallelism, 1, TimeUnit.MINUTES,
+                new LinkedBlockingQueue<>(), new NamedThreadFactory("MS-PROMETHEUS-QUERY"));
+    }
 
+    @PreDestroy
+    public void destroy() {
+        if (executor != null) {
+            executor.shutdownNow();
+        }
+    }
 
     public List<MetricData> queryMetricData(MetricRequest metricRequest) {
+        return queryMetricData(metricRequest, null);
+    }
+
+    /**
+     * 各查询并发执行，结果按查询顺序合并
+     *
+     * @param cacheId 不为空时缓存查询成功的结果，只用于已完成的报告
+     */
+    private List<MetricData> queryMetricData(MetricRequest metricRequest, String cacheId) {
         String host = systemParameterService.getValue(ParamConstants.BASE.PROMETHEUS_HOST.getValue());
-        prometheusHost = StringUtils.isNotBlank(host) ? host : "http://ms-prometheus:9090";
+        String prometheusHost = StringUtils.isNotBlank(host) ? host : "http://ms-prometheus:9090";
         List<MetricData> metricDataList = new ArrayList<>();
         long endTime = metricRequest.getEndTime();
         long startTime = metricRequest.getStartTime();
@@ -68,34 +116,74 @@ public class MetricQueryService {
         }
         int step = getGranularity(startTime, reliableEndTime);
 
+        List<Future<List<MetricData>>> futures = new ArrayList<>();
         Optional.ofNullable(metricRequest.getMetricDataQueries()).ifPresent(metricDataQueries -> metricDataQueries.forEach(query -> {
             String promQL = query.getPromQL();
             promQL = String.format(promQL, query.getInstance());
             if (StringUtils.isEmpty(promQL)) {
                 MSException.throwException("promQL is null");
             } else {
-                Optional.of(queryPrometheusMetric(promQL, query.getSeriesName(), startTime, reliableEndTime, step, query.getInstance())).ifPresent(metricDataList::addAll);
+                String finalPromQL = promQL;
+                String cacheKey = cacheId == null ? null
+                        : StringUtils.join(Arrays.asList(cacheId, finalPromQL, query.getSeriesName(), query.getInstance(), startTime, reliableEndTime, step), "|");
+                List<MetricData> cached = cacheKey == null ? null : completedMetrics.getIfPresent(cacheKey);
+                if (cached != null) {
+                    futures.add(CompletableFuture.completedFuture(cached));
+                    return;
+                }
+                futures.add(executor.submit(() -> {
+                    List<MetricData> result = queryPrometheusMetric(prometheusHost, finalPromQL, query.getSeriesName(), startTime, reliableEndTime, step, query.getInstance());
+                    if (result == null) {
+                        return new ArrayList<>();
+                    }
+                    if (cacheKey != null) {
+                        completedMetrics.put(cacheKey, result);
+                    }
+                    return result;
+                }));
             }
         }));
 
+        // 整体等待时间按并发轮数估算，避免线程池被占满时无限等待
+        long rounds = futures.size() / Math.max(parallelism, 1) + 1;
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(timeout * rounds);
+        for (Future<List<MetricData>> future : futures) {
+            try {
+                metricDataList.addAll(future.get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS));
+            } catch (TimeoutException e) {
+                future.cancel(true);
+                LogUtil.error("query prometheus metric timeout.");
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                futures.forEach(f -> f.cancel(true));
+                break;
+            } catch (Exception e) {
+                LogUtil.error(e.getMessage(), e);
+            }
+        }
         return metricDataList;
     }
 
 
-    private List<MetricData> queryPrometheusMetric(String promQL, String seriesName, long startTime, long endTime, int step, String instance) {
-        List<MetricData> metricData = new ArrayList<>();
+    /**
+     * @return 查询失败时返回 null，不缓存
+     */
+    private List<MetricData> queryPrometheusMetric(String prometheusHost, String promQL, String seriesName, long startTime, long endTime, int step, String instance) {
         DecimalFormat df = new DecimalFormat("#.###");
         String start = df.format(startTime / 1000.0);
         String end = df.format(endTime / 1000.0);
         try {
             JSONObject response = restTemplate.getForObject(prometheusHost + "/api/v1/query_range?query={promQL}&start={start}&end={end}&step={step}", JSONObject.class, promQL, start, end, step);
             LogUtil.info(prometheusHost + "/api/v1/query_range?query={" + promQL + "}&start={" + start + "}&end{" + end + "}&step={" + step + "}");
-            metricData = handleResult(seriesName, response, instance);
+            if (response == null || !StringUtils.equals(response.getString("status"), "success")) {
+                return null;
+            }
+            return handleResult(seriesName, response, instance);
         } catch (Exception e) {
             LogUtil.error("query prometheus metric fail.");
             LogUtil.error(e.getMessage(), e);
         }
-        return metricData;
+        return null;
     }
 
     private List<MetricData> handleResult(String seriesName, JSONObject response, String instance) {
@@ -212,7 +300,8 @@ public class MetricQueryService {
             LogUtil.error(e.getMessage(), e);
         }
 
-        return queryMetricData(metricRequest);
+        String cacheId = StringUtils.equals(report.getStatus(), PerformanceTestStatus.Completed.name()) ? reportId : null;
+        return queryMetricData(metricRequest, cacheId);
     }
 
     private void getRequest(Monitor monitor, List<MetricDataRequest> list) {
@@ -317,4 +406,12 @@ public class MetricQueryService {
         }
         return granularity;
     }
+
+    private static int weigh(List<MetricData> metrics) {
+        int points = 1;
+        for (MetricData metric : metrics) {
+            points += metric.getValues() == null ? 1 : metric.getValues().size() + 1;
+        }
+        return points;
+    }
 }
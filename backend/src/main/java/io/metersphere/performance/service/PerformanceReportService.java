@@ -2,6 +2,9 @@ package io.metersphere.performance.service;
 
 import com.alibaba.fastjson.JSON;
 import com.alibaba.fastjson.JSONObject;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.collect.Lists;
 import io.metersphere.base.domain.*;
 import io.metersphere.base.mapper.*;
 import io.metersphere.base.mapper.ext.ExtFileContentMapper;
@@ -25,30 +28,60 @@ import io.metersphere.performance.controller.request.DeleteReportRequest;
 import io.metersphere.performance.controller.request.RenameReportRequest;
 import io.metersphere.performance.controller.request.ReportRequest;
 import io.metersphere.performance.dto.LoadTestExportJmx;
+import io.metersphere.performance.dto.LoadTestReportLogPart;
 import io.metersphere.performance.engine.Engine;
 import io.metersphere.performance.engine.EngineFactory;
 import io.metersphere.service.FileService;
 import io.metersphere.service.TestResourceService;
 import io.metersphere.track.service.TestPlanLoadCaseService;
+import io.metersphere.websocket.ReportWebSocket;
+import io.metersphere.websocket.WebSocketPushHub;
 import org.apache.commons.collections.CollectionUtils;
 import org.apache.commons.lang3.StringUtils;
+import org.apache.ibatis.cursor.Cursor;
 import org.apache.ibatis.session.SqlSession;
 import org.apache.ibatis.session.SqlSessionFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
 
 import javax.annotation.Resource;
 import javax.servlet.ServletOutputStream;
+import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
 import java.text.SimpleDateFormat;
 import java.util.*;
+import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
+import java.util.zip.GZIPOutputStream;
 
 @Service
 @Transactional(rollbackFor = Exception.class)
 public class PerformanceReportService {
+    private static final int LOG_BUFFER_SIZE = 64 * 1024;
+
+    // 报告结果大小差别很大，按原始 report_value 的字符数限制缓存总量
+    private static final long REPORT_CONTENT_CACHE_MAX_CHARS = 64L * 1024 * 1024;
+    private static final long SAMPLED_CHART_CACHE_MAX_POINTS = 1000000L;
+
+    // 已完成报告的结果不会再变化，按 reportId + ReportKeys 缓存解析后的对象
+    private final Cache<String, CachedContent> reportContentCache = CacheBuilder.newBuilder()
+            .maximumWeight(REPORT_CONTENT_CACHE_MAX_CHARS)
+            .weigher((String key, CachedContent value) -> value.weight)
+            .expireAfterAccess(30, TimeUnit.MINUTES)
+            .build();
+    // 已完成报告降采样后的图表，按 reportId + ReportKeys + 点数 + 时间范围缓存，按点数限制总量
+    private final Cache<String, List<ChartsData>> sampledChartCache = CacheBuilder.newBuilder()
+            .maximumWeight(SAMPLED_CHART_CACHE_MAX_POINTS)
+            .weigher((String key, List<ChartsData> value) -> value.size() + 1)
+            .expireAfterAccess(30, TimeUnit.MINUTES)
+            .build();
 
     @Resource
     private LoadTestReportMapper loadTestReportMapper;
@@ -74,6 +107,8 @@ public class PerformanceReportService {
     private SqlSessionFactory sqlSessionFactory;
     @Resource
     private TestResourcePoolMapper testResourcePoolMapper;
+    @Value("${performance.log.download.gzip:false}")
+    private boolean logDownloadGzip;
 
     public List<ReportDTO> getRecentReportList(ReportRequest request) {
         List<OrderRequest> orders = new ArrayList<>();
@@ -149,6 +184,7 @@ public class PerformanceReportService {
         TestPlanLoadCaseService testPlanLoadCaseService = CommonBeanFactory.getBean(TestPlanLoadCaseService.class);
         testPlanLoadCaseService.checkStatusByDeleteLoadCaseReportId(reportId);
         loadTestReportMapper.deleteByPrimaryKey(reportId);
+        invalidateReportContents(reportId);
     }
 
     public void stopEngine(LoadTestWithBLOBs loadTest, Engine engine) {
@@ -161,44 +197,27 @@ public class PerformanceReportService {
         return extLoadTestReportMapper.getReportTestAndProInfo(reportId);
     }
 
-    private String getContent(String id, ReportKeys reportKey) {
-        LoadTestReportResultExample example = new LoadTestReportResultExample();
-        example.createCriteria().andReportIdEqualTo(id).andReportKeyEqualTo(reportKey.name());
-        List<LoadTestReportResult> loadTestReportResults = loadTestReportResultMapper.selectByExampleWithBLOBs(example);
-        if (loadTestReportResults.size() == 0) {
-            LogUtil.warn("get report result error");
-            return "";
-        }
-        return loadTestReportResults.get(0).getReportValue();
-    }
-
     public List<Statistics> getReportStatistics(String id) {
-        checkReportStatus(id);
-        String reportValue = getContent(id, ReportKeys.RequestStatistics);
-        return JSON.parseArray(reportValue, Statistics.class);
+        return getReportContent(id, ReportKeys.RequestStatistics);
     }
 
     public List<Errors> getReportErrors(String id) {
-        checkReportStatus(id);
-        String content = getContent(id, ReportKeys.Errors);
-        return JSON.parseArray(content, Errors.class);
+        return getReportContent(id, ReportKeys.Errors);
     }
 
     public List<ErrorsTop5> getReportErrorsTOP5(String id) {
-        checkReportStatus(id);
-        String content = getContent(id, ReportKeys.ErrorsTop5);
-        return JSON.parseArray(content, ErrorsTop5.class);
+        return getReportContent(id, ReportKeys.ErrorsTop5);
     }
 
     public TestOverview getTestOverview(String id) {
-        checkReportStatus(id);
-        String content = getContent(id, ReportKeys.Overview);
-        return JSON.parseObject(content, TestOverview.class);
+        return getReportContent(id, ReportKeys.Overview);
     }
 
     public ReportTimeInfo getReportTimeInfo(String id) {
-        checkReportStatus(id);
-        String content = getContent(id, ReportKeys.TimeInfo);
+        return getReportContent(id, ReportKeys.TimeInfo);
+    }
+
+    private ReportTimeInfo parseReportTimeInfo(String content) {
         try {
             return JSON.parseObject(content, ReportTimeInfo.class);
         } catch (Exception e) {
@@ -221,15 +240,123 @@ public class PerformanceReportService {
     }
 
     public List<ChartsData> getLoadChartData(String id) {
-        checkReportStatus(id);
-        String content = getContent(id, ReportKeys.LoadChart);
-        return JSON.parseArray(content, ChartsData.class);
+        return getReportContent(id, ReportKeys.LoadChart);
     }
 
     public List<ChartsData> getResponseTimeChartData(String id) {
-        checkReportStatus(id);
-        String content = getContent(id, ReportKeys.ResponseTimeChart);
-        return JSON.parseArray(content, ChartsData.class);
+        return getReportContent(id, ReportKeys.ResponseTimeChart);
+    }
+
+    @SuppressWarnings("unchecked")
+    private <T> T getReportContent(String id, ReportKeys reportKey) {
+        return (T) getReportContents(id, Collections.singletonList(reportKey.name())).get(reportKey.name());
+    }
+
+    /**
+     * 一次查询返回多个 ReportKeys 的解析结果，key 为 ReportKeys 名称，不存在的 key 忽略；
+     * 已完成报告的解析结果放入缓存，全部命中时不再查询报告状态
+     */
+    public Map<String, Object> getReportContents(String reportId, Collection<String> reportKeys) {
+        List<ReportKeys> keys = new ArrayList<>();
+        if (reportKeys != null) {
+            reportKeys.stream().distinct().forEach(name -> {
+                try {
+                    keys.add(ReportKeys.valueOf(name));
+                } catch (Exception e) {
+                    LogUtil.warn("unknown report key: " + name);
+                }
+            });
+        }
+
+        Map<ReportKeys, Object> contents = new HashMap<>();
+        List<ReportKeys> missing = new ArrayList<>();
+        keys.forEach(key -> {
+            CachedContent cached = reportContentCache.getIfPresent(reportContentCacheKey(reportId, key));
+            if (cached != null) {
+                contents.put(key, cached.content);
+            } else {
+                missing.add(key);
+            }
+        });
+
+        if (!missing.isEmpty()) {
+            LoadTestReport loadTestReport = loadTestReportMapper.selectByPrimaryKey(reportId);
+            String reportStatus = loadTestReport == null ? "" : loadTestReport.getStatus();
+            if (StringUtils.equals(PerformanceTestStatus.Error.name(), reportStatus)) {
+                MSException.throwException("Report generation error!");
+            }
+            boolean completed = StringUtils.equals(PerformanceTestStatus.Completed.name(), reportStatus);
+
+            LoadTestReportResultExample example = new LoadTestReportResultExample();
+            example.createCriteria().andReportIdEqualTo(reportId)
+                    .andReportKeyIn(missing.stream().map(ReportKeys::name).collect(Collectors.toList()));
+            Map<String, String> values = new HashMap<>();
+            loadTestReportResultMapper.selectByExampleWithBLOBs(example)
+                    .forEach(result -> values.putIfAbsent(result.getReportKey(), result.getReportValue()));
+
+            missing.forEach(key -> {
+                String value = values.get(key.name());
+                if (value == null) {
+                    LogUtil.warn("get report result error");
+                    value = "";
+                }
+                Object content;
+                try {
+                    content = parseReportContent(key, value);
+                } catch (Exception e) {
+                    LogUtil.error(e.getMessage(), e);
+                    return;
+                }
+                contents.put(key, content);
+                if (completed && content != null) {
+                    reportContentCache.put(reportContentCacheKey(reportId, key), new CachedContent(content, value.length()));
+                }
+            });
+        }
+
+        Map<String, Object> result = new LinkedHashMap<>();
+        keys.forEach(key -> result.put(key.name(), contents.get(key)));
+        return result;
+    }
+
+    private Object parseReportContent(ReportKeys reportKey, String content) {
+        switch (reportKey) {
+            case RequestStatistics:
+                return JSON.parseArray(content, Statistics.class);
+            case Errors:
+                return JSON.parseArray(content, Errors.class);
+            case ErrorsTop5:
+                return JSON.parseArray(content, ErrorsTop5.class);
+            case Overview:
+                return JSON.parseObject(content, TestOverview.class);
+            case TimeInfo:
+                return parseReportTimeInfo(content);
+            case ResultStatus:
+            case ReportCompleteCount:
+                return content;
+            default:
+                return JSON.parseArray(content, ChartsData.class);
+        }
+    }
+
+    private static class CachedContent {
+        private final Object content;
+        private final int weight;
+
+        private CachedContent(Object content, int weight) {
+            this.content = content;
+            this.weight = Math.max(weight, 1);
+        }
+    }
+
+    private String reportContentCacheKey(String reportId, ReportKeys reportKey) {
+        return reportId + "|" + reportKey.name();
+    }
+
+    private void invalidateReportContents(String reportId) {
+        String prefix = reportId + "|";
+        reportContentCache.asMap().keySet().removeIf(key -> key.startsWith(prefix));
+        sampledChartCache.asMap().keySet().removeIf(key -> key.startsWith(prefix));
     }
 
     public void checkReportStatus(String reportId) {
@@ -247,6 +374,22 @@ public class PerformanceReportService {
         return loadTestReportMapper.selectByPrimaryKey(id);
     }
 
+    /**
+     * 批量查询报告，按 ID 分批 IN 查询，key 为报告 ID
+     */
+    public Map<String, LoadTestReportWithBLOBs> getLoadTestReports(Collection<String> ids) {
+        Map<String, LoadTestReportWithBLOBs> reportMap = new HashMap<>();
+        if (CollectionUtils.isEmpty(ids)) {
+            return reportMap;
+        }
+        for (List<String> subIds : Lists.partition(new ArrayList<>(new LinkedHashSet<>(ids)), 500)) {
+            LoadTestReportExample example = new LoadTestReportExample();
+            example.createCriteria().andIdIn(subIds);
+            loadTestReportMapper.selectByExampleWithBLOBs(example).forEach(report -> reportMap.put(report.getId(), report));
+        }
+        return reportMap;
+    }
+
     public List<LogDetailDTO> getReportLogResource(String reportId) {
         List<LogDetailDTO> result = new ArrayList<>();
         List<String> resourceIdAndIndexes = extLoadTestReportMapper.selectResourceId(reportId);
@@ -288,27 +431,131 @@ public class PerformanceReportService {
         return loadTestReportLogMapper.selectByExampleWithBLOBs(example);
     }
 
+    /**
+     * 按分片顺序用游标逐行读取日志并直接写入响应，支持单个 Range 断点续传；
+     * 非 Range 请求在开启配置且客户端支持时以 gzip 压缩输出
+     */
+    @Transactional(readOnly = true)
     public void downloadLog(HttpServletResponse response, String reportId, String resourceId) throws Exception {
-        LoadTestReportLogExample example = new LoadTestReportLogExample();
-        LoadTestReportLogExample.Criteria criteria = example.createCriteria();
-        criteria.andReportIdEqualTo(reportId).andResourceIdEqualTo(resourceId);
-        example.setOrderByClause("part");
+        HttpServletRequest request = getCurrentRequest();
+        String range = request == null ? null : request.getHeader(HttpHeaders.RANGE);
+
+        response.setContentType("application/x-download");
+        response.addHeader("Content-Disposition", "attachment;filename=jmeter.log");
+        response.setHeader(HttpHeaders.ACCEPT_RANGES, "bytes");
+
+        if (StringUtils.isNotBlank(range)) {
+            List<LoadTestReportLogPart> parts = extLoadTestReportMapper.selectLogPartSizes(reportId, resourceId);
+            long total = parts.stream().mapToLong(part -> part.getSize() == null ? 0 : part.getSize()).sum();
+            long[] bytes = parseRange(range, total);
+            if (bytes == null) {
+                // 多段或无法解析的 Range 按完整下载处理
+                writeLog(response, reportId, resourceId, request);
+                return;
+            }
+            if (bytes.length == 0) {
+                response.setStatus(HttpServletResponse.SC_REQUESTED_RANGE_NOT_SATISFIABLE);
+                response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes */" + total);
+                return;
+            }
+            writeLogRange(response, reportId, resourceId, parts, bytes[0], bytes[1], total);
+            return;
+        }
+        writeLog(response, reportId, resourceId, request);
+    }
 
-        long count = loadTestReportLogMapper.countByExample(example);
+    private void writeLog(HttpServletResponse response, String reportId, String resourceId, HttpServletRequest request) throws Exception {
+        boolean gzip = logDownloadGzip && request != null
+                && StringUtils.containsIgnoreCase(request.getHeader(HttpHeaders.ACCEPT_ENCODING), "gzip");
+        if (gzip) {
+            response.addHeader(HttpHeaders.CONTENT_ENCODING, "gzip");
+        }
+        OutputStream outputStream = response.getOutputStream();
+        if (gzip) {
+            outputStream = new GZIPOutputStream(outputStream, LOG_BUFFER_SIZE);
+        }
+        try (OutputStream out = outputStream;
+             Cursor<LoadTestReportLog> cursor = extLoadTestReportMapper.selectLogCursor(reportId, resourceId, null)) {
+            for (LoadTestReportLog log : cursor) {
+                if (log.getContent() != null) {
+                    out.write(log.getContent().getBytes(StandardCharsets.UTF_8));
+                }
+            }
+        }
+    }
 
-        try (OutputStream outputStream = response.getOutputStream()) {
-            response.setContentType("application/x-download");
-            response.addHeader("Content-Disposition", "attachment;filename=jmeter.log");
-            for (long i = 1; i <= count; i++) {
-                example.clear();
-                LoadTestReportLogExample.Criteria innerCriteria = example.createCriteria();
-                innerCriteria.andReportIdEqualTo(reportId).andResourceIdEqualTo(resourceId).andPartEqualTo(i);
+    private void writeLogRange(HttpServletResponse response, String reportId, String resourceId, List<LoadTestReportLogPart> parts,
+                               long start, long end, long total) throws Exception {
+        // 找到 start 所在的分片，之前的分片不再读取
+        long offset = 0;
+        Long startPart = null;
+        for (LoadTestReportLogPart part : parts) {
+            long size = part.getSize() == null ? 0 : part.getSize();
+            if (offset + size > start) {
+                startPart = part.getPart();
+                break;
+            }
+            offset += size;
+        }
+
+        response.setStatus(HttpServletResponse.SC_PARTIAL_CONTENT);
+        response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes " + start + "-" + end + "/" + total);
+        response.setContentLengthLong(end - start + 1);
 
-                List<LoadTestReportLog> loadTestReportLogs = loadTestReportLogMapper.selectByExampleWithBLOBs(example);
-                LoadTestReportLog content = loadTestReportLogs.get(0);
-                outputStream.write(content.getContent().getBytes());
-                outputStream.flush();
+        try (OutputStream out = response.getOutputStream();
+             Cursor<LoadTestReportLog> cursor = extLoadTestReportMapper.selectLogCursor(reportId, resourceId, startPart)) {
+            for (LoadTestReportLog log : cursor) {
+                if (offset > end) {
+                    break;
+                }
+                byte[] content = log.getContent() == null ? new byte[0] : log.getContent().getBytes(StandardCharsets.UTF_8);
+                int from = (int) Math.max(0, start - offset);
+                int to = (int) Math.min(content.length, end - offset + 1);
+                if (to > from) {
+                    out.write(content, from, to - from);
+                }
+                offset += content.length;
+            }
+        }
+    }
+
+    /**
+     * 解析 bytes=start-end、bytes=start-、bytes=-suffix 形式的单个 Range
+     *
+     * @return [start, end]；无法解析或多段时返回 null，超出范围时返回空数组
+     */
+    private long[] parseRange(String range, long total) {
+        if (!StringUtils.startsWith(range, "bytes=") || StringUtils.contains(range, ",")) {
+            return null;
+        }
+        String[] values = StringUtils.splitPreserveAllTokens(StringUtils.substringAfter(range, "=").trim(), "-");
+        if (values.length != 2) {
+            return null;
+        }
+        try {
+            long start;
+            long end;
+            if (StringUtils.isBlank(values[0])) {
+                start = Math.max(0, total - Long.parseLong(values[1].trim()));
+                end = total - 1;
+            } else {
+                start = Long.parseLong(values[0].trim());
+                end = StringUtils.isBlank(values[1]) ? total - 1 : Math.min(Long.parseLong(values[1].trim()), total - 1);
+            }
+            if (start >= total || start > end) {
+                return new long[0];
             }
+            return new long[]{start, end};
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    private HttpServletRequest getCurrentRequest() {
+        try {
+            return ((ServletRequestAttributes) RequestContextHolder.currentRequestAttributes()).getRequest();
+        } catch (Exception e) {
+            return null;
         }
     }
 
@@ -321,6 +568,7 @@ public class PerformanceReportService {
         report.setId(reportId);
         report.setStatus(status);
         loadTestReportMapper.updateByPrimaryKeySelective(report);
+        WebSocketPushHub.publish(ReportWebSocket.CHANNEL, reportId);
     }
 
     public void deleteReportBatch(DeleteReportRequest reportRequest) {
@@ -329,15 +577,11 @@ public class PerformanceReportService {
     }
 
     public List<ChartsData> getErrorChartData(String id) {
-        checkReportStatus(id);
-        String content = getContent(id, ReportKeys.ErrorsChart);
-        return JSON.parseArray(content, ChartsData.class);
+        return getReportContent(id, ReportKeys.ErrorsChart);
     }
 
     public List<ChartsData> getResponseCodeChartData(String id) {
-        checkReportStatus(id);
-        String content = getContent(id, ReportKeys.ResponseCodeChart);
-        return JSON.parseArray(content, ChartsData.class);
+        return getReportContent(id, ReportKeys.ResponseCodeChart);
     }
 
     /**
@@ -422,14 +666,38 @@ public class PerformanceReportService {
         return loadTestReportMapper.selectByExample(example);
     }
 
+    @SuppressWarnings("unchecked")
     public List<ChartsData> getReportChart(String reportKey, String reportId) {
-        checkReportStatus(reportId);
+        Object content = getReportContents(reportId, Collections.singletonList(reportKey)).get(reportKey);
+        if (content instanceof List) {
+            return (List<ChartsData>) content;
+        }
+        return new ArrayList<>();
+    }
+
+    /**
+     * 按时间范围截取并降采样图表数据，maxPoints 为空时只按范围截取
+     */
+    public List<ChartsData> getReportChart(String reportKey, String reportId, Integer maxPoints, String start, String end) {
+        if (maxPoints == null && StringUtils.isBlank(start) && StringUtils.isBlank(end)) {
+            return getReportChart(reportKey, reportId);
+        }
+        String cacheKey = StringUtils.join(Arrays.asList(reportId, reportKey, maxPoints, start, end), "|");
+        List<ChartsData> sampled = sampledChartCache.getIfPresent(cacheKey);
+        if (sampled != null) {
+            return sampled;
+        }
+        List<ChartsData> chart = getReportChart(reportKey, reportId);
+        sampled = ChartsDataSampler.sample(chart, maxPoints, start, end);
+        // 原始数据进入缓存说明报告已完成
         try {
-            String content = getContent(reportId, ReportKeys.valueOf(reportKey));
-            return JSON.parseArray(content, ChartsData.class);
-        } catch (Exception e) {
-            return new ArrayList<>();
+            if (reportContentCache.getIfPresent(reportContentCacheKey(reportId, ReportKeys.valueOf(reportKey))) != null) {
+                sampledChartCache.put(cacheKey, sampled);
+            }
+        } catch (IllegalArgumentException e) {
+            // 未知的 reportKey 不缓存
         }
+        return sampled;
     }
 
     public String getLoadConfiguration(String reportId) {
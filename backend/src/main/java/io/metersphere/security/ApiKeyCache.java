@@ -0,0 +1,94 @@
+package io.metersphere.security;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import io.metersphere.base.domain.UserKey;
+import io.metersphere.commons.utils.LogUtil;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.GuavaCacheMetrics;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * API Key 认证缓存
+ * 按 accessKey 缓存启用中的密钥，按 accessKey + signature 缓存已校验通过的签名；
+ * 密钥启用、禁用、删除时清除全部缓存，其他节点的变更通过过期时间兜底
+ */
+public class ApiKeyCache {
+    private static final Cache<String, UserKey> USER_KEYS = CacheBuilder.newBuilder()
+            .maximumSize(10000)
+            .expireAfterWrite(1, TimeUnit.MINUTES)
+            .recordStats()
+            .build();
+    private static final Cache<String, VerifiedSignature> SIGNATURES = CacheBuilder.newBuilder()
+            .maximumSize(10000)
+            .expireAfterWrite(1, TimeUnit.MINUTES)
+            .recordStats()
+            .build();
+
+    private ApiKeyCache() {
+    }
+
+    /**
+     * 注册命中率等指标，名称为 cache.gets{cache=api.key.user|api.key.signature} 等
+     */
+    public static void bindMetrics(MeterRegistry registry) {
+        GuavaCacheMetrics.monitor(registry, USER_KEYS, "api.key.user");
+        GuavaCacheMetrics.monitor(registry, SIGNATURES, "api.key.signature");
+    }
+
+    /**
+     * 密钥不存在或已禁用时不缓存，返回 null
+     */
+    public static UserKey getUserKey(String accessKey, Supplier<UserKey> loader) {
+        UserKey userKey = USER_KEYS.getIfPresent(accessKey);
+        if (userKey != null) {
+            return userKey;
+        }
+        userKey = loader.get();
+        if (userKey != null) {
+            USER_KEYS.put(accessKey, userKey);
+        }
+        return userKey;
+    }
+
+    public static VerifiedSignature getSignature(String accessKey, String signature) {
+        return SIGNATURES.getIfPresent(signatureKey(accessKey, signature));
+    }
+
+    public static void putSignature(String accessKey, String signature, String userId, long signatureTime) {
+        SIGNATURES.put(signatureKey(accessKey, signature), new VerifiedSignature(userId, signatureTime));
+    }
+
+    public static void invalidateAll() {
+        try {
+            USER_KEYS.invalidateAll();
+            SIGNATURES.invalidateAll();
+        } catch (Exception e) {
+            LogUtil.error(e.getMessage(), e);
+        }
+    }
+
+    private static String signatureKey(String accessKey, String signature) {
+        return accessKey + "|" + signature;
+    }
+
+    public static class VerifiedSignature {
+        private final String userId;
+        private final long signatureTime;
+
+        VerifiedSignature(String userId, long signatureTime) {
+            this.userId = userId;
+            this.signatureTime = signatureTime;
+        }
+
+        public String getUserId() {
+            return userId;
+        }
+
+        public long getSignatureTime() {
+            return signatureTime;
+        }
+    }
+}
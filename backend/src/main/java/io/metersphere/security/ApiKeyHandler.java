@@ -14,6 +14,9 @@ public class ApiKeyHandler {
 
     public static final String API_SIGNATURE = "signature";
 
+    // 签名30分钟超时
+    private static final long SIGNATURE_TIMEOUT = 1800000;
+
     public static String getUser(HttpServletRequest request) {
         if (request == null) {
             return null;
@@ -32,7 +35,13 @@ public class ApiKeyHandler {
         if (StringUtils.isBlank(accessKey) || StringUtils.isBlank(signature)) {
             return null;
         }
-        UserKey userKey = CommonBeanFactory.getBean(UserKeyService.class).getUserKey(accessKey);
+        // 同一签名在有效期内重复调用时跳过查库和解密
+        ApiKeyCache.VerifiedSignature verified = ApiKeyCache.getSignature(accessKey, signature);
+        if (verified != null) {
+            checkSignatureTime(verified.getSignatureTime());
+            return verified.getUserId();
+        }
+        UserKey userKey = ApiKeyCache.getUserKey(accessKey, () -> CommonBeanFactory.getBean(UserKeyService.class).getUserKey(accessKey));
         if (userKey == null) {
             throw new RuntimeException("invalid accessKey");
         }
@@ -55,10 +64,14 @@ public class ApiKeyHandler {
         } catch (Exception e) {
             throw new RuntimeException(e);
         }
-        if (Math.abs(System.currentTimeMillis() - signatureTime) > 1800000) {
-            //签名30分钟超时
+        checkSignatureTime(signatureTime);
+        ApiKeyCache.putSignature(accessKey, signature, userKey.getUserId(), signatureTime);
+        return userKey.getUserId();
+    }
+
+    private static void checkSignatureTime(long signatureTime) {
+        if (Math.abs(System.currentTimeMillis() - signatureTime) > SIGNATURE_TIMEOUT) {
             throw new RuntimeException("expired signature");
         }
-        return userKey.getUserId();
     }
 }
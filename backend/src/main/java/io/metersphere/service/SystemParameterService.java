@@ -364,6 +364,18 @@ public class SystemParameterService {
         return systemParameterMapper.selectByPrimaryKey(key);
     }
 
+    public void saveValue(String key, String value) {
+        SystemParameter parameter = new SystemParameter();
+        parameter.setParamKey(key);
+        parameter.setParamValue(value);
+        parameter.setType("text");
+        if (systemParameterMapper.selectByPrimaryKey(key) == null) {
+            systemParameterMapper.insert(parameter);
+        } else {
+            systemParameterMapper.updateByPrimaryKey(parameter);
+        }
+    }
+
     public void editInfo(SystemParameter systemParameter) {
         if (StringUtils.isBlank(systemParameter.getParamKey())) {
             return;
@@ -5,12 +5,16 @@ import io.metersphere.base.domain.UserKeyExample;
 import io.metersphere.base.mapper.UserKeyMapper;
 import io.metersphere.commons.constants.ApiKeyConstants;
 import io.metersphere.commons.exception.MSException;
+import io.metersphere.commons.utils.TransactionUtils;
 import io.metersphere.i18n.Translator;
+import io.metersphere.security.ApiKeyCache;
+import io.micrometer.core.instrument.MeterRegistry;
 import org.apache.commons.lang3.RandomStringUtils;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.util.CollectionUtils;
 
+import javax.annotation.PostConstruct;
 import javax.annotation.Resource;
 import java.util.List;
 import java.util.UUID;
@@ -24,6 +28,13 @@ public class UserKeyService {
 
     @Resource
     private UserService userService;
+    @Resource
+    private MeterRegistry meterRegistry;
+
+    @PostConstruct
+    public void init() {
+        ApiKeyCache.bindMetrics(meterRegistry);
+    }
 
     public List<UserKey> getUserKeysInfo(String userId) {
         UserKeyExample userKeysExample = new UserKeyExample();
@@ -57,6 +68,8 @@ public class UserKeyService {
 
     public void deleteUserKey(String id) {
         userKeyMapper.deleteByPrimaryKey(id);
+        // 提交后再清除，避免其他请求在提交前把旧状态重新放入缓存
+        TransactionUtils.afterCommit(ApiKeyCache::invalidateAll);
     }
 
     public void activeUserKey(String id) {
@@ -64,6 +77,7 @@ public class UserKeyService {
         userKeys.setId(id);
         userKeys.setStatus(ApiKeyConstants.ACTIVE.name());
         userKeyMapper.updateByPrimaryKeySelective(userKeys);
+        TransactionUtils.afterCommit(ApiKeyCache::invalidateAll);
     }
 
     public void disableUserKey(String id) {
@@ -71,6 +85,7 @@ public class UserKeyService {
         userKeys.setId(id);
         userKeys.setStatus(ApiKeyConstants.DISABLED.name());
         userKeyMapper.updateByPrimaryKeySelective(userKeys);
+        TransactionUtils.afterCommit(ApiKeyCache::invalidateAll);
     }
 
     public UserKey getUserKey(String accessKey) {
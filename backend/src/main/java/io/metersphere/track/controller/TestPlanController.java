@@ -216,18 +216,21 @@ public class TestPlanController {
     }
 
     @GetMapping("/report/export/{planId}")
-    public void exportHtmlReport(@PathVariable String planId, HttpServletResponse response) throws UnsupportedEncodingException {
-        testPlanService.exportPlanReport(planId, response);
+    public void exportHtmlReport(@PathVariable String planId, @RequestParam(value = "withResponse", defaultValue = "true") boolean withResponse,
+                                 HttpServletResponse response) throws UnsupportedEncodingException {
+        testPlanService.exportPlanReport(planId, withResponse, response);
     }
 
     @GetMapping("/get/report/export/{planId}")
-    public TestPlanSimpleReportDTO getExportHtmlReport(@PathVariable String planId, HttpServletResponse response) throws UnsupportedEncodingException {
-        return testPlanService.buildPlanReport(planId, true);
+    public TestPlanSimpleReportDTO getExportHtmlReport(@PathVariable String planId, @RequestParam(value = "withResponse", defaultValue = "true") boolean withResponse,
+                                                       HttpServletResponse response) throws UnsupportedEncodingException {
+        return testPlanService.buildPlanReport(planId, withResponse);
     }
 
     @GetMapping("/report/db/export/{reportId}")
-    public void exportHtmlDbReport(@PathVariable String reportId, HttpServletResponse response) throws UnsupportedEncodingException {
-        testPlanService.exportPlanDbReport(reportId, response);
+    public void exportHtmlDbReport(@PathVariable String reportId, @RequestParam(value = "withResponse", defaultValue = "true") boolean withResponse,
+                                   HttpServletResponse response) throws UnsupportedEncodingException {
+        testPlanService.exportPlanDbReport(reportId, withResponse, response);
     }
 
     @GetMapping("/report/{planId}")
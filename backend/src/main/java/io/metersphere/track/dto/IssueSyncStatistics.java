@@ -0,0 +1,50 @@
+package io.metersphere.track.dto;
+
+import lombok.Getter;
+import lombok.Setter;
+
+/**
+ * 第三方缺陷同步统计：拉取、更新、删除的数量和耗时（毫秒）
+ */
+@Getter
+@Setter
+public class IssueSyncStatistics {
+    private String projectId;
+    private String platform;
+    private boolean incremental;
+    private int fetched;
+    private int updated;
+    private int deleted;
+    private int failed;
+    private long duration;
+
+    public void fetched(int count) {
+        fetched += count;
+    }
+
+    public void updated(int count) {
+        updated += count;
+    }
+
+    public void deleted(int count) {
+        deleted += count;
+    }
+
+    public void failed() {
+        failed++;
+    }
+
+    public synchronized void add(IssueSyncStatistics statistics) {
+        fetched += statistics.getFetched();
+        updated += statistics.getUpdated();
+        deleted += statistics.getDeleted();
+        failed += statistics.getFailed();
+    }
+
+    @Override
+    public String toString() {
+        return "platform: " + platform + ", project: " + projectId + ", mode: " + (incremental ? "incremental" : "full")
+                + ", fetched: " + fetched + ", updated: " + updated + ", deleted: " + deleted
+                + ", failed: " + failed + ", duration: " + duration + "ms";
+    }
+}
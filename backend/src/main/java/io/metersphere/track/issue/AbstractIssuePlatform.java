@@ -2,6 +2,7 @@ package io.metersphere.track.issue;
 
 import com.alibaba.fastjson.JSONArray;
 import com.alibaba.fastjson.JSONObject;
+import com.google.common.collect.Lists;
 import io.metersphere.base.domain.*;
 import io.metersphere.base.mapper.IssuesMapper;
 import io.metersphere.base.mapper.ProjectMapper;
@@ -16,6 +17,7 @@ import io.metersphere.dto.CustomFieldItemDTO;
 import io.metersphere.dto.IssueTemplateDao;
 import io.metersphere.dto.UserDTO;
 import io.metersphere.service.*;
+import io.metersphere.track.dto.IssueSyncStatistics;
 import io.metersphere.track.request.testcase.IssuesRequest;
 import io.metersphere.track.request.testcase.IssuesUpdateRequest;
 import io.metersphere.track.service.IssuesService;
@@ -26,9 +28,13 @@ import org.apache.http.conn.ssl.SSLConnectionSocketFactory;
 import org.apache.http.conn.ssl.TrustStrategy;
 import org.apache.http.impl.client.CloseableHttpClient;
 import org.apache.http.impl.client.HttpClients;
+import org.apache.ibatis.session.ExecutorType;
+import org.apache.ibatis.session.SqlSession;
+import org.apache.ibatis.session.SqlSessionFactory;
 import org.jsoup.Jsoup;
 import org.jsoup.nodes.Document;
 import org.jsoup.safety.Whitelist;
+import org.mybatis.spring.SqlSessionUtils;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.client.HttpComponentsClientHttpRequestFactory;
 import org.springframework.util.CollectionUtils;
@@ -66,12 +72,32 @@ public abstract class AbstractIssuePlatform implements IssuesPlatform {
     protected String userId;
     protected String defaultCustomFields;
     protected boolean isThirdPartTemplate;
+    // 不为空时只同步该时间（毫秒）之后更新过的缺陷
+    protected Long syncSince;
+    protected IssueSyncStatistics syncStatistics = new IssueSyncStatistics();
+
+    private static final int SYNC_BATCH_SIZE = 500;
 
 
     public String getKey() {
         return key;
     }
 
+    /**
+     * 是否支持按更新时间增量同步
+     */
+    public boolean isSupportIncrementalSync() {
+        return false;
+    }
+
+    public void setSyncSince(Long syncSince) {
+        this.syncSince = syncSince;
+    }
+
+    public IssueSyncStatistics getSyncStatistics() {
+        return syncStatistics;
+    }
+
     static {
         try {
             TrustStrategy acceptingTrustStrategy = (X509Certificate[] chain, String authType) -> true;
@@ -499,4 +525,40 @@ public abstract class AbstractIssuePlatform implements IssuesPlatform {
         }
         return false;
     }
+
+    /**
+     * 同步时批量查询缺陷，替代逐条 selectByPrimaryKey
+     */
+    protected Map<String, IssuesWithBLOBs> getIssuesForSync(Collection<String> ids) {
+        Map<String, IssuesWithBLOBs> issueMap = new HashMap<>();
+        for (List<String> subIds : Lists.partition(new ArrayList<>(ids), SYNC_BATCH_SIZE)) {
+            IssuesExample example = new IssuesExample();
+            example.createCriteria().andIdIn(subIds);
+            issuesMapper.selectByExampleWithBLOBs(example).forEach(item -> issueMap.put(item.getId(), item));
+        }
+        return issueMap;
+    }
+
+    /**
+     * 同步结果批量写回数据库
+     */
+    protected void batchUpdateIssues(List<? extends IssuesWithBLOBs> issues) {
+        if (CollectionUtils.isEmpty(issues)) {
+            return;
+        }
+        SqlSessionFactory sqlSessionFactory = CommonBeanFactory.getBean(SqlSessionFactory.class);
+        SqlSession sqlSession = sqlSessionFactory.openSession(ExecutorType.BATCH);
+        IssuesMapper batchMapper = sqlSession.getMapper(IssuesMapper.class);
+        try {
+            for (int i = 0; i < issues.size(); i++) {
+                batchMapper.updateByPrimaryKeySelective(issues.get(i));
+                if ((i + 1) % SYNC_BATCH_SIZE == 0) {
+                    sqlSession.flushStatements();
+                }
+            }
+            sqlSession.flushStatements();
+        } finally {
+            SqlSessionUtils.closeSqlSession(sqlSession, sqlSessionFactory);
+        }
+    }
 }
@@ -2,6 +2,7 @@ package io.metersphere.track.issue;
 
 import com.alibaba.fastjson.JSONArray;
 import com.alibaba.fastjson.JSONObject;
+import com.google.common.collect.Lists;
 import io.metersphere.base.domain.IssuesDao;
 import io.metersphere.base.domain.IssuesWithBLOBs;
 import io.metersphere.base.domain.Project;
@@ -39,6 +40,8 @@ public class JiraPlatform extends AbstractIssuePlatform {
 
     protected JiraClientV2 jiraClientV2;
 
+    private static final int SYNC_PAGE_SIZE = 100;
+
     public JiraPlatform(IssuesRequest issuesRequest) {
         super(issuesRequest);
         this.key = IssuesManagePlatform.Jira.name();
@@ -295,29 +298,129 @@ public class JiraPlatform extends AbstractIssuePlatform {
         return null;
     }
 
+    @Override
+    public boolean isSupportIncrementalSync() {
+        return true;
+    }
+
     @Override
     public void syncIssues(Project project, List<IssuesDao> issues) {
         isThirdPartTemplate = isThirdPartTemplate();
-        issues.forEach(item -> {
+        Map<String, IssuesDao> issueMap = new HashMap<>();
+        issues.forEach(item -> issueMap.put(item.getPlatformId(), item));
+        if (syncSince != null) {
+            syncIssuesByUpdated(project, issueMap);
+        } else {
+            syncIssuesByKey(issueMap);
+        }
+    }
+
+    /**
+     * 全量同步：按 key 每次批量查询 100 个缺陷
+     */
+    private void syncIssuesByKey(Map<String, IssuesDao> issueMap) {
+        List<String> keys = new ArrayList<>(issueMap.keySet());
+        for (List<String> subKeys : Lists.partition(keys, SYNC_PAGE_SIZE)) {
+            Set<String> remaining = new HashSet<>(subKeys);
+            try {
+                String jql = "key in (" + subKeys.stream().map(item -> "\"" + item + "\"").collect(Collectors.joining(",")) + ")";
+                JiraIssueListResponse result = jiraClientV2.searchIssues(jql, 0, SYNC_PAGE_SIZE);
+                updateSyncIssues(result.getIssues(), issueMap, remaining);
+            } catch (Exception e) {
+                LogUtil.error(e);
+            }
+            // 批量查询没有返回的（已删除、移动到其他项目或查询失败）逐个确认
+            remaining.forEach(platformId -> syncIssue(issueMap.get(platformId)));
+        }
+    }
+
+    /**
+     * 增量同步：只查询项目中上次同步之后更新过的缺陷
+     * 使用相对时间（-Nm）避免 Jira 用户时区和服务器时区不一致
+     */
+    private void syncIssuesByUpdated(Project project, Map<String, IssuesDao> issueMap) {
+        String jiraKey = validateJiraKey(project.getId());
+        long minutes = (System.currentTimeMillis() - syncSince) / 60000 + 1;
+        String jql = "project = \"" + jiraKey + "\" AND updated >= -" + minutes + "m ORDER BY updated ASC";
+        int startAt = 0;
+        JiraIssueListResponse result;
+        do {
+            result = jiraClientV2.searchIssues(jql, startAt, SYNC_PAGE_SIZE);
+            List<JiraIssue> jiraIssues = result.getIssues() == null ? new ArrayList<>() : result.getIssues();
+            updateSyncIssues(jiraIssues, issueMap, new HashSet<>());
+            startAt += jiraIssues.size();
+            if (jiraIssues.isEmpty()) {
+                break;
+            }
+        } while (startAt < result.getTotal());
+    }
+
+    private void updateSyncIssues(List<JiraIssue> jiraIssues, Map<String, IssuesDao> issueMap, Set<String> remaining) {
+        if (CollectionUtils.isEmpty(jiraIssues)) {
+            return;
+        }
+        syncStatistics.fetched(jiraIssues.size());
+        Map<String, JiraIssue> jiraIssueMap = new LinkedHashMap<>();
+        jiraIssues.forEach(jiraIssue -> {
+            // 只处理关联到当前项目的缺陷
+            if (issueMap.containsKey(jiraIssue.getKey())) {
+                jiraIssueMap.put(jiraIssue.getKey(), jiraIssue);
+                remaining.remove(jiraIssue.getKey());
+            }
+        });
+        Map<String, IssuesWithBLOBs> oldIssueMap = getIssuesForSync(jiraIssueMap.keySet().stream()
+                .map(platformId -> issueMap.get(platformId).getId())
+                .collect(Collectors.toList()));
+
+        List<IssuesDao> updateIssues = new ArrayList<>();
+        jiraIssueMap.forEach((platformId, jiraIssue) -> {
+            IssuesDao item = issueMap.get(platformId);
+            IssuesWithBLOBs oldIssue = oldIssueMap.get(item.getId());
+            if (oldIssue == null) {
+                return;
+            }
             try {
-                IssuesWithBLOBs issuesWithBLOBs = issuesMapper.selectByPrimaryKey(item.getId());
-                getUpdateIssue(item, jiraClientV2.getIssues(item.getPlatformId()));
+                getUpdateIssue(item, jiraIssue);
                 String desc = htmlDesc2MsDesc(item.getDescription());
                 // 保留之前上传的图片
-                String images = getImages(issuesWithBLOBs.getDescription());
+                String images = getImages(oldIssue.getDescription());
                 item.setDescription(desc + "\n" + images);
-
-                issuesMapper.updateByPrimaryKeySelective(item);
-            } catch (HttpClientErrorException e) {
-                if (e.getRawStatusCode() == 404) {
-                    // 标记成删除
-                    item.setPlatformStatus(IssuesStatus.DELETE.toString());
-                    issuesMapper.deleteByPrimaryKey(item.getId());
-                }
+                updateIssues.add(item);
             } catch (Exception e) {
+                syncStatistics.failed();
                 LogUtil.error(e);
             }
         });
+        batchUpdateIssues(updateIssues);
+        syncStatistics.updated(updateIssues.size());
+    }
+
+    private void syncIssue(IssuesDao item) {
+        try {
+            IssuesWithBLOBs issuesWithBLOBs = issuesMapper.selectByPrimaryKey(item.getId());
+            getUpdateIssue(item, jiraClientV2.getIssues(item.getPlatformId()));
+            syncStatistics.fetched(1);
+            String desc = htmlDesc2MsDesc(item.getDescription());
+            // 保留之前上传的图片
+            String images = getImages(issuesWithBLOBs.getDescription());
+            item.setDescription(desc + "\n" + images);
+
+            issuesMapper.updateByPrimaryKeySelective(item);
+            syncStatistics.updated(1);
+        } catch (HttpClientErrorException e) {
+            if (e.getRawStatusCode() == 404) {
+                // 标记成删除
+                item.setPlatformStatus(IssuesStatus.DELETE.toString());
+                issuesMapper.deleteByPrimaryKey(item.getId());
+                syncStatistics.deleted(1);
+            } else {
+                syncStatistics.failed();
+                LogUtil.error(e);
+            }
+        } catch (Exception e) {
+            syncStatistics.failed();
+            LogUtil.error(e);
+        }
     }
 
     @Override
@@ -205,26 +205,37 @@ public class TapdPlatform extends AbstractIssuePlatform {
             List<JSONObject> datas = result.getData();
             count = datas.size();
             pageNum++;
+            syncStatistics.fetched(count);
+            Map<String, IssuesWithBLOBs> issueMap = getIssuesForSync(datas.stream()
+                    .map(issue -> idMap.get(issue.getJSONObject("Bug").getString("id")))
+                    .filter(StringUtils::isNotBlank)
+                    .collect(Collectors.toList()));
+            List<IssuesWithBLOBs> updateIssues = new ArrayList<>();
             datas.forEach(issue -> {
                 JSONObject bug = issue.getJSONObject("Bug");
                 String platformId = bug.getString("id");
                 String id = idMap.get(platformId);
-                IssuesWithBLOBs updateIssue = getUpdateIssue(issuesMapper.selectByPrimaryKey(id), bug, statusMap);
+                IssuesWithBLOBs updateIssue = getUpdateIssue(issueMap.get(id), bug, statusMap);
                 updateIssue.setId(id);
                 updateIssue.setCustomFields(syncIssueCustomField(updateIssue.getCustomFields(), bug));
-                issuesMapper.updateByPrimaryKeySelective(updateIssue);
+                updateIssues.add(updateIssue);
                 ids.remove(platformId);
             });
+            batchUpdateIssues(updateIssues);
+            syncStatistics.updated(updateIssues.size());
         }
         // 查不到的设置为删除
+        List<IssuesWithBLOBs> deleteIssues = new ArrayList<>();
         ids.forEach((id) -> {
             if (StringUtils.isNotBlank(idMap.get(id))) {
                 IssuesDao issuesDao = new IssuesDao();
                 issuesDao.setId(idMap.get(id));
                 issuesDao.setPlatformStatus(IssuesStatus.DELETE.toString());
-                issuesMapper.updateByPrimaryKeySelective(issuesDao);
+                deleteIssues.add(issuesDao);
             }
         });
+        batchUpdateIssues(deleteIssues);
+        syncStatistics.deleted(deleteIssues.size());
     }
 
     protected IssuesWithBLOBs getUpdateIssue(IssuesWithBLOBs issue, JSONObject bug, Map<String, String> statusMap) {
@@ -4,6 +4,7 @@ import com.alibaba.fastjson.JSON;
 import com.alibaba.fastjson.JSONArray;
 import com.alibaba.fastjson.JSONObject;
 import com.alibaba.fastjson.TypeReference;
+import com.google.common.collect.Lists;
 import io.metersphere.base.domain.*;
 import io.metersphere.commons.constants.IssuesManagePlatform;
 import io.metersphere.commons.constants.IssuesStatus;
@@ -34,10 +35,13 @@ import org.springframework.web.client.RestTemplate;
 import java.util.*;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
+import java.util.stream.Collectors;
 
 public class ZentaoPlatform extends AbstractIssuePlatform {
     protected final ZentaoClient zentaoClient;
 
+    private static final int SYNC_PAGE_SIZE = 100;
+
     public ZentaoPlatform(IssuesRequest issuesRequest) {
         super(issuesRequest);
         this.key = IssuesManagePlatform.Zentao.name();
@@ -324,13 +328,30 @@ public class ZentaoPlatform extends AbstractIssuePlatform {
 
     @Override
     public void syncIssues(Project project, List<IssuesDao> issues) {
-        issues.forEach(item -> {
-            IssuesWithBLOBs issue = issuesMapper.selectByPrimaryKey(item.getId());
-            JSONObject bug = zentaoClient.getBugById(item.getPlatformId());
-            issue = getUpdateIssues(issue, bug);
-            issue.setId(item.getId());
-            issuesMapper.updateByPrimaryKeySelective(issue);
-        });
+        String sessionId = zentaoClient.login();
+        for (List<IssuesDao> subIssues : Lists.partition(issues, SYNC_PAGE_SIZE)) {
+            Map<String, IssuesWithBLOBs> issueMap = getIssuesForSync(subIssues.stream()
+                    .map(IssuesDao::getId)
+                    .collect(Collectors.toList()));
+            List<IssuesWithBLOBs> updateIssues = new ArrayList<>();
+            subIssues.forEach(item -> {
+                try {
+                    JSONObject bug = zentaoClient.getBugById(item.getPlatformId(), sessionId);
+                    syncStatistics.fetched(1);
+                    IssuesWithBLOBs issue = getUpdateIssues(issueMap.get(item.getId()), bug);
+                    issue.setId(item.getId());
+                    if (StringUtils.equals(issue.getPlatformStatus(), IssuesStatus.DELETE.toString())) {
+                        syncStatistics.deleted(1);
+                    }
+                    updateIssues.add(issue);
+                } catch (Exception e) {
+                    syncStatistics.failed();
+                    LogUtil.error(e);
+                }
+            });
+            batchUpdateIssues(updateIssues);
+            syncStatistics.updated(updateIssues.size());
+        }
     }
 
     public List<ZentaoBuild> getBuilds() {
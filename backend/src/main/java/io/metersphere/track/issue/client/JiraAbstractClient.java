@@ -32,6 +32,17 @@ public abstract class JiraAbstractClient extends BaseClient {
         return  (JiraIssue) getResultForObject(JiraIssue.class, responseEntity);
     }
 
+    /**
+     * 按 JQL 批量查询缺陷，返回全部字段；validateQuery=false 时不存在的 key 不会报错
+     */
+    public JiraIssueListResponse searchIssues(String jql, int startAt, int maxResults) {
+        LogUtil.info("searchIssues: " + jql);
+        ResponseEntity<String> responseEntity;
+        responseEntity = restTemplate.exchange(getBaseUrl() + "/search?startAt={1}&maxResults={2}&jql={3}&fields=*all&validateQuery=false",
+                HttpMethod.GET, getAuthHttpEntity(), String.class, startAt, maxResults, jql);
+        return (JiraIssueListResponse) getResultForObject(JiraIssueListResponse.class, responseEntity);
+    }
+
     public Map<String, JiraCreateMetadataResponse.Field> getCreateMetadata(String projectKey, String issueType) {
         String url = getBaseUrl() + "/issue/createmeta?projectKeys={1}&issuetypeNames={2}&expand=projects.issuetypes.fields";
         ResponseEntity<String> response = null;
@@ -113,7 +113,13 @@ public abstract class ZentaoClient extends BaseClient {
     }
 
     public JSONObject getBugById(String id) {
-        String sessionId = login();
+        return getBugById(id, login());
+    }
+
+    /**
+     * 批量同步时复用同一个 session，避免每个缺陷都重新登录
+     */
+    public JSONObject getBugById(String id, String sessionId) {
         String bugGet = requestUrl.getBugGet();
         ResponseEntity<String> response = restTemplate.exchange(bugGet,
                 HttpMethod.GET, null, String.class, id, sessionId);
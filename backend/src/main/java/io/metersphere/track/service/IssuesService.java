@@ -5,6 +5,7 @@ import com.alibaba.fastjson.JSONArray;
 import com.alibaba.fastjson.JSONObject;
 import com.github.pagehelper.Page;
 import com.github.pagehelper.PageHelper;
+import io.metersphere.api.exec.utils.NamedThreadFactory;
 import io.metersphere.base.domain.*;
 import io.metersphere.base.mapper.*;
 import io.metersphere.base.mapper.ext.ExtIssuesMapper;
@@ -23,6 +24,8 @@ import io.metersphere.service.CustomFieldTemplateService;
 import io.metersphere.service.IntegrationService;
 import io.metersphere.service.IssueTemplateService;
 import io.metersphere.service.ProjectService;
+import io.metersphere.service.SystemParameterService;
+import io.metersphere.track.dto.IssueSyncStatistics;
 import io.metersphere.track.dto.PlanReportIssueDTO;
 import io.metersphere.track.dto.TestCaseReportStatusResultDTO;
 import io.metersphere.track.dto.TestPlanFunctionResultReportDTO;
@@ -36,14 +39,18 @@ import io.metersphere.track.request.testcase.IssuesUpdateRequest;
 import io.metersphere.track.request.testcase.TestCaseBatchRequest;
 import org.apache.commons.collections.CollectionUtils;
 import org.apache.commons.lang3.StringUtils;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Lazy;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
 
 import javax.annotation.Resource;
 import java.lang.reflect.Constructor;
 import java.util.*;
-import java.util.function.BiConsumer;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.stream.Collectors;
 
 @Service
@@ -77,6 +84,13 @@ public class IssuesService {
     private TestPlanTestCaseService testPlanTestCaseService;
     @Resource
     private IssueFollowMapper issueFollowMapper;
+    @Resource
+    private SystemParameterService systemParameterService;
+    @Value("${issue.sync.parallelism:4}")
+    private int syncParallelism;
+
+    private static final String SYNC_WATERMARK_PREFIX = "issue.sync.";
+    private static final long FULL_SYNC_INTERVAL = 24 * 60 * 60 * 1000L;
 
     public void testAuth(String workspaceId, String platform) {
         IssuesRequest issuesRequest = new IssuesRequest();
@@ -391,15 +405,39 @@ public class IssuesService {
         return IssueFactory.createPlatformsForMap(platforms, request);
     }
 
+    /**
+     * 定时任务使用增量同步，项目之间并行，并发数由 issue.sync.parallelism 配置
+     */
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
     public void syncThirdPartyIssues() {
         List<String> projectIds = projectService.getProjectIds();
-        projectIds.forEach(id -> {
-            try {
-                syncThirdPartyIssues(id);
-            } catch (Exception e) {
-                LogUtil.error(e.getMessage(), e);
+        long start = System.currentTimeMillis();
+        IssueSyncStatistics total = new IssueSyncStatistics();
+        // 通过代理调用，每个项目在各自的事务中同步
+        IssuesService issuesService = CommonBeanFactory.getBean(IssuesService.class);
+        ExecutorService executor = Executors.newFixedThreadPool(Math.max(1, syncParallelism), new NamedThreadFactory("MS-ISSUE-SYNC"));
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            projectIds.forEach(id -> futures.add(executor.submit(() -> {
+                try {
+                    issuesService.syncThirdPartyIssues(id, true).forEach(total::add);
+                } catch (Exception e) {
+                    LogUtil.error(e.getMessage(), e);
+                }
+            })));
+            for (Future<?> future : futures) {
+                try {
+                    future.get();
+                } catch (Exception e) {
+                    LogUtil.error(e.getMessage(), e);
+                }
             }
-        });
+        } finally {
+            executor.shutdown();
+        }
+        LogUtil.info("同步第三方缺陷结束，项目数: " + projectIds.size() + ", fetched: " + total.getFetched()
+                + ", updated: " + total.getUpdated() + ", deleted: " + total.getDeleted()
+                + ", failed: " + total.getFailed() + ", duration: " + (System.currentTimeMillis() - start) + "ms");
     }
 
     public void issuesCount() {
@@ -418,12 +456,21 @@ public class IssuesService {
     }
 
     public void syncThirdPartyIssues(String projectId) {
+        syncThirdPartyIssues(projectId, false);
+    }
+
+    /**
+     * @param incremental 支持增量同步的平台只同步上次同步之后更新过的缺陷
+     * @return 各平台的同步统计
+     */
+    public List<IssueSyncStatistics> syncThirdPartyIssues(String projectId, boolean incremental) {
+        List<IssueSyncStatistics> result = new ArrayList<>();
         if (StringUtils.isNotBlank(projectId)) {
             Project project = projectService.getProjectById(projectId);
             List<IssuesDao> issues = extIssuesMapper.getIssueForSync(projectId);
 
             if (CollectionUtils.isEmpty(issues)) {
-                return;
+                return result;
             }
 
             List<IssuesDao> tapdIssues = issues.stream()
@@ -447,15 +494,15 @@ public class IssuesService {
 
             if (CollectionUtils.isNotEmpty(tapdIssues)) {
                 TapdPlatform tapdPlatform = new TapdPlatform(issuesRequest);
-                syncThirdPartyIssues(tapdPlatform::syncIssues, project, tapdIssues);
+                result.add(syncThirdPartyIssues(tapdPlatform, project, tapdIssues, incremental));
             }
             if (CollectionUtils.isNotEmpty(jiraIssues)) {
                 JiraPlatform jiraPlatform = new JiraPlatform(issuesRequest);
-                syncThirdPartyIssues(jiraPlatform::syncIssues, project, jiraIssues);
+                result.add(syncThirdPartyIssues(jiraPlatform, project, jiraIssues, incremental));
             }
             if (CollectionUtils.isNotEmpty(zentaoIssues)) {
                 ZentaoPlatform zentaoPlatform = new ZentaoPlatform(issuesRequest);
-                syncThirdPartyIssues(zentaoPlatform::syncIssues, project, zentaoIssues);
+                result.add(syncThirdPartyIssues(zentaoPlatform, project, zentaoIssues, incremental));
             }
             if (CollectionUtils.isNotEmpty(azureDevopsIssues)) {
                 ClassLoader loader = Thread.currentThread().getContextClassLoader();
@@ -463,12 +510,59 @@ public class IssuesService {
                     Class clazz = loader.loadClass("io.metersphere.xpack.issue.azuredevops.AzureDevopsPlatform");
                     Constructor cons = clazz.getDeclaredConstructor(new Class[]{IssuesRequest.class});
                     AbstractIssuePlatform azureDevopsPlatform = (AbstractIssuePlatform) cons.newInstance(issuesRequest);
-                    syncThirdPartyIssues(azureDevopsPlatform::syncIssues, project, azureDevopsIssues);
+                    result.add(syncThirdPartyIssues(azureDevopsPlatform, project, azureDevopsIssues, incremental));
                 } catch (Throwable e) {
                     LogUtil.error(e);
                 }
             }
         }
+        return result;
+    }
+
+    /**
+     * 同步单个平台的缺陷，支持增量同步的平台记录同步时间
+     * 增量同步发现不了第三方平台删除的缺陷，超过 FULL_SYNC_INTERVAL 没有全量同步时仍执行全量同步
+     */
+    private IssueSyncStatistics syncThirdPartyIssues(AbstractIssuePlatform platform, Project project, List<IssuesDao> issues, boolean incremental) {
+        long start = System.currentTimeMillis();
+        String watermarkKey = SYNC_WATERMARK_PREFIX + platform.getKey() + "." + project.getId();
+        JSONObject watermark = new JSONObject();
+        boolean isIncremental = false;
+        if (platform.isSupportIncrementalSync()) {
+            String value = systemParameterService.getValue(watermarkKey);
+            if (StringUtils.isNotBlank(value)) {
+                watermark = JSONObject.parseObject(value);
+            }
+            Long lastSync = watermark.getLong("lastSync");
+            Long lastFullSync = watermark.getLong("lastFullSync");
+            if (incremental && lastSync != null && lastFullSync != null && start - lastFullSync < FULL_SYNC_INTERVAL) {
+                platform.setSyncSince(lastSync);
+                isIncremental = true;
+            }
+        }
+
+        IssueSyncStatistics statistics = platform.getSyncStatistics();
+        statistics.setProjectId(project.getId());
+        statistics.setPlatform(platform.getKey());
+        statistics.setIncremental(isIncremental);
+        try {
+            platform.syncIssues(project, issues);
+            // 有缺陷同步失败时不推进同步时间，下次仍从上次的起点同步，避免失败的缺陷被跳过
+            if (platform.isSupportIncrementalSync() && statistics.getFailed() == 0) {
+                // 以本次开始时间作为下次增量同步的起点，同步过程中的更新下次会再同步一次
+                watermark.put("lastSync", start);
+                if (!isIncremental) {
+                    watermark.put("lastFullSync", start);
+                }
+                systemParameterService.saveValue(watermarkKey, watermark.toJSONString());
+            }
+        } catch (Exception e) {
+            statistics.failed();
+            LogUtil.error(e.getMessage(), e);
+        }
+        statistics.setDuration(System.currentTimeMillis() - start);
+        LogUtil.info("同步第三方缺陷: " + statistics);
+        return statistics;
     }
 
     /**
@@ -502,14 +596,6 @@ public class IssuesService {
         return fields.toJSONString();
     }
 
-    public void syncThirdPartyIssues(BiConsumer<Project, List<IssuesDao>> syncFuc, Project project, List<IssuesDao> issues) {
-        try {
-            syncFuc.accept(project, issues);
-        } catch (Exception e) {
-            LogUtil.error(e.getMessage(), e);
-        }
-    }
-
     private String getConfig(String orgId, String platform) {
         IntegrationRequest request = new IntegrationRequest();
         if (StringUtils.isBlank(orgId)) {
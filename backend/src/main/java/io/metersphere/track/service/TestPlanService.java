@@ -7,6 +7,7 @@ import com.alibaba.fastjson.JSONObject;
 import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.DeserializationFeature;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.common.collect.Lists;
 import com.google.gson.Gson;
 import io.metersphere.api.cache.TestPlanExecuteInfo;
 import io.metersphere.api.cache.TestPlanReportExecuteCatch;
@@ -69,29 +70,41 @@ import org.apache.ibatis.session.SqlSessionFactory;
 import org.mybatis.spring.SqlSessionUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Lazy;
+import org.springframework.http.HttpHeaders;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
 
 import javax.annotation.Resource;
-import javax.servlet.ServletOutputStream;
+import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
-import java.io.BufferedReader;
-import java.io.InputStreamReader;
-import java.io.UnsupportedEncodingException;
+import java.io.*;
 import java.net.URLEncoder;
 import java.nio.charset.StandardCharsets;
 import java.text.SimpleDateFormat;
 import java.util.*;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
+import java.util.zip.GZIPOutputStream;
 
 @Service
 @Transactional(rollbackFor = Exception.class)
 public class TestPlanService {
     Logger testPlanLog = LoggerFactory.getLogger("testPlanExecuteLog");
 
+    private static final String REPORT_PLACEHOLDER = "\"#report\"";
+    private static final int REPORT_BUFFER_SIZE = 64 * 1024;
+    private static final int RELEVANCE_BATCH_SIZE = 500;
+    private static final Gson REPORT_GSON = new Gson();
+    private static volatile List<String> planReportTemplate;
+
+    @Value("${testplan.report.export.gzip:false}")
+    private boolean reportExportGzip;
+
     @Resource
     ExtScheduleMapper extScheduleMapper;
     @Resource
@@ -571,94 +584,7 @@ public class TestPlanService {
         sqlSession.flushStatements();
         //同步添加关联的接口和测试用例
         if (request.getChecked()) {
-            if (!testCaseIds.isEmpty()) {
-                testCaseIds.forEach(caseId -> {
-                    List<TestCaseTest> list = new ArrayList<>();
-                    TestCaseTestExample examp = new TestCaseTestExample();
-                    examp.createCriteria().andTestCaseIdEqualTo(caseId);
-                    if (testCaseTestMapper.countByExample(examp) > 0) {
-                        list = testCaseTestMapper.selectByExample(examp);
-                    }
-                    Long nextLoadOrder = ServiceUtils.getNextOrder(request.getPlanId(), extTestPlanLoadCaseMapper::getLastOrder);
-                    Long nextApiOrder = ServiceUtils.getNextOrder(request.getPlanId(), extTestPlanApiCaseMapper::getLastOrder);
-                    Long nextScenarioOrder = ServiceUtils.getNextOrder(request.getPlanId(), extTestPlanScenarioCaseMapper::getLastOrder);
-
-                    for (TestCaseTest l : list) {
-                        if (StringUtils.equals(l.getTestType(), TestCaseStatus.performance.name())) {
-                            String id = l.getTestId();
-                            LoadTestWithBLOBs loadTest = loadTestMapper.selectByPrimaryKey(id);
-                            TestPlanLoadCaseWithBLOBs t = new TestPlanLoadCaseWithBLOBs();
-                            t.setId(UUID.randomUUID().toString());
-                            t.setTestPlanId(request.getPlanId());
-                            t.setLoadCaseId(l.getTestId());
-                            t.setCreateTime(System.currentTimeMillis());
-                            t.setUpdateTime(System.currentTimeMillis());
-                            t.setOrder(nextLoadOrder);
-                            if (loadTest != null) {
-                                t.setTestResourcePoolId(loadTest.getTestResourcePoolId());
-                                t.setLoadConfiguration(loadTest.getLoadConfiguration());
-                                t.setAdvancedConfiguration(loadTest.getAdvancedConfiguration());
-                            }
-                            nextLoadOrder += 5000;
-                            TestPlanLoadCaseExample testPlanLoadCaseExample = new TestPlanLoadCaseExample();
-                            testPlanLoadCaseExample.createCriteria().andTestPlanIdEqualTo(request.getPlanId()).andLoadCaseIdEqualTo(t.getLoadCaseId());
-                            if (testPlanLoadCaseMapper.countByExample(testPlanLoadCaseExample) <= 0) {
-                                testPlanLoadCaseMapper.insert(t);
-                            }
-
-                        }
-                        if (StringUtils.equals(l.getTestType(), TestCaseStatus.testcase.name())) {
-                            TestPlanApiCase t = new TestPlanApiCase();
-                            ApiTestCaseWithBLOBs apitest = apiTestCaseMapper.selectByPrimaryKey(l.getTestId());
-                            if (null != apitest) {
-                                t.setId(UUID.randomUUID().toString());
-                                t.setTestPlanId(request.getPlanId());
-                                t.setApiCaseId(l.getTestId());
-                                ApiTestEnvironment apiCaseEnvironment = apiTestCaseService.getApiCaseEnvironment(l.getTestId());
-                                if (apiCaseEnvironment != null && StringUtils.isNotBlank(apiCaseEnvironment.getId())) {
-                                    t.setEnvironmentId(apiCaseEnvironment.getId());
-                                }
-                                t.setCreateTime(System.currentTimeMillis());
-                                t.setUpdateTime(System.currentTimeMillis());
-                                t.setOrder(nextApiOrder);
-                                nextApiOrder += 5000;
-                                TestPlanApiCaseExample example = new TestPlanApiCaseExample();
-                                example.createCriteria().andTestPlanIdEqualTo(request.getPlanId()).andApiCaseIdEqualTo(t.getApiCaseId());
-                                if (testPlanApiCaseMapper.countByExample(example) <= 0) {
-                                    testPlanApiCaseMapper.insert(t);
-                                }
-                            }
-
-
-                        }
-                        if (StringUtils.equals(l.getTestType(), TestCaseStatus.automation.name())) {
-                            TestPlanApiScenario t = new TestPlanApiScenario();
-                            ApiScenarioWithBLOBs testPlanApiScenario = apiScenarioMapper.selectByPrimaryKey(l.getTestId());
-                            if (testPlanApiScenario != null) {
-                                t.setId(UUID.randomUUID().toString());
-                                t.setTestPlanId(request.getPlanId());
-                                t.setApiScenarioId(l.getTestId());
-                                t.setPassRate(testPlanApiScenario.getPassRate());
-                                t.setReportId(testPlanApiScenario.getReportId());
-                                t.setStatus(testPlanApiScenario.getStatus());
-                                t.setCreateTime(System.currentTimeMillis());
-                                t.setUpdateTime(System.currentTimeMillis());
-                                t.setOrder(nextScenarioOrder);
-                                t.setEnvironmentType(testPlanApiScenario.getEnvironmentType());
-                                t.setEnvironment(testPlanApiScenario.getEnvironmentJson());
-                                t.setEnvironmentGroupId(testPlanApiScenario.getEnvironmentGroupId());
-                                nextScenarioOrder += 5000;
-                                TestPlanApiScenarioExample example = new TestPlanApiScenarioExample();
-                                example.createCriteria().andTestPlanIdEqualTo(request.getPlanId()).andApiScenarioIdEqualTo(t.getApiScenarioId());
-                                if (testPlanApiScenarioMapper.countByExample(example) <= 0) {
-                                    testPlanApiScenarioMapper.insert(t);
-                                }
-                            }
-
-                        }
-                    }
-                });
-            }
+            relevanceCaseTests(request.getPlanId(), testCaseIds, sqlSession);
         }
         TestPlan testPlan = testPlanMapper.selectByPrimaryKey(request.getPlanId());
         if (StringUtils.equals(testPlan.getStatus(), TestPlanStatus.Prepare.name())
@@ -674,6 +600,147 @@ public class TestPlanService {
         }
     }
 
+    /**
+     * 批量关联功能用例关联的性能测试、接口用例和场景
+     * 关联关系、待关联的资源和计划中已有的关联都按 ID 分批查询，顺序只计算一次，通过 batch mapper 插入
+     */
+    private void relevanceCaseTests(String planId, List<String> testCaseIds, SqlSession sqlSession) {
+        List<TestCaseTest> caseTests = new ArrayList<>();
+        for (List<String> subIds : Lists.partition(testCaseIds, RELEVANCE_BATCH_SIZE)) {
+            TestCaseTestExample example = new TestCaseTestExample();
+            example.createCriteria().andTestCaseIdIn(subIds);
+            caseTests.addAll(testCaseTestMapper.selectByExample(example));
+        }
+        if (caseTests.isEmpty()) {
+            return;
+        }
+        // 按用例的顺序关联，多个用例关联同一个资源时只添加一次
+        Map<String, List<TestCaseTest>> caseTestMap = caseTests.stream().collect(Collectors.groupingBy(TestCaseTest::getTestCaseId));
+        Map<String, Set<String>> testIdMap = new HashMap<>();
+        testCaseIds.forEach(caseId -> caseTestMap.getOrDefault(caseId, new ArrayList<>()).forEach(caseTest ->
+                testIdMap.computeIfAbsent(caseTest.getTestType(), k -> new LinkedHashSet<>()).add(caseTest.getTestId())));
+
+        relevanceLoadCases(planId, new ArrayList<>(testIdMap.getOrDefault(TestCaseStatus.performance.name(), new HashSet<>())), sqlSession);
+        relevanceApiCases(planId, new ArrayList<>(testIdMap.getOrDefault(TestCaseStatus.testcase.name(), new HashSet<>())), sqlSession);
+        relevanceScenarios(planId, new ArrayList<>(testIdMap.getOrDefault(TestCaseStatus.automation.name(), new HashSet<>())), sqlSession);
+    }
+
+    private void relevanceLoadCases(String planId, List<String> loadTestIds, SqlSession sqlSession) {
+        if (loadTestIds.isEmpty()) {
+            return;
+        }
+        TestPlanLoadCaseMapper batchMapper = sqlSession.getMapper(TestPlanLoadCaseMapper.class);
+        Long nextLoadOrder = ServiceUtils.getNextOrder(planId, extTestPlanLoadCaseMapper::getLastOrder);
+        for (List<String> subIds : Lists.partition(loadTestIds, RELEVANCE_BATCH_SIZE)) {
+            TestPlanLoadCaseExample testPlanLoadCaseExample = new TestPlanLoadCaseExample();
+            testPlanLoadCaseExample.createCriteria().andTestPlanIdEqualTo(planId).andLoadCaseIdIn(subIds);
+            Set<String> existIds = testPlanLoadCaseMapper.selectByExample(testPlanLoadCaseExample).stream()
+                    .map(TestPlanLoadCase::getLoadCaseId)
+                    .collect(Collectors.toSet());
+            LoadTestExample loadTestExample = new LoadTestExample();
+            loadTestExample.createCriteria().andIdIn(subIds);
+            Map<String, LoadTestWithBLOBs> loadTestMap = loadTestMapper.selectByExampleWithBLOBs(loadTestExample).stream()
+                    .collect(Collectors.toMap(LoadTestWithBLOBs::getId, loadTest -> loadTest));
+            for (String id : subIds) {
+                if (existIds.contains(id)) {
+                    continue;
+                }
+                LoadTestWithBLOBs loadTest = loadTestMap.get(id);
+                TestPlanLoadCaseWithBLOBs t = new TestPlanLoadCaseWithBLOBs();
+                t.setId(UUID.randomUUID().toString());
+                t.setTestPlanId(planId);
+                t.setLoadCaseId(id);
+                t.setCreateTime(System.currentTimeMillis());
+                t.setUpdateTime(System.currentTimeMillis());
+                t.setOrder(nextLoadOrder);
+                if (loadTest != null) {
+                    t.setTestResourcePoolId(loadTest.getTestResourcePoolId());
+                    t.setLoadConfiguration(loadTest.getLoadConfiguration());
+                    t.setAdvancedConfiguration(loadTest.getAdvancedConfiguration());
+                }
+                nextLoadOrder += ServiceUtils.ORDER_STEP;
+                batchMapper.insert(t);
+            }
+            sqlSession.flushStatements();
+        }
+    }
+
+    private void relevanceApiCases(String planId, List<String> apiCaseIds, SqlSession sqlSession) {
+        if (apiCaseIds.isEmpty()) {
+            return;
+        }
+        TestPlanApiCaseMapper batchMapper = sqlSession.getMapper(TestPlanApiCaseMapper.class);
+        Long nextApiOrder = ServiceUtils.getNextOrder(planId, extTestPlanApiCaseMapper::getLastOrder);
+        for (List<String> subIds : Lists.partition(apiCaseIds, RELEVANCE_BATCH_SIZE)) {
+            TestPlanApiCaseExample example = new TestPlanApiCaseExample();
+            example.createCriteria().andTestPlanIdEqualTo(planId).andApiCaseIdIn(subIds);
+            Set<String> existIds = testPlanApiCaseMapper.selectByExample(example).stream()
+                    .map(TestPlanApiCase::getApiCaseId)
+                    .collect(Collectors.toSet());
+            // 只包含存在的接口用例
+            Map<String, String> environmentMap = apiTestCaseService.getApiCaseEnvironmentMap(subIds);
+            for (String id : subIds) {
+                if (existIds.contains(id) || !environmentMap.containsKey(id)) {
+                    continue;
+                }
+                TestPlanApiCase t = new TestPlanApiCase();
+                t.setId(UUID.randomUUID().toString());
+                t.setTestPlanId(planId);
+                t.setApiCaseId(id);
+                if (environmentMap.get(id) != null) {
+                    t.setEnvironmentId(environmentMap.get(id));
+                }
+                t.setCreateTime(System.currentTimeMillis());
+                t.setUpdateTime(System.currentTimeMillis());
+                t.setOrder(nextApiOrder);
+                nextApiOrder += ServiceUtils.ORDER_STEP;
+                batchMapper.insert(t);
+            }
+            sqlSession.flushStatements();
+        }
+    }
+
+    private void relevanceScenarios(String planId, List<String> scenarioIds, SqlSession sqlSession) {
+        if (scenarioIds.isEmpty()) {
+            return;
+        }
+        TestPlanApiScenarioMapper batchMapper = sqlSession.getMapper(TestPlanApiScenarioMapper.class);
+        Long nextScenarioOrder = ServiceUtils.getNextOrder(planId, extTestPlanScenarioCaseMapper::getLastOrder);
+        for (List<String> subIds : Lists.partition(scenarioIds, RELEVANCE_BATCH_SIZE)) {
+            TestPlanApiScenarioExample example = new TestPlanApiScenarioExample();
+            example.createCriteria().andTestPlanIdEqualTo(planId).andApiScenarioIdIn(subIds);
+            Set<String> existIds = testPlanApiScenarioMapper.selectByExample(example).stream()
+                    .map(TestPlanApiScenario::getApiScenarioId)
+                    .collect(Collectors.toSet());
+            ApiScenarioExample scenarioExample = new ApiScenarioExample();
+            scenarioExample.createCriteria().andIdIn(subIds);
+            Map<String, ApiScenarioWithBLOBs> scenarioMap = apiScenarioMapper.selectByExampleWithBLOBs(scenarioExample).stream()
+                    .collect(Collectors.toMap(ApiScenarioWithBLOBs::getId, scenario -> scenario));
+            for (String id : subIds) {
+                ApiScenarioWithBLOBs testPlanApiScenario = scenarioMap.get(id);
+                if (existIds.contains(id) || testPlanApiScenario == null) {
+                    continue;
+                }
+                TestPlanApiScenario t = new TestPlanApiScenario();
+                t.setId(UUID.randomUUID().toString());
+                t.setTestPlanId(planId);
+                t.setApiScenarioId(id);
+                t.setPassRate(testPlanApiScenario.getPassRate());
+                t.setReportId(testPlanApiScenario.getReportId());
+                t.setStatus(testPlanApiScenario.getStatus());
+                t.setCreateTime(System.currentTimeMillis());
+                t.setUpdateTime(System.currentTimeMillis());
+                t.setOrder(nextScenarioOrder);
+                t.setEnvironmentType(testPlanApiScenario.getEnvironmentType());
+                t.setEnvironment(testPlanApiScenario.getEnvironmentJson());
+                t.setEnvironmentGroupId(testPlanApiScenario.getEnvironmentGroupId());
+                nextScenarioOrder += ServiceUtils.ORDER_STEP;
+                batchMapper.insert(t);
+            }
+            sqlSession.flushStatements();
+        }
+    }
+
     public List<TestPlan> recentTestPlans(String projectId) {
         return extTestPlanMapper.listRecent(SessionUtils.getUserId(), projectId);
     }
@@ -1509,10 +1576,16 @@ public class TestPlanService {
         }
     }
 
+    /**
+     * 执行结果批量查询，避免每个用例查询一次
+     */
     public void buildApiResponse(List<TestPlanFailureApiDTO> cases) {
         if (!CollectionUtils.isEmpty(cases)) {
+            Map<String, APIReportResult> resultMap = apiDefinitionService.getDbResults(cases.stream()
+                    .map(TestPlanFailureApiDTO::getId)
+                    .collect(Collectors.toList()));
             cases.forEach(item -> {
-                APIReportResult dbResult = apiDefinitionService.getDbResult(item.getId());
+                APIReportResult dbResult = resultMap.get(item.getId());
                 if (dbResult != null && StringUtils.isNotBlank(dbResult.getContent())) {
                     item.setResponse(dbResult.getContent());
                 }
@@ -1522,24 +1595,36 @@ public class TestPlanService {
 
     public void buildScenarioResponse(List<TestPlanFailureScenarioDTO> cases) {
         if (!CollectionUtils.isEmpty(cases)) {
+            Map<String, APIScenarioReportResult> reportMap = apiScenarioReportService.getReports(cases.stream()
+                    .map(TestPlanFailureScenarioDTO::getReportId)
+                    .filter(StringUtils::isNotBlank)
+                    .collect(Collectors.toList()));
             cases.forEach((item) -> {
-                item.setResponse(apiScenarioReportService.get(item.getReportId()));
+                item.setResponse(reportMap.get(item.getReportId()));
             });
         }
     }
 
+    @SuppressWarnings("unchecked")
     public void buildLoadResponse(List<TestPlanLoadCaseDTO> cases) {
         if (!CollectionUtils.isEmpty(cases)) {
+            Map<String, LoadTestReportWithBLOBs> loadTestReportMap = performanceReportService.getLoadTestReports(cases.stream()
+                    .map(TestPlanLoadCaseDTO::getLoadReportId)
+                    .filter(StringUtils::isNotBlank)
+                    .collect(Collectors.toList()));
             cases.forEach(item -> {
                 LoadCaseReportRequest request = new LoadCaseReportRequest();
                 String reportId = item.getLoadReportId();
                 if (StringUtils.isNotBlank(reportId)) {
                     request.setTestPlanLoadCaseId(item.getId());
                     request.setReportId(reportId);
-                    Boolean existReport = testPlanLoadCaseService.isExistReport(request);
-                    if (existReport) {
+                    // 报告不存在时由 isExistReport 清除用例关联的报告
+                    LoadTestReportWithBLOBs loadTestReport = loadTestReportMap.get(reportId);
+                    if (loadTestReport != null || testPlanLoadCaseService.isExistReport(request)) {
                         try {
-                            LoadTestReportWithBLOBs loadTestReport = performanceReportService.getLoadTestReport(reportId);
+                            if (loadTestReport == null) {
+                                loadTestReport = performanceReportService.getLoadTestReport(reportId);
+                            }
                             ReportTimeInfo reportTimeInfo = performanceReportService.getReportTimeInfo(reportId);
                             TestPlanLoadCaseDTO.ResponseDTO response = new TestPlanLoadCaseDTO.ResponseDTO();
                             if (loadTestReport != null) {
@@ -1585,22 +1670,24 @@ public class TestPlanService {
                                     "LatencyChart",
                                     "BytesThroughputChart");
 
+                            // 图表、统计分析和错误分析一次查询
+                            List<String> contentKeys = new ArrayList<>(reportKeys);
+                            contentKeys.addAll(Arrays.asList(ReportKeys.RequestStatistics.name(), ReportKeys.Errors.name(), ReportKeys.ErrorsTop5.name()));
+                            Map<String, Object> contents = performanceReportService.getReportContents(reportId, contentKeys);
+
                             Map<String, List<ChartsData>> checkOptions = new HashMap<>();
                             reportKeys.forEach(reportKey -> {
-                                List<ChartsData> reportChart = performanceReportService.getReportChart(reportKey, reportId);
-                                checkOptions.put(reportKey, reportChart);
+                                Object reportChart = contents.get(reportKey);
+                                checkOptions.put(reportKey, reportChart instanceof List ? (List<ChartsData>) reportChart : new ArrayList<>());
                             });
                             response.setCheckOptions(checkOptions);
 
                             // 统计分析
-                            List<Statistics> reportStatistics = performanceReportService.getReportStatistics(reportId);
-                            response.setReportStatistics(reportStatistics);
+                            response.setReportStatistics((List<Statistics>) contents.get(ReportKeys.RequestStatistics.name()));
 
                             // 错误分析
-                            List<Errors> reportErrors = performanceReportService.getReportErrors(reportId);
-                            response.setReportErrors(reportErrors);
-                            List<ErrorsTop5> reportErrorsTop5 = performanceReportService.getReportErrorsTOP5(reportId);
-                            response.setReportErrorsTop5(reportErrorsTop5);
+                            response.setReportErrors((List<Errors>) contents.get(ReportKeys.Errors.name()));
+                            response.setReportErrorsTop5((List<ErrorsTop5>) contents.get(ReportKeys.ErrorsTop5.name()));
 
                             // 日志详情
                             List<LogDetailDTO> reportLogResource = performanceReportService.getReportLogResource(reportId);
@@ -1755,16 +1842,29 @@ public class TestPlanService {
     }
 
     public void exportPlanReport(String planId, HttpServletResponse response) throws UnsupportedEncodingException {
-        render(buildPlanReport(planId, true), response);
+        exportPlanReport(planId, true, response);
+    }
+
+    /**
+     * @param withResponse 为 false 时只导出统计和用例列表，不带执行结果
+     */
+    public void exportPlanReport(String planId, boolean withResponse, HttpServletResponse response) throws UnsupportedEncodingException {
+        render(buildPlanReport(planId, withResponse), response);
     }
 
     public void exportPlanDbReport(String reportId, HttpServletResponse response) throws UnsupportedEncodingException {
+        exportPlanDbReport(reportId, true, response);
+    }
+
+    public void exportPlanDbReport(String reportId, boolean withResponse, HttpServletResponse response) throws UnsupportedEncodingException {
         TestPlanSimpleReportDTO report = testPlanReportService.getReport(reportId);
-        buildApiResponse(report.getApiAllCases());
-        buildApiResponse(report.getApiFailureCases());
-        buildScenarioResponse(report.getScenarioAllCases());
-        buildScenarioResponse(report.getScenarioFailureCases());
-        buildLoadResponse(report.getLoadAllCases());
+        if (withResponse) {
+            buildApiResponse(report.getApiAllCases());
+            buildApiResponse(report.getApiFailureCases());
+            buildScenarioResponse(report.getScenarioAllCases());
+            buildScenarioResponse(report.getScenarioFailureCases());
+            buildLoadResponse(report.getLoadAllCases());
+        }
         render(report, response);
     }
 
@@ -1792,30 +1892,30 @@ public class TestPlanService {
         }
     }
 
+    /**
+     * 报告 JSON 直接序列化到响应流中，不再拼成一个完整的字符串
+     */
     public void render(TestPlanSimpleReportDTO report, HttpServletResponse response) throws UnsupportedEncodingException {
         response.reset();
         response.setContentType("application/octet-stream");
         response.addHeader("Content-Disposition", "attachment; filename=" + URLEncoder.encode("test", StandardCharsets.UTF_8.name()));
+        boolean gzip = reportExportGzip && isAcceptGzip();
+        if (gzip) {
+            response.addHeader("Content-Encoding", "gzip");
+        }
 
-        try (InputStreamReader isr = new InputStreamReader(getClass().getResourceAsStream("/public/plan-report.html"), StandardCharsets.UTF_8);
-             ServletOutputStream outputStream = response.getOutputStream()) {
-            BufferedReader bufferedReader = new BufferedReader(isr);
-            String line = null;
-            while (null != (line = bufferedReader.readLine())) {
-                if (line.contains("\"#report\"")) {
-                    line = line.replace("\"#report\"", new Gson().toJson(report));
-                }
-                line += "\n";
-                byte[] lineBytes = line.getBytes(StandardCharsets.UTF_8);
-                int start = 0;
-                while (start < lineBytes.length) {
-                    if (start + 1024 < lineBytes.length) {
-                        outputStream.write(lineBytes, start, 1024);
-                    } else {
-                        outputStream.write(lineBytes, start, lineBytes.length - start);
+        try {
+            List<String> segments = getPlanReportTemplate();
+            OutputStream outputStream = response.getOutputStream();
+            if (gzip) {
+                outputStream = new GZIPOutputStream(outputStream, REPORT_BUFFER_SIZE);
+            }
+            try (Writer writer = new BufferedWriter(new OutputStreamWriter(outputStream, StandardCharsets.UTF_8), REPORT_BUFFER_SIZE)) {
+                for (int i = 0; i < segments.size(); i++) {
+                    if (i > 0) {
+                        REPORT_GSON.toJson(report, TestPlanSimpleReportDTO.class, writer);
                     }
-                    outputStream.flush();
-                    start += 1024;
+                    writer.write(segments.get(i));
                 }
             }
         } catch (Throwable e) {
@@ -1824,6 +1924,45 @@ public class TestPlanService {
         }
     }
 
+    private boolean isAcceptGzip() {
+        try {
+            HttpServletRequest request = ((ServletRequestAttributes) (RequestContextHolder.currentRequestAttributes())).getRequest();
+            return StringUtils.containsIgnoreCase(request.getHeader(HttpHeaders.ACCEPT_ENCODING), "gzip");
+        } catch (Exception e) {
+            return false;
+        }
+    }
+
+    /**
+     * plan-report.html 按 "#report" 切分后的片段，首次导出时读取一次
+     */
+    private static List<String> getPlanReportTemplate() throws IOException {
+        if (planReportTemplate == null) {
+            synchronized (TestPlanService.class) {
+                if (planReportTemplate == null) {
+                    StringBuilder content = new StringBuilder();
+                    try (BufferedReader reader = new BufferedReader(new InputStreamReader(
+                            TestPlanService.class.getResourceAsStream("/public/plan-report.html"), StandardCharsets.UTF_8))) {
+                        String line;
+                        while (null != (line = reader.readLine())) {
+                            content.append(line).append("\n");
+                        }
+                    }
+                    List<String> segments = new ArrayList<>();
+                    int from = 0;
+                    int index;
+                    while ((index = content.indexOf(REPORT_PLACEHOLDER, from)) >= 0) {
+                        segments.add(content.substring(from, index));
+                        from = index + REPORT_PLACEHOLDER.length();
+                    }
+                    segments.add(content.substring(from));
+                    planReportTemplate = Collections.unmodifiableList(segments);
+                }
+            }
+        }
+        return planReportTemplate;
+    }
+
     public TestPlanSimpleReportDTO getReport(String planId) {
         TestPlanWithBLOBs testPlan = testPlanMapper.selectByPrimaryKey(planId);
         TestPlanSimpleReportDTO report = new TestPlanSimpleReportDTO();
@@ -9,16 +9,16 @@ import javax.annotation.Resource;
 import javax.websocket.*;
 import javax.websocket.server.PathParam;
 import javax.websocket.server.ServerEndpoint;
-import java.util.Timer;
-import java.util.TimerTask;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.Collection;
 
 @ServerEndpoint("/api/definition/run/report/{reportId}/{runMode}")
 @Component
 public class ApiReportWebSocket {
 
+    public static final String CHANNEL = "api-report";
+
     private static ApiDefinitionService apiDefinitionService;
-    private ConcurrentHashMap<Session, Timer> refreshTasks = new ConcurrentHashMap<>();
+    private static final ApiReportTask TASK = new ApiReportTask();
 
     @Resource
     public void setReportService(ApiDefinitionService apiDefinitionService) {
@@ -30,10 +30,7 @@ public class ApiReportWebSocket {
      */
     @OnOpen
     public void onOpen(@PathParam("reportId") String reportId, @PathParam("runMode") String runMode, Session session) {
-        Timer timer = new Timer(true);
-        ApiReportTask task = new ApiReportTask(session, reportId, runMode);
-        timer.schedule(task, 0, 3 * 1000);
-        refreshTasks.putIfAbsent(session, timer);
+        WebSocketPushHub.subscribe(CHANNEL, reportId, session, 3 * 1000L, TASK);
     }
 
     /**
@@ -41,11 +38,7 @@ public class ApiReportWebSocket {
      */
     @OnClose
     public void onClose(Session session) {
-        Timer timer = refreshTasks.get(session);
-        if (timer != null) {
-            timer.cancel();
-            refreshTasks.remove(session);
-        }
+        WebSocketPushHub.unsubscribe(session);
     }
 
     /**
@@ -55,13 +48,7 @@ public class ApiReportWebSocket {
     public void onMessage(@PathParam("reportId") String reportId, @PathParam("runMode") String runMode, Session session, String message) {
         try {
             LogUtil.info(message);
-            Timer timer = refreshTasks.get(session);
-            if (timer != null) {
-                timer.cancel();
-            }
-            Timer newTimer = new Timer(true);
-            newTimer.schedule(new ApiReportTask(session, reportId, runMode), 0, 1000L);
-            refreshTasks.put(session, newTimer);
+            WebSocketPushHub.subscribe(CHANNEL, reportId, session, 1000L, TASK);
         } catch (Exception e) {
             LogUtil.error(e.getMessage(), e);
         }
@@ -76,30 +63,27 @@ public class ApiReportWebSocket {
         error.printStackTrace();
     }
 
-    public static class ApiReportTask extends TimerTask {
-        private Session session;
-        private String reportId;
-        private String runMode;
+    public static class ApiReportTask implements WebSocketPushHub.PushHandler<APIReportResult> {
 
-        ApiReportTask(Session session, String reportId, String runMode) {
-            this.session = session;
-            this.reportId = reportId;
-            this.runMode = runMode;
+        @Override
+        public APIReportResult fetch(String reportId) {
+            return apiDefinitionService.getReportById(reportId);
         }
 
         @Override
-        public void run() {
-            try {
-                APIReportResult report = apiDefinitionService.getReportById(reportId);
-                if (!session.isOpen()) {
-                    return;
-                }
-                if (report != null) {
-                    session.getBasicRemote().sendText(report.getContent());
-                    session.close();
+        public void push(String reportId, APIReportResult report, Collection<Session> sessions) {
+            if (report == null) {
+                return;
+            }
+            for (Session session : sessions) {
+                try {
+                    if (session.isOpen()) {
+                        session.getBasicRemote().sendText(report.getContent());
+                        session.close();
+                    }
+                } catch (Exception e) {
+                    LogUtil.error(e.getMessage(), e);
                 }
-            } catch (Exception e) {
-                LogUtil.error(e.getMessage(), e);
             }
         }
     }
@@ -13,15 +13,15 @@ import javax.annotation.Resource;
 import javax.websocket.*;
 import javax.websocket.server.PathParam;
 import javax.websocket.server.ServerEndpoint;
-import java.util.Timer;
-import java.util.TimerTask;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.Collection;
 
 @ServerEndpoint("/notification/count/{userId}")
 @Component
 public class NotificationWebSocket {
+    public static final String CHANNEL = "notification";
+
     private static NotificationService notificationService;
-    private static ConcurrentHashMap<Session, Timer> refreshTasks = new ConcurrentHashMap<>();
+    private static final NotificationCenter TASK = new NotificationCenter();
 
     @Resource
     public void setNotificationService(NotificationService notificationService) {
@@ -33,10 +33,7 @@ public class NotificationWebSocket {
      */
     @OnOpen
     public void onOpen(@PathParam("userId") String userId, Session session) {
-        Timer timer = new Timer(true);
-        NotificationCenter task = new NotificationCenter(session, userId);
-        timer.schedule(task, 0, 10 * 1000);
-        refreshTasks.putIfAbsent(session, timer);
+        WebSocketPushHub.subscribe(CHANNEL, userId, session, 10 * 1000L, TASK);
     }
 
     /**
@@ -44,11 +41,7 @@ public class NotificationWebSocket {
      */
     @OnClose
     public void onClose(Session session) {
-        Timer timer = refreshTasks.get(session);
-        if (timer != null) {
-            timer.cancel();
-            refreshTasks.remove(session);
-        }
+        WebSocketPushHub.unsubscribe(session);
     }
 
     /**
@@ -62,12 +55,7 @@ public class NotificationWebSocket {
         } catch (Exception e) {
         }
         try {
-            Timer timer = refreshTasks.get(session);
-            timer.cancel();
-
-            Timer newTimer = new Timer(true);
-            newTimer.schedule(new NotificationCenter(session, userId), 0, refreshTime * 1000L);
-            refreshTasks.put(session, newTimer);
+            WebSocketPushHub.subscribe(CHANNEL, userId, session, refreshTime * 1000L, TASK);
         } catch (Exception e) {
             LogUtil.error(e.getMessage(), e);
         }
@@ -82,32 +70,31 @@ public class NotificationWebSocket {
         error.printStackTrace();
     }
 
-    public static class NotificationCenter extends TimerTask {
-        private Session session;
-        private String userId;
+    public static class NotificationCenter implements WebSocketPushHub.PushHandler<String> {
 
-        NotificationCenter(Session session, String userId) {
-            this.session = session;
-            this.userId = userId;
+        @Override
+        public String fetch(String userId) {
+            Notification notification = new Notification();
+            notification.setReceiver(userId);
+            notification.setStatus(NotificationConstants.Status.UNREAD.name());
+            int count = notificationService.countNotification(notification);
+            NotificationMessage message = NotificationMessage.builder()
+                    .count(count)
+                    .now(System.currentTimeMillis())
+                    .build();
+            return JSON.toJSONString(message);
         }
 
         @Override
-        public void run() {
-            try {
-                if (!session.isOpen()) {
-                    return;
+        public void push(String userId, String message, Collection<Session> sessions) {
+            for (Session session : sessions) {
+                try {
+                    if (session.isOpen()) {
+                        session.getBasicRemote().sendText(message);
+                    }
+                } catch (Exception e) {
+                    LogUtil.error(e.getMessage(), e);
                 }
-                Notification notification = new Notification();
-                notification.setReceiver(userId);
-                notification.setStatus(NotificationConstants.Status.UNREAD.name());
-                int count = notificationService.countNotification(notification);
-                NotificationMessage message = NotificationMessage.builder()
-                        .count(count)
-                        .now(System.currentTimeMillis())
-                        .build();
-                session.getBasicRemote().sendText(JSON.toJSONString(message));
-            } catch (Exception e) {
-                LogUtil.error(e.getMessage(), e);
             }
         }
     }
@@ -12,17 +12,16 @@ import javax.annotation.Resource;
 import javax.websocket.*;
 import javax.websocket.server.PathParam;
 import javax.websocket.server.ServerEndpoint;
-import java.util.Timer;
-import java.util.TimerTask;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.Collection;
 
 @ServerEndpoint("/performance/report/{reportId}")
 @Component
 public class ReportWebSocket {
+    public static final String CHANNEL = "performance-report";
 
     private static PerformanceReportService performanceReportService;
     private static PerformanceTestService performanceTestService;
-    private static ConcurrentHashMap<Session, Timer> refreshTasks = new ConcurrentHashMap<>();
+    private static final ReportTask TASK = new ReportTask();
 
     @Resource
     public void setReportService(PerformanceReportService performanceReportService) {
@@ -39,10 +38,7 @@ public class ReportWebSocket {
      */
     @OnOpen
     public void onOpen(@PathParam("reportId") String reportId, Session session) {
-        Timer timer = new Timer(true);
-        ReportTask task = new ReportTask(session, reportId);
-        timer.schedule(task, 0, 10 * 1000);
-        refreshTasks.putIfAbsent(session, timer);
+        WebSocketPushHub.subscribe(CHANNEL, reportId, session, 10 * 1000L, TASK);
     }
 
     /**
@@ -50,11 +46,7 @@ public class ReportWebSocket {
      */
     @OnClose
     public void onClose(Session session) {
-        Timer timer = refreshTasks.get(session);
-        if (timer != null) {
-            timer.cancel();
-            refreshTasks.remove(session);
-        }
+        WebSocketPushHub.unsubscribe(session);
     }
 
     /**
@@ -68,12 +60,7 @@ public class ReportWebSocket {
         } catch (Exception e) {
         }
         try {
-            Timer timer = refreshTasks.get(session);
-            timer.cancel();
-
-            Timer newTimer = new Timer(true);
-            newTimer.schedule(new ReportTask(session, reportId), 0, refreshTime * 1000L);
-            refreshTasks.put(session, newTimer);
+            WebSocketPushHub.subscribe(CHANNEL, reportId, session, refreshTime * 1000L, TASK);
         } catch (Exception e) {
             LogUtil.error(e.getMessage(), e);
         }
@@ -88,40 +75,56 @@ public class ReportWebSocket {
         error.printStackTrace();
     }
 
-    public static class ReportTask extends TimerTask {
-        private Session session;
-        private String reportId;
+    public static class ReportTask implements WebSocketPushHub.PushHandler<LoadTestReportWithBLOBs> {
 
-        ReportTask(Session session, String reportId) {
-            this.session = session;
-            this.reportId = reportId;
+        @Override
+        public LoadTestReportWithBLOBs fetch(String reportId) {
+            return performanceReportService.getReport(reportId);
         }
 
         @Override
-        public void run() {
-            try {
-                LoadTestReportWithBLOBs report = performanceReportService.getReport(reportId);
-                if (report == null || StringUtils.equalsAny(report.getStatus(), PerformanceTestStatus.Completed.name())) {
-                    session.close();
+        public void push(String reportId, LoadTestReportWithBLOBs report, Collection<Session> sessions) {
+            if (report == null || StringUtils.equalsAny(report.getStatus(), PerformanceTestStatus.Completed.name())) {
+                for (Session session : sessions) {
+                    close(session);
                 }
-                if (StringUtils.equals(report.getStatus(), PerformanceTestStatus.Error.name())) {
-                    session.getBasicRemote().sendText("Error: " + report.getDescription());
-                    performanceTestService.stopErrorTest(reportId);
-                    session.close();
+                return;
+            }
+            if (StringUtils.equals(report.getStatus(), PerformanceTestStatus.Error.name())) {
+                for (Session session : sessions) {
+                    send(session, "Error: " + report.getDescription());
+                    close(session);
                 }
-                if (!session.isOpen()) {
-                    return;
+                performanceTestService.stopErrorTest(reportId);
+                return;
+            }
+            if (StringUtils.equalsAny(report.getStatus(),
+                    PerformanceTestStatus.Starting.name(),
+                    PerformanceTestStatus.Running.name(),
+                    PerformanceTestStatus.Reporting.name())
+            ) {
+                for (Session session : sessions) {
+                    send(session, "refresh-" + Math.random());
                 }
-                if (StringUtils.equalsAny(report.getStatus(),
-                        PerformanceTestStatus.Starting.name(),
-                        PerformanceTestStatus.Running.name(),
-                        PerformanceTestStatus.Reporting.name())
-                ) {
-                    session.getBasicRemote().sendText("refresh-" + Math.random());
+            }
+        }
+
+        private void send(Session session, String message) {
+            try {
+                if (session.isOpen()) {
+                    session.getBasicRemote().sendText(message);
                 }
             } catch (Exception e) {
                 LogUtil.error(e.getMessage(), e);
             }
         }
+
+        private void close(Session session) {
+            try {
+                session.close();
+            } catch (Exception e) {
+                LogUtil.error(e.getMessage(), e);
+            }
+        }
     }
-}
\ No newline at end of file
+}
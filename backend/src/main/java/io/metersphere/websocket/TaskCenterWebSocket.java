@@ -9,15 +9,15 @@ import javax.annotation.Resource;
 import javax.websocket.*;
 import javax.websocket.server.PathParam;
 import javax.websocket.server.ServerEndpoint;
-import java.util.Timer;
-import java.util.TimerTask;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.Collection;
 
 @ServerEndpoint("/task/center/count/running/{projectId}")
 @Component
 public class TaskCenterWebSocket {
+    public static final String CHANNEL = "task-center";
+
     private static TaskService taskService;
-    private static ConcurrentHashMap<Session, Timer> refreshTasks = new ConcurrentHashMap<>();
+    private static final TaskCenter TASK = new TaskCenter();
 
     @Resource
     public void setTaskService(TaskService taskService) {
@@ -29,10 +29,7 @@ public class TaskCenterWebSocket {
      */
     @OnOpen
     public void onOpen(@PathParam("projectId") String projectId, Session session) {
-        Timer timer = new Timer(true);
-        TaskCenterWebSocket.TaskCenter task = new TaskCenterWebSocket.TaskCenter(session, projectId);
-        timer.schedule(task, 0, 10 * 1000);
-        refreshTasks.putIfAbsent(session, timer);
+        WebSocketPushHub.subscribe(CHANNEL, projectId, session, 10 * 1000L, TASK);
     }
 
     /**
@@ -40,11 +37,7 @@ public class TaskCenterWebSocket {
      */
     @OnClose
     public void onClose(Session session) {
-        Timer timer = refreshTasks.get(session);
-        if (timer != null) {
-            timer.cancel();
-            refreshTasks.remove(session);
-        }
+        WebSocketPushHub.unsubscribe(session);
     }
 
     /**
@@ -58,12 +51,7 @@ public class TaskCenterWebSocket {
         } catch (Exception e) {
         }
         try {
-            Timer timer = refreshTasks.get(session);
-            timer.cancel();
-
-            Timer newTimer = new Timer(true);
-            newTimer.schedule(new TaskCenterWebSocket.TaskCenter(session, projectId), 0, refreshTime * 1000L);
-            refreshTasks.put(session, newTimer);
+            WebSocketPushHub.subscribe(CHANNEL, projectId, session, refreshTime * 1000L, TASK);
         } catch (Exception e) {
             LogUtil.error(e.getMessage(), e);
         }
@@ -78,30 +66,29 @@ public class TaskCenterWebSocket {
         error.printStackTrace();
     }
 
-    public static class TaskCenter extends TimerTask {
-        private Session session;
-        private TaskCenterRequest request;
+    public static class TaskCenter implements WebSocketPushHub.PushHandler<Integer> {
 
-        TaskCenter(Session session, String projectId) {
-            this.session = session;
+        @Override
+        public Integer fetch(String projectId) {
             TaskCenterRequest request = new TaskCenterRequest();
             request.setProjectId(projectId);
-            this.request = request;
+            return taskService.getRunningTasks(request);
         }
 
         @Override
-        public void run() {
-            try {
-                int taskTotal = taskService.getRunningTasks(request);
-                if (!session.isOpen()) {
-                    return;
-                }
-                session.getBasicRemote().sendText(taskTotal + "");
-                if (taskTotal == 0) {
-                    session.close();
+        public void push(String projectId, Integer taskTotal, Collection<Session> sessions) {
+            for (Session session : sessions) {
+                try {
+                    if (!session.isOpen()) {
+                        continue;
+                    }
+                    session.getBasicRemote().sendText(taskTotal + "");
+                    if (taskTotal == 0) {
+                        session.close();
+                    }
+                } catch (Exception e) {
+                    LogUtil.error(e.getMessage(), e);
                 }
-            } catch (Exception e) {
-                LogUtil.error(e.getMessage(), e);
             }
         }
     }
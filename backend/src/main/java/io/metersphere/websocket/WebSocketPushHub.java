@@ -0,0 +1,162 @@
+package io.metersphere.websocket;
+
+import io.metersphere.api.exec.utils.NamedThreadFactory;
+import io.metersphere.commons.utils.LogUtil;
+import io.metersphere.commons.utils.TransactionUtils;
+import org.apache.commons.lang3.StringUtils;
+
+import javax.websocket.Session;
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * WebSocket 推送中心
+ * 连接按 (频道, 订阅对象) 分组，同一组只查询一次再推送给所有连接；共用调度线程定时兜底刷新，
+ * 状态变化时通过 publish 立即刷新
+ */
+public class WebSocketPushHub {
+    private static final ScheduledExecutorService SCHEDULER = Executors.newScheduledThreadPool(2, new NamedThreadFactory("MS-WS-PUSH"));
+    private static final Map<String, Topic<?>> TOPICS = new ConcurrentHashMap<>();
+    private static final Map<Session, Topic<?>> SESSION_TOPICS = new ConcurrentHashMap<>();
+
+    private WebSocketPushHub() {
+    }
+
+    public interface PushHandler<T> {
+        /**
+         * 查询推送内容，同一订阅对象每次刷新只调用一次
+         */
+        T fetch(String key) throws Exception;
+
+        /**
+         * 推送给订阅该对象的所有连接
+         */
+        void push(String key, T data, Collection<Session> sessions) throws Exception;
+    }
+
+    /**
+     * 订阅；同一连接重复订阅时只更新刷新间隔
+     */
+    public static <T> void subscribe(String channel, String key, Session session, long periodMillis, PushHandler<T> handler) {
+        String id = channel + "|" + key;
+        TOPICS.compute(id, (k, topic) -> {
+            if (topic == null) {
+                topic = new Topic<>(id, key, handler);
+            }
+            topic.add(session, periodMillis);
+            SESSION_TOPICS.put(session, topic);
+            return topic;
+        });
+    }
+
+    public static void unsubscribe(Session session) {
+        Topic<?> topic = SESSION_TOPICS.remove(session);
+        if (topic == null) {
+            return;
+        }
+        TOPICS.computeIfPresent(topic.id, (k, item) -> {
+            item.remove(session);
+            return item.isEmpty() ? null : item;
+        });
+    }
+
+    /**
+     * 订阅对象状态发生变化，立即刷新
+     */
+    public static void publish(String channel, String key) {
+        if (StringUtils.isEmpty(key)) {
+            return;
+        }
+        Topic<?> topic = TOPICS.get(channel + "|" + key);
+        if (topic != null) {
+            // 在事务中发布时等提交后再刷新，避免读到未提交前的状态
+            TransactionUtils.afterCommit(topic::refresh);
+        }
+    }
+
+    /**
+     * 刷新频道下所有订阅对象
+     */
+    public static void publishAll(String channel) {
+        String prefix = channel + "|";
+        TOPICS.forEach((id, topic) -> {
+            if (id.startsWith(prefix)) {
+                TransactionUtils.afterCommit(topic::refresh);
+            }
+        });
+    }
+
+    private static class Topic<T> {
+        private final String id;
+        private final String key;
+        private final PushHandler<T> handler;
+        private final Map<Session, Long> sessions = new ConcurrentHashMap<>();
+        // 已提交但还未开始执行的刷新，重复的刷新请求直接合并
+        private final AtomicBoolean pending = new AtomicBoolean();
+        private final Object fetchLock = new Object();
+        private ScheduledFuture<?> future;
+        private long period;
+
+        private Topic(String id, String key, PushHandler<T> handler) {
+            this.id = id;
+            this.key = key;
+            this.handler = handler;
+        }
+
+        private synchronized void add(Session session, long periodMillis) {
+            sessions.put(session, periodMillis);
+            long newPeriod = sessions.values().stream().min(Long::compare).orElse(periodMillis);
+            if (future == null || newPeriod != period) {
+                if (future != null) {
+                    future.cancel(false);
+                }
+                period = newPeriod;
+                future = SCHEDULER.scheduleWithFixedDelay(this::refresh, 0, period, TimeUnit.MILLISECONDS);
+            } else {
+                // 新连接立即推送一次
+                refresh();
+            }
+        }
+
+        private synchronized void remove(Session session) {
+            sessions.remove(session);
+            if (sessions.isEmpty() && future != null) {
+                future.cancel(false);
+                future = null;
+            }
+        }
+
+        private boolean isEmpty() {
+            return sessions.isEmpty();
+        }
+
+        private void refresh() {
+            if (pending.compareAndSet(false, true)) {
+                try {
+                    SCHEDULER.execute(this::run);
+                } catch (RejectedExecutionException e) {
+                    pending.set(false);
+                }
+            }
+        }
+
+        private void run() {
+            pending.set(false);
+            sessions.keySet().stream().filter(session -> !session.isOpen()).forEach(WebSocketPushHub::unsubscribe);
+            if (sessions.isEmpty()) {
+                return;
+            }
+            // 同一订阅对象的推送串行执行，避免并发写同一个连接
+            synchronized (fetchLock) {
+                try {
+                    T data = handler.fetch(key);
+                    handler.push(key, data, sessions.keySet());
+                } catch (Exception e) {
+                    LogUtil.error(e.getMessage(), e);
+                }
+            }
+        }
+    }
+}